@@ -1,34 +1,40 @@
 package com.amusementpark.config;
 
 import com.amusementpark.models.User;
+import com.amusementpark.services.TokenService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Component;
 
 import jakarta.servlet.*;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import jakarta.servlet.http.HttpSession;
 import java.io.IOException;
-import java.util.Arrays;
-import java.util.List;
 
 /**
- * Filter to protect endpoints that require authentication
+ * Filter to protect endpoints that require authentication.
+ * Requests authenticate with the access token issued at login, sent as
+ * "Authorization: Bearer <token>". Browsers cannot set headers on a WebSocket handshake,
+ * so /ws/ paths may pass it as the access_token query parameter instead. The verified
+ * user is stored in the "user" request attribute.
  */
 @Component
 @Order(1)
 public class AuthenticationFilter implements Filter {
 
     private static final Logger logger = LoggerFactory.getLogger(AuthenticationFilter.class);
-    
-    // List of paths that don't require authentication
-    private static final List<String> PUBLIC_PATHS = Arrays.asList(
-            "/api/auth/login",
-            "/api/auth/register",
-            "/api/auth/logout"
-    );
+
+
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    @Autowired
+    private TokenService tokenService;
+
+    // Paths that don't require authentication, see auth.public-paths
+    @Autowired
+    private PublicPathMatcher publicPathMatcher;
 
     @Override
     public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
@@ -39,15 +45,15 @@ public class AuthenticationFilter implements Filter {
         
         String path = httpRequest.getRequestURI();
         
-        // Allow public paths without authentication
-        if (isPublicPath(path)) {
+        // Allow public paths and CORS preflights without authentication
+        if (publicPathMatcher.matches(path) || "OPTIONS".equals(httpRequest.getMethod())) {
             chain.doFilter(request, response);
             return;
         }
         
         // Check if user is authenticated
-        HttpSession session = httpRequest.getSession(false);
-        User user = session != null ? (User) session.getAttribute("user") : null;
+        String token = extractToken(httpRequest, path);
+        User user = token != null ? tokenService.verify(token) : null;
         
         if (user == null) {
             logger.warn("Unauthorized access attempt to {}", path);
@@ -57,19 +63,21 @@ public class AuthenticationFilter implements Filter {
         }
         
         // User is authenticated, proceed with the request
+        httpRequest.setAttribute("user", user);
         chain.doFilter(request, response);
     }
     
-    private boolean isPublicPath(String path) {
-        // Check if the path is in the public paths list
-        return PUBLIC_PATHS.stream().anyMatch(path::startsWith) ||
-               // Also allow static resources and root path
-               path.startsWith("/css/") ||
-               path.startsWith("/js/") ||
-               path.startsWith("/images/") ||
-               path.equals("/");
+    private String extractToken(HttpServletRequest request, String path) {
+        String authorization = request.getHeader("Authorization");
+        if (authorization != null && authorization.startsWith(BEARER_PREFIX)) {
+            return authorization.substring(BEARER_PREFIX.length()).trim();
+        }
+        if (path.startsWith("/ws/")) {
+            return request.getParameter("access_token");
+        }
+        return null;
     }
-
+    
     @Override
     public void init(FilterConfig filterConfig) {
         logger.info("Initializing Authentication Filter");
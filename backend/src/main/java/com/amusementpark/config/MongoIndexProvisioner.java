@@ -0,0 +1,75 @@
+package com.amusementpark.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Creates the indexes declared with @Indexed and @CompoundIndex on every document class
+ * at startup. Spring Boot leaves index auto-creation off, so without this the repository
+ * finders would scan whole collections. Existing indexes are left alone. An index that
+ * cannot be built is logged; if it is a unique index the application does not start,
+ * since code such as registration relies on the duplicate key error instead of checking
+ * first (e.g. a unique index over users that already contain duplicates has to be fixed
+ * by hand).
+ *
+ * The resolver also returns the indexes of classes embedded in a document, with the keys
+ * prefixed by the embedding field (e.g. messages.userId for the messages of a chat bucket).
+ * Those are skipped: they would be large multikey indexes no query uses, and a document
+ * class that needs an index on a nested field declares it with its own @CompoundIndex.
+ */
+@Component
+public class MongoIndexProvisioner {
+
+    private static final Logger logger = LoggerFactory.getLogger(MongoIndexProvisioner.class);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @PostConstruct
+    public void ensureIndexes() {
+        var mappingContext = mongoTemplate.getConverter().getMappingContext();
+        MongoPersistentEntityIndexResolver resolver = new MongoPersistentEntityIndexResolver(mappingContext);
+        int ensured = 0;
+        List<String> missingUnique = new ArrayList<>();
+        for (MongoPersistentEntity<?> entity : mappingContext.getPersistentEntities()) {
+            if (!entity.isAnnotationPresent(Document.class)) {
+                continue;
+            }
+            IndexOperations indexOps = mongoTemplate.indexOps(entity.getType());
+            for (IndexDefinition index : resolver.resolveIndexFor(entity.getType())) {
+                if (isOnEmbeddedType(index)) {
+                    continue;
+                }
+                try {
+                    indexOps.ensureIndex(index);
+                    ensured++;
+                } catch (RuntimeException e) {
+                    logger.error("Failed to create index {} on {}", index.getIndexKeys().toJson(), entity.getCollection(), e);
+                    if (Boolean.TRUE.equals(index.getIndexOptions().get("unique"))) {
+                        missingUnique.add(entity.getCollection() + " " + index.getIndexKeys().toJson());
+                    }
+                }
+            }
+        }
+        if (!missingUnique.isEmpty()) {
+            throw new IllegalStateException("Unique indexes could not be created: " + missingUnique);
+        }
+        logger.info("Ensured {} declared MongoDB indexes", ensured);
+    }
+
+    private static boolean isOnEmbeddedType(IndexDefinition index) {
+        return index.getIndexKeys().keySet().stream().anyMatch(key -> key.contains("."));
+    }
+}
@@ -0,0 +1,113 @@
+package com.amusementpark.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Decides which request paths are reachable without authentication. The rules come from
+ * auth.public-paths: a rule ending in '*' matches every path starting with the text before
+ * it, any other rule matches only that exact path. The rules are compiled once into a
+ * character trie, so matching a path is a single walk over its characters without any
+ * allocation. Every match is counted against the most specific rule that matched.
+ */
+@Component
+public class PublicPathMatcher {
+
+    private static final class Node {
+        private char[] keys = new char[0];
+        private Node[] children = new Node[0];
+        private int prefixRule = -1; // Rule matching every path that passes this node
+        private int exactRule = -1; // Rule matching a path that ends at this node
+
+        private Node child(char c) {
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] == c) {
+                    return children[i];
+                }
+            }
+            return null;
+        }
+
+        private Node addChild(char c) {
+            Node existing = child(c);
+            if (existing != null) {
+                return existing;
+            }
+            keys = Arrays.copyOf(keys, keys.length + 1);
+            children = Arrays.copyOf(children, children.length + 1);
+            keys[keys.length - 1] = c;
+            children[children.length - 1] = new Node();
+            return children[children.length - 1];
+        }
+    }
+
+    private final String[] rules;
+    private final LongAdder[] hits;
+    private final Node root = new Node();
+
+    public PublicPathMatcher(@Value("${auth.public-paths:/api/auth/login*,/api/auth/register*,/api/auth/logout*,/api/auth/username-available*,/css/*,/js/*,/images/*,/}") String[] rules) {
+        this.rules = rules.clone();
+        this.hits = new LongAdder[rules.length];
+        for (int i = 0; i < rules.length; i++) {
+            hits[i] = new LongAdder();
+            String rule = rules[i].trim();
+            boolean prefix = rule.endsWith("*");
+            String text = prefix ? rule.substring(0, rule.length() - 1) : rule;
+
+            Node node = root;
+            for (int c = 0; c < text.length(); c++) {
+                node = node.addChild(text.charAt(c));
+            }
+            // The first rule for a node wins, later duplicates never match
+            if (prefix && node.prefixRule < 0) {
+                node.prefixRule = i;
+            } else if (!prefix && node.exactRule < 0) {
+                node.exactRule = i;
+            }
+        }
+    }
+
+    /**
+     * Check whether a path is public
+     * @param path The request URI
+     * @return true if one of the rules matches
+     */
+    public boolean matches(String path) {
+        int matched = -1;
+        Node node = root;
+        for (int i = 0; node != null; i++) {
+            if (node.prefixRule >= 0) {
+                matched = node.prefixRule;
+            }
+            if (i == path.length()) {
+                if (node.exactRule >= 0) {
+                    matched = node.exactRule;
+                }
+                break;
+            }
+            node = node.child(path.charAt(i));
+        }
+        if (matched < 0) {
+            return false;
+        }
+        hits[matched].increment();
+        return true;
+    }
+
+    /**
+     * @return Number of requests let through by each distinct rule, in configuration order
+     */
+    public Map<String, Long> getHits() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (int i = 0; i < rules.length; i++) {
+            // A duplicate rule shares the entry of the first one
+            counts.merge(rules[i].trim(), hits[i].sum(), Long::sum);
+        }
+        return counts;
+    }
+}
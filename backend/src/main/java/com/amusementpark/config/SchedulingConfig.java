@@ -0,0 +1,12 @@
+package com.amusementpark.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Enables @Scheduled background jobs such as cache checkpoints
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
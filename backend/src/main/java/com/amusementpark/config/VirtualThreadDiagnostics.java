@@ -0,0 +1,105 @@
+package com.amusementpark.config;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Reports whether requests run on virtual threads (spring.threads.virtual.enabled, which
+ * Spring Boot only honours on Java 21 or later) and, in that mode, logs every time a
+ * virtual thread stays pinned to its carrier thread for longer than the threshold,
+ * e.g. while blocking inside a synchronized block. Pinning is observed through the
+ * jdk.VirtualThreadPinned JFR event.
+ */
+@Component
+public class VirtualThreadDiagnostics {
+
+    private static final Logger logger = LoggerFactory.getLogger(VirtualThreadDiagnostics.class);
+
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    private static final int LOGGED_FRAMES = 8;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreadsRequested;
+
+    @Value("${threads.pinning-diagnostics.enabled:true}")
+    private boolean pinningDiagnosticsEnabled;
+
+    @Value("${threads.pinning-diagnostics.threshold-ms:20}")
+    private long pinningThresholdMs;
+
+    private final LongAdder pinnedEvents = new LongAdder();
+
+    private RecordingStream pinningStream;
+
+    /**
+     * Log the request thread mode and start watching for pinned virtual threads
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        int javaVersion = Runtime.version().feature();
+        if (!virtualThreadsRequested) {
+            logger.info("Handling requests on platform threads");
+            return;
+        }
+        if (!isVirtual()) {
+            logger.warn("spring.threads.virtual.enabled is set but Java {} has no virtual threads, handling requests on platform threads", javaVersion);
+            return;
+        }
+        logger.info("Handling requests on virtual threads");
+
+        if (pinningDiagnosticsEnabled) {
+            pinningStream = new RecordingStream();
+            pinningStream.enable(PINNED_EVENT).withThreshold(Duration.ofMillis(pinningThresholdMs)).withStackTrace();
+            pinningStream.onEvent(PINNED_EVENT, this::onPinned);
+            pinningStream.startAsync();
+        }
+    }
+
+    /**
+     * @return Whether request handling runs on virtual threads
+     */
+    public boolean isVirtual() {
+        return virtualThreadsRequested && Runtime.version().feature() >= 21;
+    }
+
+    /**
+     * @return Number of pinned virtual threads seen above the threshold
+     */
+    public long getPinnedEvents() {
+        return pinnedEvents.sum();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (pinningStream != null) {
+            pinningStream.close();
+        }
+    }
+
+    private void onPinned(RecordedEvent event) {
+        pinnedEvents.increment();
+        StringBuilder frames = new StringBuilder();
+        if (event.getStackTrace() != null) {
+            List<RecordedFrame> stack = event.getStackTrace().getFrames();
+            for (int i = 0; i < Math.min(LOGGED_FRAMES, stack.size()); i++) {
+                RecordedFrame frame = stack.get(i);
+                frames.append("\n\tat ").append(frame.getMethod().getType().getName())
+                        .append('.').append(frame.getMethod().getName())
+                        .append(':').append(frame.getLineNumber());
+            }
+        }
+        logger.warn("Virtual thread pinned for {} ms{}", event.getDuration().toMillis(), frames);
+    }
+}
@@ -0,0 +1,56 @@
+package com.amusementpark.config;
+
+import com.amusementpark.controllers.ChatWebSocketHandler;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.config.annotation.EnableWebSocket;
+import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+import org.springframework.web.socket.server.HandshakeInterceptor;
+
+import java.util.Map;
+
+/**
+ * Registers the chat WebSocket endpoint. The handshake is an ordinary HTTP request, so it
+ * passes through the AuthenticationFilter; the interceptor then copies the user verified
+ * from the access token into the WebSocket session.
+ */
+@Configuration
+@EnableWebSocket
+public class WebSocketConfig implements WebSocketConfigurer {
+
+    @Autowired
+    private ChatWebSocketHandler chatWebSocketHandler;
+
+    @Override
+    public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
+        registry.addHandler(chatWebSocketHandler, "/ws/chat")
+                .addInterceptors(new AuthenticatedUserInterceptor())
+                .setAllowedOrigins("http://localhost:3000"); // React frontend URL
+    }
+
+    private static final class AuthenticatedUserInterceptor implements HandshakeInterceptor {
+
+        @Override
+        public boolean beforeHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                                       WebSocketHandler wsHandler, Map<String, Object> attributes) {
+            if (request instanceof ServletServerHttpRequest servletRequest) {
+                Object user = servletRequest.getServletRequest().getAttribute("user");
+                if (user != null) {
+                    attributes.put("user", user);
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public void afterHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                                   WebSocketHandler wsHandler, Exception exception) {
+        }
+    }
+}
@@ -1,7 +1,9 @@
 package com.amusementpark.controllers;
 
 import com.amusementpark.models.User;
-import com.amusementpark.repositories.UserRepository;
+import com.amusementpark.services.TokenService;
+import com.amusementpark.services.UserAlreadyExistsException;
+import com.amusementpark.services.UserService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -9,10 +11,9 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import jakarta.servlet.http.HttpServletRequest;
-import jakarta.servlet.http.HttpSession;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * Controller for handling user authentication operations
@@ -24,7 +25,10 @@ public class AuthController {
     private static final Logger logger = LoggerFactory.getLogger(AuthController.class);
     
     @Autowired
-    private UserRepository userRepository;
+    private UserService userService;
+    
+    @Autowired
+    private TokenService tokenService;
     
     /**
      * Register a new user
@@ -34,28 +38,19 @@ public class AuthController {
     @PostMapping("/register")
     public ResponseEntity<?> registerUser(@RequestBody User userData) {
         try {
-            // Check if username already exists
-            if (userRepository.findByUsername(userData.getUsername()) != null) {
-                return ResponseEntity.badRequest().body("Username already exists");
-            }
-            
-            // Check if email already exists
-            if (userRepository.findByEmail(userData.getEmail()) != null) {
-                return ResponseEntity.badRequest().body("Email already exists");
+            if (userData.getPassword() == null || userData.getPassword().isEmpty()) {
+                return ResponseEntity.badRequest().body("Password is required");
             }
             
-            // In a real application, you would hash the password here
-            // For simplicity, we're storing it as plain text (NOT recommended for production)
-            
-            // Create new user
-            User newUser = new User(userData.getUsername(), userData.getEmail(), userData.getPassword());
-            userRepository.save(newUser);
-            
-            logger.info("New user registered: {}", userData.getUsername());
+            userService.register(userData.getUsername(), userData.getEmail(), userData.getPassword());
             
             Map<String, String> response = new HashMap<>();
             response.put("message", "User registered successfully");
             return ResponseEntity.ok(response);
+        } catch (UserAlreadyExistsException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("Too many requests, please try again in a moment");
         } catch (Exception e) {
             logger.error("Error registering user", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -66,11 +61,10 @@ public class AuthController {
     /**
      * Login a user
      * @param credentials User login credentials
-     * @param session HTTP session
-     * @return ResponseEntity with login result
+     * @return ResponseEntity with login result, including the access token for later requests
      */
     @PostMapping("/login")
-    public ResponseEntity<?> loginUser(@RequestBody Map<String, String> credentials, HttpSession session) {
+    public ResponseEntity<?> loginUser(@RequestBody Map<String, String> credentials) {
         try {
             String username = credentials.get("username");
             String password = credentials.get("password");
@@ -79,28 +73,26 @@ public class AuthController {
                 return ResponseEntity.badRequest().body("Username and password are required");
             }
             
-            // Find user by username
-            User user = userRepository.findByUsername(username);
-            
             // Check if user exists and password matches
-            if (user == null || !user.getPassword().equals(password)) {
-                // In a real application, you would use a password encoder to compare passwords
+            User user = userService.authenticate(username, password);
+            if (user == null) {
                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Invalid username or password");
             }
             
-            // Store user in session
-            session.setAttribute("user", user);
-            
             logger.info("User logged in: {}", username);
             
-            // Return user data (excluding password)
+            // Return user data (excluding password) and a signed token, no session is kept
             Map<String, Object> response = new HashMap<>();
             response.put("id", user.getId());
             response.put("username", user.getUsername());
             response.put("email", user.getEmail());
             response.put("role", user.getRole());
+            response.put("token", tokenService.issue(user));
+            response.put("expiresIn", tokenService.getTtlMs() / 1000);
             
             return ResponseEntity.ok(response);
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("Too many login attempts in progress, please try again in a moment");
         } catch (Exception e) {
             logger.error("Error during login", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -109,18 +101,32 @@ public class AuthController {
     }
     
     /**
-     * Logout a user
-     * @param request HTTP request
+     * Check whether a username is still free, for feedback while the user types
+     * @param username The username to check
+     * @return ResponseEntity with the username and whether it is available
+     */
+    @GetMapping("/username-available")
+    public ResponseEntity<?> isUsernameAvailable(@RequestParam String username) {
+        try {
+            Map<String, Object> response = new HashMap<>();
+            response.put("username", username);
+            response.put("available", userService.isUsernameAvailable(username));
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            logger.error("Error checking username availability", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body("An error occurred while checking the username");
+        }
+    }
+    
+    /**
+     * Logout a user. Tokens are not stored on the server, the client logs out by
+     * discarding its token, which stays valid until it expires.
      * @return ResponseEntity with logout result
      */
     @PostMapping("/logout")
-    public ResponseEntity<?> logoutUser(HttpServletRequest request) {
+    public ResponseEntity<?> logoutUser() {
         try {
-            HttpSession session = request.getSession(false);
-            if (session != null) {
-                session.invalidate();
-            }
-            
             logger.info("User logged out");
             
             Map<String, String> response = new HashMap<>();
@@ -135,13 +141,12 @@ public class AuthController {
     
     /**
      * Get current user information
-     * @param session HTTP session
+     * @param user The user of the request's access token
      * @return ResponseEntity with user data
      */
     @GetMapping("/user")
-    public ResponseEntity<?> getCurrentUser(HttpSession session) {
+    public ResponseEntity<?> getCurrentUser(@RequestAttribute(value = "user", required = false) User user) {
         try {
-            User user = (User) session.getAttribute("user");
             
             if (user == null) {
                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Not authenticated");
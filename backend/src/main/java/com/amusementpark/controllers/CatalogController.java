@@ -0,0 +1,98 @@
+package com.amusementpark.controllers;
+
+import com.amusementpark.models.Ride;
+import com.amusementpark.models.TicketType;
+import com.amusementpark.models.User;
+import com.amusementpark.services.CatalogService;
+import com.amusementpark.services.CatalogSnapshot;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Controller for inspecting the catalog version and updating rides and ticket types
+ */
+@RestController
+@RequestMapping("/api/catalog")
+public class CatalogController {
+
+    private static final Logger logger = LoggerFactory.getLogger(CatalogController.class);
+
+    @Autowired
+    private CatalogService catalogService;
+
+    /**
+     * Get the version of the catalog currently served
+     * @return Map with the version, load time and entry counts
+     */
+    @GetMapping("/version")
+    public ResponseEntity<Map<String, Object>> getVersion() {
+        return ResponseEntity.ok(describe(catalogService.getCatalog()));
+    }
+
+    /**
+     * Reload the catalog from the database
+     * @param user The authenticated user
+     * @return ResponseEntity with the catalog version
+     */
+    @PostMapping("/refresh")
+    public ResponseEntity<?> refresh(@RequestAttribute(value = "user", required = false) User user) {
+        if (!isAdmin(user)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Admin access required");
+        }
+        return ResponseEntity.ok(describe(catalogService.refresh()));
+    }
+
+    /**
+     * Update a ride
+     * @param id The ride ID
+     * @param ride The new ride data
+     * @param user The authenticated user
+     * @return ResponseEntity with the saved ride
+     */
+    @PutMapping("/rides/{id}")
+    public ResponseEntity<?> updateRide(@PathVariable String id, @RequestBody Ride ride, @RequestAttribute(value = "user", required = false) User user) {
+        if (!isAdmin(user)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Admin access required");
+        }
+        ride.setId(id);
+        logger.info("Updating ride {}", id);
+        return ResponseEntity.ok(catalogService.saveRide(ride));
+    }
+
+    /**
+     * Update a ticket type
+     * @param id The ticket type ID
+     * @param ticketType The new ticket type data
+     * @param user The authenticated user
+     * @return ResponseEntity with the saved ticket type
+     */
+    @PutMapping("/ticket-types/{id}")
+    public ResponseEntity<?> updateTicketType(@PathVariable String id, @RequestBody TicketType ticketType, @RequestAttribute(value = "user", required = false) User user) {
+        if (!isAdmin(user)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Admin access required");
+        }
+        ticketType.setId(id);
+        logger.info("Updating ticket type {}", id);
+        return ResponseEntity.ok(catalogService.saveTicketType(ticketType));
+    }
+
+    private boolean isAdmin(User user) {
+        return user != null && "admin".equalsIgnoreCase(user.getRole());
+    }
+
+    private Map<String, Object> describe(CatalogSnapshot catalog) {
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("version", catalog.getVersion());
+        response.put("loadedAt", catalog.getLoadedAt());
+        response.put("rides", catalog.getRides().size());
+        response.put("ticketTypes", catalog.getTicketTypes().size());
+        return response;
+    }
+}
@@ -1,17 +1,26 @@
 package com.amusementpark.controllers;
 
+import com.amusementpark.models.ChatHistoryPage;
 import com.amusementpark.models.ChatMessage;
+import com.amusementpark.models.ChatMessageSummary;
 import com.amusementpark.services.ChatService;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Stream;
 
 @RestController
 @RequestMapping("/api/chat")
@@ -19,51 +28,93 @@ public class ChatController {
     
     private static final Logger logger = LoggerFactory.getLogger(ChatController.class);
     
+    private static final int MAX_PAGE_SIZE = 200;
+    
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    
     @Autowired
     private ChatService chatService;
     
+    @Autowired
+    private ObjectMapper objectMapper;
+    
     /**
      * Receive user message and respond with bot reply
      * @param payload Map containing userId and message
-     * @return ResponseEntity with bot reply
+     * @return ResponseEntity with bot reply, completed once the user's earlier messages are answered
      */
     @PostMapping
-    public ResponseEntity<?> sendMessage(@RequestBody Map<String, String> payload) {
+    public CompletableFuture<ResponseEntity<?>> sendMessage(@RequestBody Map<String, String> payload) {
+        String userId = payload.get("userId");
+        String message = payload.get("message");
+        
+        if (userId == null || message == null) {
+            logger.warn("Missing required fields in chat request: userId={}, message={}", userId, message);
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body("Both userId and message are required"));
+        }
+        
+        logger.info("Processing chat message for user: {}", userId);
         try {
-            String userId = payload.get("userId");
-            String message = payload.get("message");
-            
-            if (userId == null || message == null) {
-                logger.warn("Missing required fields in chat request: userId={}, message={}", userId, message);
-                return ResponseEntity.badRequest().body("Both userId and message are required");
-            }
-            
-            logger.info("Processing chat message for user: {}", userId);
-            ChatMessage botReply = chatService.processUserMessage(userId, message);
-            return ResponseEntity.ok(botReply);
-        } catch (Exception e) {
-            logger.error("Error processing chat message", e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body("An error occurred while processing your message");
+            return chatService.submitUserMessage(userId, message)
+                    .<ResponseEntity<?>>thenApply(ResponseEntity::ok)
+                    .exceptionally(e -> {
+                        logger.error("Error processing chat message", e);
+                        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                                .body("An error occurred while processing your message");
+                    });
+        } catch (RejectedExecutionException e) {
+            logger.warn("Too many chat messages queued, rejecting message for user: {}", userId);
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body("The chat is busy, please try again in a moment"));
         }
     }
     
     /**
-     * Get full chat history for a user
+     * Get the chat history for a user, oldest first. Without cursor and limit the whole
+     * history is returned as a list, as before pagination; with either of them one page is
+     * returned together with the cursor of the next page.
      * @param userId The user ID
-     * @return ResponseEntity with list of chat messages
+     * @param cursor The nextCursor returned with the previous page, omitted for the first page
+     * @param limit Maximum number of messages in the page, 50 if only the cursor is given
+     * @param view "full" for complete messages, "summary" for messages without the user ID
+     * @return ResponseEntity with the list of messages, or the page and its next cursor
      */
     @GetMapping("/history")
-    public ResponseEntity<?> getChatHistory(@RequestParam String userId) {
+    public ResponseEntity<?> getChatHistory(@RequestParam String userId,
+                                            @RequestParam(required = false) String cursor,
+                                            @RequestParam(required = false) Integer limit,
+                                            @RequestParam(defaultValue = "full") String view) {
         try {
             if (userId == null || userId.trim().isEmpty()) {
                 logger.warn("Missing userId in chat history request");
                 return ResponseEntity.badRequest().body("UserId is required");
             }
+            if (limit != null && (limit < 1 || limit > MAX_PAGE_SIZE)) {
+                return ResponseEntity.badRequest().body("Limit must be between 1 and " + MAX_PAGE_SIZE);
+            }
+            if (!"full".equals(view) && !"summary".equals(view)) {
+                return ResponseEntity.badRequest().body("View must be full or summary");
+            }
             
             logger.info("Retrieving chat history for user: {}", userId);
-            List<ChatMessage> chatHistory = chatService.getChatHistoryByUserId(userId);
-            return ResponseEntity.ok(chatHistory);
+            if (cursor == null && limit == null) {
+                List<ChatMessage> chatHistory = chatService.getChatHistoryByUserId(userId);
+                if ("summary".equals(view)) {
+                    return ResponseEntity.ok(chatHistory.stream().map(ChatMessageSummary::of).toList());
+                }
+                return ResponseEntity.ok(chatHistory);
+            }
+            
+            ChatHistoryPage page = chatService.getChatHistoryPage(userId, cursor, limit != null ? limit : DEFAULT_PAGE_SIZE);
+            if ("summary".equals(view)) {
+                Map<String, Object> summary = new LinkedHashMap<>();
+                summary.put("messages", page.getMessages().stream().map(ChatMessageSummary::of).toList());
+                summary.put("nextCursor", page.getNextCursor());
+                return ResponseEntity.ok(summary);
+            }
+            return ResponseEntity.ok(page);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body("Invalid cursor");
         } catch (Exception e) {
             logger.error("Error retrieving chat history for user: {}", userId, e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -72,27 +123,61 @@ public class ChatController {
     }
     
     /**
-     * Get recent 5 messages for a user
+     * Export the full chat history of a user as newline-delimited JSON.
+     * Messages are streamed from the database cursor and never held in memory together.
      * @param userId The user ID
-     * @return ResponseEntity with list of recent chat messages
+     * @return ResponseEntity streaming one JSON message per line
+     */
+    @GetMapping("/history/export")
+    public ResponseEntity<?> exportChatHistory(@RequestParam String userId) {
+        if (userId == null || userId.trim().isEmpty()) {
+            logger.warn("Missing userId in chat history export request");
+            return ResponseEntity.badRequest().body("UserId is required");
+        }
+        
+        logger.info("Exporting chat history for user: {}", userId);
+        StreamingResponseBody body = out -> {
+            try (Stream<ChatMessage> messages = chatService.streamChatHistoryByUserId(userId)) {
+                Iterator<ChatMessage> it = messages.iterator();
+                while (it.hasNext()) {
+                    out.write(objectMapper.writeValueAsBytes(it.next()));
+                    out.write('\n');
+                }
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .body(body);
+    }
+    
+    /**
+     * Get the most recent messages for a user
+     * @param userId The user ID
+     * @param limit Number of messages to return, 5 by default
+     * @param view "full" for complete messages, "summary" for messages without the user ID
+     * @return ResponseEntity with list of recent chat messages, newest first
      */
     @GetMapping("/recent")
-    public ResponseEntity<?> getRecentMessages(@RequestParam String userId) {
+    public ResponseEntity<?> getRecentMessages(@RequestParam String userId,
+                                               @RequestParam(defaultValue = "5") int limit,
+                                               @RequestParam(defaultValue = "full") String view) {
         try {
             if (userId == null || userId.trim().isEmpty()) {
                 logger.warn("Missing userId in recent messages request");
                 return ResponseEntity.badRequest().body("UserId is required");
             }
+            if (limit < 1 || limit > MAX_PAGE_SIZE) {
+                return ResponseEntity.badRequest().body("Limit must be between 1 and " + MAX_PAGE_SIZE);
+            }
+            if (!"full".equals(view) && !"summary".equals(view)) {
+                return ResponseEntity.badRequest().body("View must be full or summary");
+            }
             
             logger.info("Retrieving recent messages for user: {}", userId);
-            List<ChatMessage> allMessages = chatService.getChatHistoryByUserId(userId);
-            
-            // Get the most recent 5 messages
-            List<ChatMessage> recentMessages = allMessages.stream()
-                    .sorted((m1, m2) -> m2.getTimestamp().compareTo(m1.getTimestamp()))
-                    .limit(5)
-                    .collect(Collectors.toList());
-                    
+            List<ChatMessage> recentMessages = chatService.getRecentMessages(userId, limit);
+            if ("summary".equals(view)) {
+                return ResponseEntity.ok(recentMessages.stream().map(ChatMessageSummary::of).toList());
+            }
             return ResponseEntity.ok(recentMessages);
         } catch (Exception e) {
             logger.error("Error retrieving recent messages for user: {}", userId, e);
@@ -0,0 +1,103 @@
+package com.amusementpark.controllers;
+
+import com.amusementpark.models.User;
+import com.amusementpark.services.ChatService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Chat over one WebSocket connection per browser session. Each text frame
+ * {"message": "..."} is one chat turn; the reply is pushed as a ChatMessage as soon as
+ * it is generated, and persisting the turn happens afterwards. Errors are pushed as
+ * {"error": "..."}. The user is taken from the handshake's access token, not from the frames.
+ */
+@Component
+public class ChatWebSocketHandler extends TextWebSocketHandler {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChatWebSocketHandler.class);
+
+    private static final int SEND_TIME_LIMIT_MS = 5000;
+    private static final int SEND_BUFFER_SIZE = 64 * 1024;
+
+    @Autowired
+    private ChatService chatService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // Replies are sent from the chat turn threads, the decorator serializes the sends
+    private final Map<String, WebSocketSession> sessions = new ConcurrentHashMap<>();
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) {
+        sessions.put(session.getId(), new ConcurrentWebSocketSessionDecorator(session, SEND_TIME_LIMIT_MS, SEND_BUFFER_SIZE));
+    }
+
+    @Override
+    protected void handleTextMessage(WebSocketSession session, TextMessage frame) {
+        WebSocketSession out = sessions.get(session.getId());
+        User user = (User) session.getAttributes().get("user");
+        if (out == null || user == null) {
+            return;
+        }
+
+        String message;
+        try {
+            JsonNode payload = objectMapper.readTree(frame.getPayload());
+            message = payload.path("message").asText(null);
+        } catch (JsonProcessingException e) {
+            message = null;
+        }
+        if (message == null) {
+            sendError(out, "A message is required");
+            return;
+        }
+
+        try {
+            chatService.submitUserMessage(user.getId(), message, reply -> send(out, reply))
+                    .exceptionally(e -> {
+                        logger.error("Error processing chat message", e);
+                        sendError(out, "An error occurred while processing your message");
+                        return null;
+                    });
+        } catch (RejectedExecutionException e) {
+            sendError(out, "The chat is busy, please try again in a moment");
+        }
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        sessions.remove(session.getId());
+    }
+
+    private void sendError(WebSocketSession session, String error) {
+        send(session, Map.of("error", error));
+    }
+
+    private void send(WebSocketSession session, Object payload) {
+        if (!session.isOpen()) {
+            return;
+        }
+        try {
+            session.sendMessage(new TextMessage(objectMapper.writeValueAsString(payload)));
+        } catch (IOException | RuntimeException e) {
+            // The client went away, the turn itself is still persisted
+            logger.debug("Failed to push chat message to session {}", session.getId(), e);
+        }
+    }
+}
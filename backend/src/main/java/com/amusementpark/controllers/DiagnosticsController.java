@@ -0,0 +1,79 @@
+package com.amusementpark.controllers;
+
+import com.amusementpark.config.PublicPathMatcher;
+import com.amusementpark.config.VirtualThreadDiagnostics;
+import com.amusementpark.services.CatalogService;
+import com.amusementpark.services.ChatMessageWriter;
+import com.amusementpark.services.ChatTurnExecutor;
+import com.amusementpark.services.ConversationStateCache;
+import com.amusementpark.services.PasswordHasher;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Exposes runtime counters of the backend caches and queues
+ */
+@RestController
+@RequestMapping("/api/diagnostics")
+public class DiagnosticsController {
+
+    @Autowired
+    private ConversationStateCache conversationStateCache;
+
+    @Autowired
+    private ChatMessageWriter chatMessageWriter;
+
+    @Autowired
+    private ChatTurnExecutor chatTurnExecutor;
+
+    @Autowired
+    private CatalogService catalogService;
+
+    @Autowired
+    private VirtualThreadDiagnostics virtualThreadDiagnostics;
+
+    @Autowired
+    private PublicPathMatcher publicPathMatcher;
+
+    @Autowired
+    private PasswordHasher passwordHasher;
+
+    /**
+     * Get the counters of all caches and queues
+     * @return Map of component name to its counters
+     */
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> getDiagnostics() {
+        Map<String, Object> diagnostics = new LinkedHashMap<>();
+        diagnostics.put("conversationStateCache", conversationStateCache.getStats());
+
+        Map<String, Object> writer = new LinkedHashMap<>();
+        writer.put("mode", chatMessageWriter.isAsync() ? "async" : "sync");
+        writer.put("queueDepth", chatMessageWriter.getQueueDepth());
+        writer.put("writtenMessages", chatMessageWriter.getWrittenMessages());
+        writer.put("failedMessages", chatMessageWriter.getFailedMessages());
+        diagnostics.put("chatMessageWriter", writer);
+
+        diagnostics.put("queuedChatTurns", chatTurnExecutor.getQueuedTurns());
+
+        diagnostics.put("catalogVersion", catalogService.getCatalog().getVersion());
+
+        Map<String, Object> threads = new LinkedHashMap<>();
+        threads.put("mode", virtualThreadDiagnostics.isVirtual() ? "virtual" : "platform");
+        threads.put("pinnedEvents", virtualThreadDiagnostics.getPinnedEvents());
+        diagnostics.put("requestThreads", threads);
+
+        diagnostics.put("publicPathHits", publicPathMatcher.getHits());
+
+        Map<String, Object> hashing = new LinkedHashMap<>();
+        hashing.put("cost", passwordHasher.getCost());
+        hashing.put("queuedHashes", passwordHasher.getQueuedHashes());
+        diagnostics.put("passwordHashing", hashing);
+
+        return ResponseEntity.ok(diagnostics);
+    }
+}
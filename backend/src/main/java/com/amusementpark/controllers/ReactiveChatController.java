@@ -0,0 +1,66 @@
+package com.amusementpark.controllers;
+
+import com.amusementpark.models.ChatMessage;
+import com.amusementpark.services.ReactiveChatService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Chat endpoints backed by the reactive MongoDB driver. The request thread is released
+ * as soon as the pipeline is assembled and the response is written when it completes.
+ */
+@RestController
+@RequestMapping("/api/reactive/chat")
+public class ReactiveChatController {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveChatController.class);
+
+    @Autowired
+    private ReactiveChatService reactiveChatService;
+
+    /**
+     * Receive user message and respond with bot reply
+     * @param payload Map containing userId and message
+     * @return The bot reply once it is saved
+     */
+    @PostMapping
+    public Mono<ResponseEntity<?>> sendMessage(@RequestBody Map<String, String> payload) {
+        String userId = payload.get("userId");
+        String message = payload.get("message");
+
+        if (userId == null || message == null) {
+            logger.warn("Missing required fields in reactive chat request: userId={}, message={}", userId, message);
+            return Mono.just(ResponseEntity.badRequest().body("Both userId and message are required"));
+        }
+
+        return reactiveChatService.processUserMessage(userId, message)
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .onErrorResume(RejectedExecutionException.class, e -> Mono.just(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                        .body("The chat is busy, please try again in a moment")))
+                .onErrorResume(e -> {
+                    logger.error("Error processing chat message", e);
+                    return Mono.just(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                            .body("An error occurred while processing your message"));
+                });
+    }
+
+    /**
+     * Stream the chat history of a user as newline-delimited JSON, oldest first
+     * @param userId The user ID
+     * @return The user's messages
+     */
+    @GetMapping(value = "/history", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<ChatMessage> getChatHistory(@RequestParam String userId) {
+        return reactiveChatService.getChatHistoryByUserId(userId);
+    }
+}
@@ -1,27 +1,38 @@
 package com.amusementpark.controllers;
 
 import com.amusementpark.models.Ride;
-import com.amusementpark.repositories.RideRepository;
+import com.amusementpark.services.CatalogResponseCache;
 import com.amusementpark.services.RideService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import java.util.List;
-import java.util.Map;
-import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/rides")
 public class RideController {
     @Autowired
-    private RideRepository rideRepository;
+    private RideService rideService;
     
     @Autowired
-    private RideService rideService;
+    private CatalogResponseCache catalogResponseCache;
 
+    /**
+     * Get all rides
+     * @param view "full" for complete rides, "summary" for rides without their description
+     * @param request The current request, used for If-None-Match and Accept-Encoding
+     * @return Serialized list of rides
+     */
     @GetMapping("")
-    public List<Ride> getAllRides() {
-        return rideRepository.findAll();
+    public ResponseEntity<?> getAllRides(@RequestParam(defaultValue = "full") String view, WebRequest request) {
+        if ("summary".equals(view)) {
+            return catalogResponseCache.getRideSummaries().toResponseEntity(request);
+        }
+        if (!"full".equals(view)) {
+            return ResponseEntity.badRequest().body("View must be full or summary");
+        }
+        return catalogResponseCache.getRides().toResponseEntity(request);
     }
     
     /**
@@ -36,15 +47,11 @@ public class RideController {
     
     /**
      * Get rides grouped by category
-     * @return Map of category to list of rides
+     * @param request The current request, used for If-None-Match and Accept-Encoding
+     * @return Serialized map of category to list of rides
      */
     @GetMapping("/grouped")
-    public ResponseEntity<Map<String, List<Ride>>> getRidesGroupedByCategory() {
-        List<Ride> allRides = rideService.getAllRides();
-        
-        Map<String, List<Ride>> groupedRides = allRides.stream()
-                .collect(Collectors.groupingBy(Ride::getCategory));
-        
-        return ResponseEntity.ok(groupedRides);
+    public ResponseEntity<byte[]> getRidesGroupedByCategory(WebRequest request) {
+        return catalogResponseCache.getRidesGrouped().toResponseEntity(request);
     }
 }
\ No newline at end of file
@@ -1,54 +1,117 @@
 package com.amusementpark.controllers;
 
 import com.amusementpark.models.Ticket;
-import com.amusementpark.models.TicketType;
+import com.amusementpark.models.User;
+import com.amusementpark.services.CapacityExceededException;
+import com.amusementpark.services.CatalogResponseCache;
+import com.amusementpark.services.IdempotencyConflictException;
+import com.amusementpark.services.IdempotencyKeyReusedException;
+import com.amusementpark.services.IdempotencyService;
 import com.amusementpark.services.TicketService;
-import com.amusementpark.services.TicketTypeService;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
-import java.util.HashMap;
+import java.io.IOException;
 import java.util.List;
-import java.util.Map;
 
 @RestController
 @RequestMapping("/api/tickets")
 public class TicketBookingController {
     
+    private static final int MAX_BULK_BOOKINGS = 500;
+    
     @Autowired
     private TicketService ticketService;
     
     @Autowired
-    private TicketTypeService ticketTypeService;
+    private CatalogResponseCache catalogResponseCache;
+    
+    @Autowired
+    private IdempotencyService idempotencyService;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
     
     /**
      * Get all available ticket types
-     * @return List of ticket types
+     * @param request The current request, used for If-None-Match and Accept-Encoding
+     * @return Serialized list of ticket types
      */
     @GetMapping("/types")
-    public ResponseEntity<List<TicketType>> getTicketTypes() {
-        return ResponseEntity.ok(ticketTypeService.getAllTicketTypes());
+    public ResponseEntity<byte[]> getTicketTypes(WebRequest request) {
+        return catalogResponseCache.getTicketTypes().toResponseEntity(request);
     }
     
     /**
-     * Book tickets
-     * @param ticket The ticket booking request
-     * @return The booked ticket
+     * Book tickets. Clients that retry should send the same Idempotency-Key and body with
+     * every attempt, retries then return the originally booked ticket.
+     * @param body The ticket booking request, read as bytes so retries can be compared with the first attempt
+     * @param idempotencyKey Optional key identifying the booking across retries of the same user
+     * @param user The authenticated user, who owns the Idempotency-Key
+     * @return The booked ticket, 409 if the visit date is sold out or the first attempt is still running,
+     *         or 422 if the Idempotency-Key was used for a different request
      */
     @PostMapping("/book")
-    public ResponseEntity<Ticket> bookTicket(@RequestBody Ticket ticket) {
-        Ticket bookedTicket = ticketService.bookTicket(ticket);
-        return ResponseEntity.ok(bookedTicket);
+    public ResponseEntity<?> bookTicket(@RequestBody byte[] body,
+                                        @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+                                        @RequestAttribute("user") User user) {
+        if (idempotencyKey != null && (idempotencyKey.isBlank() || idempotencyKey.length() > IdempotencyService.MAX_KEY_LENGTH)) {
+            return ResponseEntity.badRequest().body("Idempotency-Key must be 1 to " + IdempotencyService.MAX_KEY_LENGTH + " characters");
+        }
+        Ticket ticket;
+        try {
+            ticket = objectMapper.readValue(body, Ticket.class);
+        } catch (IOException e) {
+            return ResponseEntity.badRequest().body("Invalid booking request");
+        }
+        try {
+            Ticket bookedTicket = idempotencyKey == null
+                    ? ticketService.bookTicket(ticket)
+                    : idempotencyService.execute(user.getId(), idempotencyKey, body, () -> ticketService.bookTicket(ticket));
+            return ResponseEntity.ok(bookedTicket);
+        } catch (CapacityExceededException | IdempotencyConflictException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        } catch (IdempotencyKeyReusedException e) {
+            return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).body(e.getMessage());
+        }
+    }
+    
+    /**
+     * Book many tickets in one call, for group sales and kiosks
+     * @param tickets The ticket booking requests
+     * @return The booked tickets in request order, or 409 if a visit date is sold out
+     */
+    @PostMapping("/book/bulk")
+    public ResponseEntity<?> bookTickets(@RequestBody List<Ticket> tickets) {
+        if (tickets.isEmpty() || tickets.size() > MAX_BULK_BOOKINGS) {
+            return ResponseEntity.badRequest().body("Between 1 and " + MAX_BULK_BOOKINGS + " tickets can be booked at once");
+        }
+        try {
+            return ResponseEntity.ok(ticketService.bookTickets(tickets));
+        } catch (CapacityExceededException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        }
     }
     
     /**
      * Get tickets by user ID
      * @param userId The user ID
+     * @param view "full" for complete tickets, "summary" for the fields shown in lists
      * @return List of tickets for the user
      */
     @GetMapping("/user/{userId}")
-    public ResponseEntity<List<Ticket>> getTicketsByUser(@PathVariable String userId) {
+    public ResponseEntity<?> getTicketsByUser(@PathVariable String userId,
+                                              @RequestParam(defaultValue = "full") String view) {
+        if ("summary".equals(view)) {
+            return ResponseEntity.ok(ticketService.getTicketSummariesByUserId(userId));
+        }
+        if (!"full".equals(view)) {
+            return ResponseEntity.badRequest().body("View must be full or summary");
+        }
         return ResponseEntity.ok(ticketService.getTicketsByUserId(userId));
     }
     
@@ -69,27 +132,11 @@ public class TicketBookingController {
     
     /**
      * Get ticket information for the frontend
-     * @return Map containing ticket types and pricing information
+     * @param request The current request, used for If-None-Match and Accept-Encoding
+     * @return Serialized map containing ticket types and pricing information
      */
     @GetMapping("/info")
-    public ResponseEntity<Map<String, Object>> getTicketInfo() {
-        Map<String, Object> ticketInfo = new HashMap<>();
-        
-        // Add ticket types
-        ticketInfo.put("ticketTypes", ticketTypeService.getAllTicketTypes());
-        
-        // Add park timings
-        Map<String, String> parkTimings = new HashMap<>();
-        parkTimings.put("summer", "11:00 AM - 7:00 PM");
-        ticketInfo.put("parkTimings", parkTimings);
-        
-        // Add important notes
-        List<String> importantNotes = List.of(
-            "Park entry ticket prices are subject to change without prior notice.",
-            "Park timings are subject to change without prior notice."
-        );
-        ticketInfo.put("importantNotes", importantNotes);
-        
-        return ResponseEntity.ok(ticketInfo);
+    public ResponseEntity<byte[]> getTicketInfo(WebRequest request) {
+        return catalogResponseCache.getTicketInfo().toResponseEntity(request);
     }
 }
\ No newline at end of file
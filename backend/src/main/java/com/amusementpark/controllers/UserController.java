@@ -1,35 +1,49 @@
 package com.amusementpark.controllers;
 
 import com.amusementpark.models.User;
-import com.amusementpark.repositories.UserRepository;
+import com.amusementpark.services.UserAlreadyExistsException;
+import com.amusementpark.services.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.concurrent.RejectedExecutionException;
+
 @RestController
 @RequestMapping("/api/users")
 public class UserController {
     @Autowired
-    private UserRepository userRepository;
+    private UserService userService;
 
     @PostMapping("/register")
     public ResponseEntity<?> register(@RequestBody User user) {
-        if (userRepository.findByUsername(user.getUsername()) != null) {
-            return ResponseEntity.badRequest().body("Username already exists");
+        if (user.getPassword() == null || user.getPassword().isEmpty()) {
+            return ResponseEntity.badRequest().body("Password is required");
         }
-        if (userRepository.findByEmail(user.getEmail()) != null) {
-            return ResponseEntity.badRequest().body("Email already exists");
+        try {
+            userService.register(user.getUsername(), user.getEmail(), user.getPassword());
+        } catch (UserAlreadyExistsException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("Too many requests, please try again in a moment");
         }
-        userRepository.save(user);
         return ResponseEntity.ok("User registered successfully");
     }
 
     @PostMapping("/login")
     public ResponseEntity<?> login(@RequestBody User user) {
-        User existingUser = userRepository.findByUsername(user.getUsername());
-        if (existingUser == null || !existingUser.getPassword().equals(user.getPassword())) {
+        User existingUser;
+        try {
+            existingUser = user.getPassword() != null ? userService.authenticate(user.getUsername(), user.getPassword()) : null;
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("Too many login attempts in progress, please try again in a moment");
+        }
+        if (existingUser == null) {
             return ResponseEntity.badRequest().body("Invalid username or password");
         }
+        // Never send the password hash back
+        existingUser.setPassword(null);
         return ResponseEntity.ok(existingUser);
     }
-}
\ No newline at end of file
+}
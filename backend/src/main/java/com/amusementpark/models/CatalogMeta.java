@@ -0,0 +1,35 @@
+package com.amusementpark.models;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import java.time.LocalDateTime;
+
+/**
+ * Which catalog resource was last imported into the rides and ticket_types collections
+ */
+@Data
+@Document(collection = "catalog_meta")
+public class CatalogMeta {
+
+    public static final String ID = "catalog";
+
+    @Id
+    private String id;
+
+    private int version; // The "version" field of the imported resource
+
+    private String contentHash; // SHA-256 of the resource, hex encoded
+
+    private LocalDateTime importedAt;
+
+    public CatalogMeta() {
+    }
+
+    public CatalogMeta(int version, String contentHash) {
+        this.id = ID;
+        this.version = version;
+        this.contentHash = contentHash;
+        this.importedAt = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,45 @@
+package com.amusementpark.models;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.mapping.Document;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Up to chat.archive.bucket-size archived chat messages of one user from one calendar
+ * month. A month with more messages spans several buckets, which cover consecutive,
+ * non-overlapping time ranges.
+ */
+@Data
+@Document(collection = "chat_archive")
+@CompoundIndexes({
+    @CompoundIndex(name = "userId_firstTimestamp", def = "{'userId': 1, 'firstTimestamp': 1}"),
+    @CompoundIndex(name = "userId_lastTimestamp", def = "{'userId': 1, 'lastTimestamp': 1}")
+})
+public class ChatArchiveBucket {
+    @Id
+    private String id;
+
+    private String userId;
+
+    private String month; // e.g. "2025-06"
+
+    private int count; // Number of messages, a bucket is full at the configured size
+
+    private LocalDateTime firstTimestamp;
+
+    private LocalDateTime lastTimestamp;
+
+    private String lastMessageId; // With lastTimestamp, the position of the newest message
+
+    // In the order they were archived, sorted by timestamp when read
+    private List<ChatMessage> messages;
+
+    public ChatArchiveBucket() {
+        this.messages = new ArrayList<>();
+    }
+}
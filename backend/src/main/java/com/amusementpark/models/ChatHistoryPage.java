@@ -0,0 +1,18 @@
+package com.amusementpark.models;
+
+import lombok.Data;
+import java.util.List;
+
+/**
+ * One page of a user's chat history
+ */
+@Data
+public class ChatHistoryPage {
+    private List<ChatMessage> messages;
+    private String nextCursor; // null when there are no more messages
+
+    public ChatHistoryPage(List<ChatMessage> messages, String nextCursor) {
+        this.messages = messages;
+        this.nextCursor = nextCursor;
+    }
+}
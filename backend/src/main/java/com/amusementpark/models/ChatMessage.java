@@ -2,11 +2,13 @@ package com.amusementpark.models;
 
 import lombok.Data;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.mapping.Document;
 import java.time.LocalDateTime;
 
 @Data
 @Document(collection = "chat_messages")
+@CompoundIndex(name = "userId_timestamp", def = "{'userId': 1, 'timestamp': 1, '_id': 1}")
 public class ChatMessage {
     @Id
     private String id;
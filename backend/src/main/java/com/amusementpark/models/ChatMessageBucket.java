@@ -0,0 +1,42 @@
+package com.amusementpark.models;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.mapping.Document;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Up to chat.storage.bucket-size chat messages of one user from one day, used instead of
+ * one document per message when chat.storage.mode is "buckets"
+ */
+@Data
+@Document(collection = "chat_message_buckets")
+@CompoundIndexes({
+    @CompoundIndex(name = "userId_day", def = "{'userId': 1, 'day': 1}"),
+    @CompoundIndex(name = "userId_lastTimestamp", def = "{'userId': 1, 'lastTimestamp': 1}")
+})
+public class ChatMessageBucket {
+    @Id
+    private String id;
+
+    private String userId;
+
+    private String day; // e.g. "2025-06-14"
+
+    private int count; // Number of messages, a bucket is full at the configured size
+
+    private LocalDateTime firstTimestamp;
+
+    private LocalDateTime lastTimestamp; // Also expires the bucket through a TTL index
+
+    // In the order they were written
+    private List<ChatMessage> messages;
+
+    public ChatMessageBucket() {
+        this.messages = new ArrayList<>();
+    }
+}
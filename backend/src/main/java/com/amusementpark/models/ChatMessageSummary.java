@@ -0,0 +1,13 @@
+package com.amusementpark.models;
+
+import java.time.LocalDateTime;
+
+/**
+ * A chat message without the user ID, which every message of a history response repeats
+ */
+public record ChatMessageSummary(String id, String sender, String message, LocalDateTime timestamp) {
+
+    public static ChatMessageSummary of(ChatMessage message) {
+        return new ChatMessageSummary(message.getId(), message.getSender(), message.getMessage(), message.getTimestamp());
+    }
+}
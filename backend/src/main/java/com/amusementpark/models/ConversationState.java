@@ -2,6 +2,7 @@ package com.amusementpark.models;
 
 import lombok.Data;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 import java.time.LocalDateTime;
 import java.util.HashMap;
@@ -13,14 +14,20 @@ import java.util.List;    // Added import
 @Data
 @Document(collection = "conversation_states")
 public class ConversationState {
+
+    // Sender tags of the compact history entries
+    public static final char USER_ENTRY = 'U';
+    public static final char BOT_ENTRY = 'B';
+
     @Id
     private String id;
+    @Indexed(unique = true)
     private String userId;
     private String currentTopic; // Current conversation topic (e.g., "tickets", "rides", "food")
     private Map<String, Object> contextData; // Stores conversation context data
     private LocalDateTime lastUpdated;
     private int conversationStep; // Tracks the step in a multi-turn conversation
-    private List<String> history; // Added field for chat history
+    private List<String> history; // Most recent turns only, see addToHistory for the encoding
     private long lastInteractionTime; // Added field for last interaction timestamp (milliseconds)
 
     public ConversationState() {
@@ -38,6 +45,23 @@ public class ConversationState {
         this.history = new ArrayList<>(); // Initialize history
     }
     
+    /**
+     * Copy the state so it can be written back while turns keep changing the original.
+     * The context values themselves are shared, they are replaced rather than modified.
+     * @return A copy with its own context map and history list
+     */
+    public ConversationState copy() {
+        ConversationState copy = new ConversationState(this.userId);
+        copy.id = this.id;
+        copy.currentTopic = this.currentTopic;
+        copy.contextData = new HashMap<>(this.contextData);
+        copy.lastUpdated = this.lastUpdated;
+        copy.conversationStep = this.conversationStep;
+        copy.history = this.history != null ? new ArrayList<>(this.history) : new ArrayList<>();
+        copy.lastInteractionTime = this.lastInteractionTime;
+        return copy;
+    }
+
     /**
      * Store a value in the context data
      * @param key The context key
@@ -92,15 +116,33 @@ public class ConversationState {
     }
 
     /**
-     * Adds a message to the conversation history.
-     * The history list is initialized in the constructors.
+     * Adds a message to the conversation history, keeping only the most recent entries.
+     * Entries are stored compactly as a one-character sender tag ({@link #USER_ENTRY} or
+     * {@link #BOT_ENTRY}) followed by the text cut to maxEntryLength, so the document
+     * stays the same size however long the conversation gets. The full messages live in
+     * the chat_messages collection.
+     * @param sender USER_ENTRY or BOT_ENTRY
      * @param message The message to add.
+     * @param maxEntries Number of entries to keep
+     * @param maxEntryLength Maximum number of characters kept per message
      */
-    public void addToHistory(String message) {
+    public void addToHistory(char sender, String message, int maxEntries, int maxEntryLength) {
         if (this.history == null) { // Defensive check, constructors should initialize.
             this.history = new ArrayList<>();
         }
-        this.history.add(message);
+        String text = message;
+        if (message.length() > maxEntryLength) {
+            int end = maxEntryLength;
+            if (Character.isHighSurrogate(message.charAt(end - 1))) {
+                end--; // Don't split an emoji in half
+            }
+            text = message.substring(0, end);
+        }
+        this.history.add(sender + text);
+        int overflow = this.history.size() - maxEntries;
+        if (overflow > 0) {
+            this.history.subList(0, overflow).clear();
+        }
     }
 
     // Note: Lombok's @Data annotation will automatically generate getters and setters
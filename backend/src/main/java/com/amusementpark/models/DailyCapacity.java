@@ -0,0 +1,26 @@
+package com.amusementpark.models;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Number of tickets reserved for one visit date
+ */
+@Data
+@Document(collection = "daily_capacity")
+public class DailyCapacity {
+    @Id
+    private String id; // Visit date, e.g. "2025-06-14"
+    
+    private int reserved;
+    
+    // Map of ticketTypeId to tickets reserved
+    private Map<String, Integer> reservedByType;
+    
+    public DailyCapacity() {
+        this.reservedByType = new HashMap<>();
+    }
+}
@@ -0,0 +1,44 @@
+package com.amusementpark.models;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import java.time.LocalDateTime;
+
+/**
+ * Outcome of a booking request sent with an Idempotency-Key header
+ */
+@Data
+@Document(collection = "idempotency_keys")
+public class IdempotencyRecord {
+
+    public static final String PENDING = "PENDING";
+    public static final String COMPLETED = "COMPLETED";
+
+    @Id
+    private String key; // User ID and Idempotency-Key header value, e.g. "<userId>:<key>"
+
+    private String userId;
+
+    private String requestHash; // SHA-256 of the request body, a reused key must send the same body
+
+    private String status; // "PENDING" while the booking runs, then "COMPLETED"
+
+    private LocalDateTime pendingUntil; // A PENDING record older than this was abandoned and may be taken over
+
+    private Ticket ticket; // The booked ticket, returned again on retries
+
+    private LocalDateTime createdAt; // Expired by a TTL index
+
+    public IdempotencyRecord() {
+    }
+
+    public IdempotencyRecord(String key, String userId, String requestHash, LocalDateTime pendingUntil) {
+        this.key = key;
+        this.userId = userId;
+        this.requestHash = requestHash;
+        this.status = PENDING;
+        this.pendingUntil = pendingUntil;
+        this.createdAt = LocalDateTime.now();
+    }
+}
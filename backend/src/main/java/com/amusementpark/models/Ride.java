@@ -2,6 +2,7 @@ package com.amusementpark.models;
 
 import lombok.Data;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 @Data
@@ -9,8 +10,10 @@ import org.springframework.data.mongodb.core.mapping.Document;
 public class Ride {
     @Id
     private String id;
+    @Indexed
     private String name;
     private String description;
+    @Indexed
     private String category; // "THRILL", "FAMILY", "KIDS", "THEMED"
     private String imageUrl;
     private boolean isActive;
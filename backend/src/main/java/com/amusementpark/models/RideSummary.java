@@ -0,0 +1,11 @@
+package com.amusementpark.models;
+
+/**
+ * The fields of a ride shown in ride lists, without the description
+ */
+public record RideSummary(String id, String name, String category, String imageUrl) {
+
+    public static RideSummary of(Ride ride) {
+        return new RideSummary(ride.getId(), ride.getName(), ride.getCategory(), ride.getImageUrl());
+    }
+}
@@ -2,6 +2,7 @@ package com.amusementpark.models;
 
 import lombok.Data;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.mapping.Document;
 import java.time.LocalDateTime;
 import java.util.List;
@@ -9,6 +10,7 @@ import java.util.Map;
 
 @Data
 @Document(collection = "tickets")
+@CompoundIndex(name = "userId_visitDate", def = "{'userId': 1, 'visitDate': 1}")
 public class Ticket {
     @Id
     private String id;
@@ -0,0 +1,11 @@
+package com.amusementpark.models;
+
+import java.time.LocalDateTime;
+
+/**
+ * The fields of a ticket shown in ticket lists. Used as a repository projection, so the
+ * contact details and the ticket type breakdown are not read from the database.
+ */
+public record TicketSummary(String id, LocalDateTime visitDate, LocalDateTime bookingDate,
+                            int totalRidesAllowed, double totalPrice, String status) {
+}
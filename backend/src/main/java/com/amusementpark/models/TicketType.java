@@ -14,6 +14,7 @@ public class TicketType {
     private int rideLimit;
     private double price;
     private boolean freeForChildren; // Free for children below 2.5 ft
+    private int dailyCapacity; // Maximum tickets of this type per visit date, 0 for no limit
     
     // Default constructor
     public TicketType() {}
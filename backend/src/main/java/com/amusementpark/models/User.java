@@ -17,7 +17,7 @@ public class User {
     @Indexed(unique = true)
     private String username;
     
-    private String password; // This would be stored hashed in a real application
+    private String password; // bcrypt hash, plaintext for users who have not logged in since hashing was introduced
     
     @Indexed(unique = true)
     private String email;
@@ -1,12 +1,65 @@
 package com.amusementpark.repositories;
 
 import com.amusementpark.models.ChatMessage;
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface ChatMessageRepository extends MongoRepository<ChatMessage, String> {
     List<ChatMessage> findByUserIdOrderByTimestampAsc(String userId);
-}
\ No newline at end of file
+
+    /**
+     * Find the first page of a user's messages, oldest first
+     * @param userId The user ID
+     * @param pageable Page size, the page number must be 0
+     * @return The messages of the page
+     */
+    List<ChatMessage> findByUserIdOrderByTimestampAscIdAsc(String userId, Pageable pageable);
+
+    /**
+     * Find the page of a user's messages following the given (timestamp, id) position, oldest first
+     * @param userId The user ID
+     * @param timestamp Timestamp of the last message of the previous page
+     * @param id ID of the last message of the previous page
+     * @param pageable Page size, the page number must be 0
+     * @return The messages of the page
+     */
+    @Query(value = "{ 'userId': ?0, '$or': [ { 'timestamp': { '$gt': ?1 } }, { 'timestamp': ?1, '_id': { '$gt': ?2 } } ] }",
+           sort = "{ 'timestamp': 1, '_id': 1 }")
+    List<ChatMessage> findPageAfter(String userId, LocalDateTime timestamp, ObjectId id, Pageable pageable);
+
+    /**
+     * Find a user's most recent messages, newest first
+     * @param userId The user ID
+     * @param pageable Number of messages to return, the page number must be 0
+     * @return The most recent messages
+     */
+    List<ChatMessage> findByUserIdOrderByTimestampDesc(String userId, Pageable pageable);
+
+    /**
+     * Stream all messages of a user, oldest first, without loading them all into memory.
+     * The stream holds a database cursor and must be closed.
+     * @param userId The user ID
+     * @return Stream of messages
+     */
+    Stream<ChatMessage> streamByUserIdOrderByTimestampAsc(String userId);
+
+    /**
+     * Stream all messages of a user following the given (timestamp, id) position, oldest first.
+     * The stream holds a database cursor and must be closed.
+     * @param userId The user ID
+     * @param timestamp Timestamp of the last message already read
+     * @param id ID of the last message already read
+     * @return Stream of messages
+     */
+    @Query(value = "{ 'userId': ?0, '$or': [ { 'timestamp': { '$gt': ?1 } }, { 'timestamp': ?1, '_id': { '$gt': ?2 } } ] }",
+           sort = "{ 'timestamp': 1, '_id': 1 }")
+    Stream<ChatMessage> streamAfter(String userId, LocalDateTime timestamp, ObjectId id);
+}
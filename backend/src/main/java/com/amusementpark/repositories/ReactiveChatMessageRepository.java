@@ -0,0 +1,35 @@
+package com.amusementpark.repositories;
+
+import com.amusementpark.models.ChatMessage;
+import org.bson.types.ObjectId;
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+
+import java.time.LocalDateTime;
+
+/**
+ * Non-blocking access to chat messages, used by the reactive chat endpoint
+ */
+@Repository
+public interface ReactiveChatMessageRepository extends ReactiveMongoRepository<ChatMessage, String> {
+
+    /**
+     * Find all messages of a user, oldest first
+     * @param userId The user ID
+     * @return The messages as they are read from the cursor
+     */
+    Flux<ChatMessage> findByUserIdOrderByTimestampAsc(String userId);
+
+    /**
+     * Find all messages of a user following the given (timestamp, id) position, oldest first
+     * @param userId The user ID
+     * @param timestamp Timestamp of the last message already read
+     * @param id ID of the last message already read
+     * @return The messages as they are read from the cursor
+     */
+    @Query(value = "{ 'userId': ?0, '$or': [ { 'timestamp': { '$gt': ?1 } }, { 'timestamp': ?1, '_id': { '$gt': ?2 } } ] }",
+           sort = "{ 'timestamp': 1, '_id': 1 }")
+    Flux<ChatMessage> findAfter(String userId, LocalDateTime timestamp, ObjectId id);
+}
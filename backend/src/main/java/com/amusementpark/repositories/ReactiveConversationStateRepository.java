@@ -0,0 +1,20 @@
+package com.amusementpark.repositories;
+
+import com.amusementpark.models.ConversationState;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking access to conversation states, used by the reactive chat endpoint
+ */
+@Repository
+public interface ReactiveConversationStateRepository extends ReactiveMongoRepository<ConversationState, String> {
+
+    /**
+     * Find conversation state by user ID
+     * @param userId The user ID
+     * @return The conversation state for the user, empty if there is none
+     */
+    Mono<ConversationState> findByUserId(String userId);
+}
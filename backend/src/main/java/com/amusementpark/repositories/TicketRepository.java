@@ -1,6 +1,7 @@
 package com.amusementpark.repositories;
 
 import com.amusementpark.models.Ticket;
+import com.amusementpark.models.TicketSummary;
 
 import java.util.List;
 
@@ -10,4 +11,11 @@ import org.springframework.stereotype.Repository;
 @Repository
 public interface TicketRepository extends MongoRepository<Ticket, String> {
     List<Ticket> findByUserId(String userId);
+
+    /**
+     * Find the tickets of a user, reading only the fields of the summary
+     * @param userId The user ID
+     * @return The ticket summaries
+     */
+    List<TicketSummary> findSummariesByUserId(String userId);
 }
\ No newline at end of file
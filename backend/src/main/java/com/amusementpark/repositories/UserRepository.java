@@ -23,4 +23,11 @@ public interface UserRepository extends MongoRepository<User, String> {
      * @return The user if found, null otherwise
      */
     User findByEmail(String email);
+    
+    /**
+     * Check whether a username is taken, without loading the user
+     * @param username The username to check
+     * @return true if a user has this username
+     */
+    boolean existsByUsername(String username);
 }
\ No newline at end of file
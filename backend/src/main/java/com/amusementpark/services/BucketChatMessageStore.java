@@ -0,0 +1,249 @@
+package com.amusementpark.services;
+
+import com.amusementpark.models.ChatMessage;
+import com.amusementpark.models.ChatMessageBucket;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Stores chat messages in chat_message_buckets, appending the messages of a user and day
+ * with $push to a bucket document until it holds chat.storage.bucket-size messages. A chat
+ * turn is then one update instead of two inserts, the indexes have one entry per bucket
+ * instead of per message, and reading a conversation fetches a few documents.
+ *
+ * Buckets of a user are filled one after another, so they are read in the order of their
+ * last message; a bucket that starts after the messages already collected ends the read.
+ * Two writers racing to open a new bucket for the same user and day may both create one,
+ * which only means an extra, smaller bucket.
+ */
+@Service
+@ConditionalOnProperty(name = "chat.storage.mode", havingValue = "buckets")
+public class BucketChatMessageStore implements ChatMessageStore {
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ReactiveMongoTemplate reactiveMongoTemplate;
+
+    @Value("${chat.storage.bucket-size:200}")
+    private int bucketSize;
+
+    @Override
+    public void insert(List<ChatMessage> messages) {
+        Map<String, List<ChatMessage>> byBucket = new LinkedHashMap<>();
+        for (ChatMessage message : messages) {
+            byBucket.computeIfAbsent(message.getUserId() + "_" + day(message), key -> new ArrayList<>()).add(message);
+        }
+
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.ORDERED, ChatMessageBucket.class);
+        for (List<ChatMessage> group : byBucket.values()) {
+            for (int start = 0; start < group.size(); start += bucketSize) {
+                List<ChatMessage> chunk = group.subList(start, Math.min(group.size(), start + bucketSize));
+                bulk.upsert(appendQuery(chunk), appendUpdate(chunk));
+            }
+        }
+        bulk.execute();
+    }
+
+    @Override
+    public Mono<ChatMessage> insertReactive(ChatMessage message) {
+        if (message.getId() == null) {
+            message.setId(new ObjectId().toHexString());
+        }
+        List<ChatMessage> chunk = List.of(message);
+        return reactiveMongoTemplate.upsert(appendQuery(chunk), appendUpdate(chunk), ChatMessageBucket.class)
+                .thenReturn(message);
+    }
+
+    @Override
+    public List<ChatMessage> findAfter(String userId, ChatMessage after, int limit) {
+        List<ChatMessage> page = new ArrayList<>();
+        try (Stream<ChatMessageBucket> buckets = mongoTemplate.stream(bucketsAfter(userId, after), ChatMessageBucket.class)) {
+            Iterator<ChatMessageBucket> it = buckets.iterator();
+            while (it.hasNext()) {
+                ChatMessageBucket bucket = it.next();
+                if (page.size() == limit && bucket.getFirstTimestamp().isAfter(page.get(limit - 1).getTimestamp())) {
+                    break;
+                }
+                page.addAll(messagesAfter(bucket, after));
+                page.sort(ChatArchiveService.POSITION);
+                if (page.size() > limit) {
+                    page.subList(limit, page.size()).clear();
+                }
+            }
+        }
+        return page;
+    }
+
+    @Override
+    public List<ChatMessage> findLatest(String userId, int limit) {
+        Query query = new Query(Criteria.where("userId").is(userId))
+                .with(Sort.by(Sort.Direction.DESC, "lastTimestamp"));
+
+        List<ChatMessage> page = new ArrayList<>();
+        try (Stream<ChatMessageBucket> buckets = mongoTemplate.stream(query, ChatMessageBucket.class)) {
+            Iterator<ChatMessageBucket> it = buckets.iterator();
+            while (it.hasNext()) {
+                ChatMessageBucket bucket = it.next();
+                if (page.size() == limit && bucket.getLastTimestamp().isBefore(page.get(limit - 1).getTimestamp())) {
+                    break;
+                }
+                page.addAll(bucket.getMessages());
+                page.sort(ChatArchiveService.POSITION.reversed());
+                if (page.size() > limit) {
+                    page.subList(limit, page.size()).clear();
+                }
+            }
+        }
+        return page;
+    }
+
+    @Override
+    public Stream<ChatMessage> streamAfter(String userId, ChatMessage after) {
+        return mongoTemplate.stream(bucketsAfter(userId, after), ChatMessageBucket.class)
+                .flatMap(bucket -> messagesAfter(bucket, after).stream());
+    }
+
+    @Override
+    public Flux<ChatMessage> findAfterReactive(String userId, ChatMessage after) {
+        return reactiveMongoTemplate.find(bucketsAfter(userId, after), ChatMessageBucket.class)
+                .concatMapIterable(bucket -> messagesAfter(bucket, after));
+    }
+
+    @Override
+    public List<ChatMessage> findOlderThan(LocalDateTime cutoff, int limit) {
+        // Whole buckets, so archiving them through remove() empties and deletes each bucket
+        Query oldest = new Query(Criteria.where("lastTimestamp").lt(cutoff)).with(Sort.by("lastTimestamp"));
+        List<ChatMessage> messages = new ArrayList<>();
+        try (Stream<ChatMessageBucket> buckets = mongoTemplate.stream(oldest, ChatMessageBucket.class)) {
+            Iterator<ChatMessageBucket> it = buckets.iterator();
+            while (it.hasNext() && messages.size() < limit) {
+                messages.addAll(it.next().getMessages());
+            }
+        }
+        messages.sort(ChatArchiveService.POSITION);
+        return messages;
+    }
+
+    @Override
+    public void remove(List<ChatMessage> messages) {
+        if (messages.isEmpty()) {
+            return;
+        }
+        Set<String> userIds = messages.stream().map(ChatMessage::getUserId).collect(Collectors.toSet());
+        LocalDateTime newest = Collections.max(messages, ChatArchiveService.POSITION).getTimestamp();
+        List<ObjectId> ids = messages.stream().map(message -> new ObjectId(message.getId())).toList();
+        Set<ObjectId> removed = new HashSet<>(ids);
+
+        // Look up which bucket holds which messages, so each bucket's count goes down by
+        // the number pulled out of it and appends keep seeing the room that is left
+        Query holding = new Query(Criteria.where("userId").in(userIds).and("lastTimestamp").lte(newest)
+                .and("messages._id").in(ids));
+        holding.fields().include("messages._id");
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ChatMessageBucket.class);
+        List<String> bucketIds = new ArrayList<>();
+        for (ChatMessageBucket bucket : mongoTemplate.find(holding, ChatMessageBucket.class)) {
+            List<ObjectId> pulled = bucket.getMessages().stream()
+                    .map(message -> new ObjectId(message.getId()))
+                    .filter(removed::contains)
+                    .toList();
+            // Only matches while all of them are still there, so two runs removing the
+            // same messages do not decrement the count twice
+            bulk.updateOne(new Query(Criteria.where("_id").is(bucket.getId()).and("messages._id").all(pulled)),
+                    new Update().pull("messages", new Document("_id", new Document("$in", pulled)))
+                            .inc("count", -pulled.size()));
+            bucketIds.add(bucket.getId());
+        }
+        if (bucketIds.isEmpty()) {
+            return;
+        }
+        bulk.execute();
+        mongoTemplate.remove(new Query(Criteria.where("_id").in(bucketIds).and("messages").size(0)), ChatMessageBucket.class);
+    }
+
+    @Override
+    public void expireAfter(Duration ttl) {
+        mongoTemplate.indexOps(ChatMessageBucket.class).ensureIndex(
+                new Index().on("lastTimestamp", Sort.Direction.ASC).expire(ttl).named("lastTimestamp_ttl"));
+    }
+
+    /**
+     * Matches an open bucket of the chunk's user and day with room for the whole chunk
+     */
+    private Query appendQuery(List<ChatMessage> chunk) {
+        ChatMessage first = chunk.get(0);
+        return new Query(Criteria.where("userId").is(first.getUserId())
+                .and("day").is(day(first))
+                .and("count").lte(bucketSize - chunk.size()));
+    }
+
+    private Update appendUpdate(List<ChatMessage> chunk) {
+        Object[] documents = new Object[chunk.size()];
+        LocalDateTime firstTimestamp = chunk.get(0).getTimestamp();
+        LocalDateTime lastTimestamp = firstTimestamp;
+        for (int i = 0; i < chunk.size(); i++) {
+            Document document = new Document();
+            mongoTemplate.getConverter().write(chunk.get(i), document);
+            documents[i] = document;
+            LocalDateTime timestamp = chunk.get(i).getTimestamp();
+            firstTimestamp = timestamp.isBefore(firstTimestamp) ? timestamp : firstTimestamp;
+            lastTimestamp = timestamp.isAfter(lastTimestamp) ? timestamp : lastTimestamp;
+        }
+        return new Update()
+                .push("messages").each(documents)
+                .inc("count", chunk.size())
+                .min("firstTimestamp", firstTimestamp)
+                .max("lastTimestamp", lastTimestamp);
+    }
+
+    private static Query bucketsAfter(String userId, ChatMessage after) {
+        Criteria criteria = Criteria.where("userId").is(userId);
+        if (after != null) {
+            criteria = criteria.and("lastTimestamp").gte(after.getTimestamp());
+        }
+        return new Query(criteria).with(Sort.by("lastTimestamp"));
+    }
+
+    private static List<ChatMessage> messagesAfter(ChatMessageBucket bucket, ChatMessage after) {
+        List<ChatMessage> messages = new ArrayList<>(bucket.getMessages().size());
+        for (ChatMessage message : bucket.getMessages()) {
+            if (after == null || ChatArchiveService.POSITION.compare(message, after) > 0) {
+                messages.add(message);
+            }
+        }
+        messages.sort(ChatArchiveService.POSITION);
+        return messages;
+    }
+
+    private static String day(ChatMessage message) {
+        return message.getTimestamp().toLocalDate().toString();
+    }
+}
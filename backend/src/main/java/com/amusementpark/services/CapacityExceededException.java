@@ -0,0 +1,13 @@
+package com.amusementpark.services;
+
+/**
+ * Thrown when a booking would exceed the capacity of its visit date
+ */
+public class CapacityExceededException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public CapacityExceededException(String message) {
+        super(message);
+    }
+}
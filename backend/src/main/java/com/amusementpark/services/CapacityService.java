@@ -0,0 +1,251 @@
+package com.amusementpark.services;
+
+import com.amusementpark.models.DailyCapacity;
+import com.amusementpark.models.TicketType;
+import com.mongodb.client.result.UpdateResult;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tracks how many tickets are reserved per visit date, overall and per ticket type.
+ * Reservations are first taken from in-memory counters with compare-and-set, so
+ * concurrent bookings for the same date never wait on a lock and a full date is
+ * usually rejected without a database call. Admitted reservations are then made durable
+ * with a conditional $inc that only matches while capacity remains, which also keeps
+ * several backend nodes from overselling together.
+ *
+ * A capacity of 0, for the park or for a ticket type, means no limit.
+ */
+@Service
+public class CapacityService {
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Value("${park.capacity.daily:5000}")
+    private int parkDailyCapacity;
+
+    private final Map<LocalDate, DayInventory> days = new ConcurrentHashMap<>();
+
+    /**
+     * One reservation count. Tickets taken here but not yet written to the database, or
+     * given back, are also kept as pending, so the count can be reset to the stored count
+     * plus the pending tickets without losing reservations that are in flight.
+     */
+    private static final class Counter {
+        private final AtomicInteger reserved = new AtomicInteger();
+        private final AtomicInteger pending = new AtomicInteger();
+
+        private boolean tryAcquire(int quantity, int capacity) {
+            // Pending first, so a concurrent refresh never drops an acquired ticket
+            pending.addAndGet(quantity);
+            while (true) {
+                int current = reserved.get();
+                if (capacity > 0 && current + quantity > capacity) {
+                    pending.addAndGet(-quantity);
+                    return false;
+                }
+                if (reserved.compareAndSet(current, current + quantity)) {
+                    return true;
+                }
+            }
+        }
+
+        private void confirm(int quantity) {
+            pending.addAndGet(-quantity);
+        }
+
+        private void rollback(int quantity) {
+            reserved.addAndGet(-quantity);
+            pending.addAndGet(-quantity);
+        }
+
+        private void refresh(int stored) {
+            reserved.set(stored + pending.get());
+        }
+    }
+
+    /**
+     * In-memory view of one date. Reservations of other nodes are missing from it and
+     * tickets they gave back are still counted, so it is refreshed from the database
+     * before a reservation is rejected. Counters are refreshed in place, the instance
+     * is never replaced while reservations run against it.
+     */
+    private static final class DayInventory {
+        private final Counter reserved = new Counter();
+        private final Map<String, Counter> reservedByType = new ConcurrentHashMap<>();
+
+        private Counter forType(String ticketTypeId) {
+            return reservedByType.computeIfAbsent(ticketTypeId, id -> new Counter());
+        }
+
+        private void refresh(DailyCapacity stored) {
+            reserved.refresh(stored.getReserved());
+            Map<String, Integer> storedByType = stored.getReservedByType();
+            storedByType.keySet().forEach(this::forType);
+            reservedByType.forEach((ticketTypeId, counter) ->
+                    counter.refresh(storedByType.getOrDefault(ticketTypeId, 0)));
+        }
+    }
+
+    /**
+     * Reserve tickets for a visit date
+     * @param date The visit date
+     * @param quantities Map of ticketTypeId to quantity
+     * @param ticketTypes The resolved ticket types, used for the per-type capacities
+     * @throws CapacityExceededException if the date or one of the ticket types is sold out
+     */
+    public void reserve(LocalDate date, Map<String, Integer> quantities, Map<String, TicketType> ticketTypes) {
+        int total = quantities.values().stream().mapToInt(Integer::intValue).sum();
+        if (total <= 0) {
+            return;
+        }
+        DayInventory day = day(date);
+
+        // 1. Take the tickets from the in-memory counters, re-read before saying no
+        String rejection = tryAcquire(day, date, total, quantities, ticketTypes);
+        if (rejection != null) {
+            refresh(date, day);
+            rejection = tryAcquire(day, date, total, quantities, ticketTypes);
+            if (rejection != null) {
+                throw new CapacityExceededException(rejection);
+            }
+        }
+
+        // 2. Make the reservation durable, only if the stored counts still leave room
+        Criteria criteria = Criteria.where("_id").is(date.toString());
+        if (parkDailyCapacity > 0) {
+            criteria.and("reserved").lte(parkDailyCapacity - total);
+        }
+        Update update = new Update().inc("reserved", total);
+        for (Map.Entry<String, Integer> entry : quantities.entrySet()) {
+            String field = "reservedByType." + entry.getKey();
+            int capacity = capacityOf(ticketTypes.get(entry.getKey()));
+            if (capacity > 0) {
+                // $not/$gt also matches documents where the field does not exist yet
+                criteria.and(field).not().gt(capacity - entry.getValue());
+            }
+            update.inc(field, entry.getValue());
+        }
+        UpdateResult result;
+        try {
+            result = mongoTemplate.updateFirst(new Query(criteria), update, DailyCapacity.class);
+        } catch (RuntimeException e) {
+            rollback(day, total, quantities);
+            throw e;
+        }
+        if (result.getModifiedCount() == 0) {
+            rollback(day, total, quantities);
+            // Other nodes took the remaining tickets, pick up their reservations
+            refresh(date, day);
+            throw new CapacityExceededException("Not enough tickets left on " + date);
+        }
+        day.reserved.confirm(total);
+        quantities.forEach((ticketTypeId, quantity) -> day.forType(ticketTypeId).confirm(quantity));
+    }
+
+    /**
+     * Give back tickets reserved with {@link #reserve}, e.g. when the booking could not be saved
+     * @param date The visit date
+     * @param quantities Map of ticketTypeId to quantity
+     */
+    public void release(LocalDate date, Map<String, Integer> quantities) {
+        int total = quantities.values().stream().mapToInt(Integer::intValue).sum();
+        if (total <= 0) {
+            return;
+        }
+        DayInventory day = days.get(date);
+        if (day != null) {
+            day.reserved.reserved.addAndGet(-total);
+            quantities.forEach((ticketTypeId, quantity) -> day.forType(ticketTypeId).reserved.addAndGet(-quantity));
+        }
+        Update update = new Update().inc("reserved", -total);
+        quantities.forEach((ticketTypeId, quantity) -> update.inc("reservedByType." + ticketTypeId, -quantity));
+        mongoTemplate.updateFirst(new Query(Criteria.where("_id").is(date.toString())), update, DailyCapacity.class);
+    }
+
+    /**
+     * Get the number of tickets still available for a visit date
+     * @param date The visit date
+     * @return Remaining park capacity as seen by this node, Integer.MAX_VALUE without a park limit
+     */
+    public int getRemaining(LocalDate date) {
+        if (parkDailyCapacity <= 0) {
+            return Integer.MAX_VALUE;
+        }
+        return parkDailyCapacity - day(date).reserved.reserved.get();
+    }
+
+    /**
+     * Loaded outside of computeIfAbsent, which would hold a map bin lock during the
+     * database calls and pin the carrier when running on a virtual thread
+     */
+    private DayInventory day(LocalDate date) {
+        DayInventory day = days.get(date);
+        if (day == null) {
+            String id = date.toString();
+            // Create the document once so the conditional updates never need to upsert
+            mongoTemplate.upsert(new Query(Criteria.where("_id").is(id)),
+                    new Update().setOnInsert("reserved", 0), DailyCapacity.class);
+            DayInventory loaded = new DayInventory();
+            loaded.refresh(stored(date));
+            day = days.putIfAbsent(date, loaded);
+            if (day == null) {
+                day = loaded;
+            }
+        }
+        return day;
+    }
+
+    private void refresh(LocalDate date, DayInventory day) {
+        day.refresh(stored(date));
+    }
+
+    private DailyCapacity stored(LocalDate date) {
+        DailyCapacity stored = mongoTemplate.findById(date.toString(), DailyCapacity.class);
+        return stored != null ? stored : new DailyCapacity();
+    }
+
+    /**
+     * Take the tickets from the counters of a date, all or none
+     * @return null if they were taken, otherwise why not
+     */
+    private String tryAcquire(DayInventory day, LocalDate date, int total,
+                              Map<String, Integer> quantities, Map<String, TicketType> ticketTypes) {
+        if (!day.reserved.tryAcquire(total, parkDailyCapacity)) {
+            return "The park is sold out on " + date;
+        }
+        List<Map.Entry<String, Integer>> acquired = new ArrayList<>();
+        for (Map.Entry<String, Integer> entry : quantities.entrySet()) {
+            int capacity = capacityOf(ticketTypes.get(entry.getKey()));
+            if (!day.forType(entry.getKey()).tryAcquire(entry.getValue(), capacity)) {
+                day.reserved.rollback(total);
+                acquired.forEach(taken -> day.forType(taken.getKey()).rollback(taken.getValue()));
+                return ticketTypes.get(entry.getKey()).getName() + " tickets are sold out on " + date;
+            }
+            acquired.add(entry);
+        }
+        return null;
+    }
+
+    private static void rollback(DayInventory day, int total, Map<String, Integer> quantities) {
+        day.reserved.rollback(total);
+        quantities.forEach((ticketTypeId, quantity) -> day.forType(ticketTypeId).rollback(quantity));
+    }
+
+    private static int capacityOf(TicketType ticketType) {
+        return ticketType != null ? ticketType.getDailyCapacity() : 0;
+    }
+}
@@ -0,0 +1,124 @@
+package com.amusementpark.services;
+
+import com.amusementpark.models.CatalogMeta;
+import com.amusementpark.models.Ride;
+import com.amusementpark.models.TicketType;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Imports rides and ticket types from the catalog resource (catalog.import.resource) at
+ * startup. The SHA-256 of the resource is kept in catalog_meta, so an unchanged catalog
+ * costs a single lookup. A changed one is written with one bulk upsert per collection,
+ * matching entries by name: existing documents keep their IDs, which tickets refer to, and
+ * only the fields present in the resource are overwritten. Entries removed from the
+ * resource are not deleted, since booked tickets may still refer to them.
+ */
+@Service
+public class CatalogImportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CatalogImportService.class);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private CatalogService catalogService;
+
+    @Value("${catalog.import.enabled:true}")
+    private boolean enabled;
+
+    @Value("${catalog.import.resource:classpath:catalog/catalog.json}")
+    private Resource resource;
+
+    @PostConstruct
+    public void importCatalog() {
+        if (!enabled) {
+            return;
+        }
+        byte[] content;
+        try (InputStream in = resource.getInputStream()) {
+            content = in.readAllBytes();
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to read the catalog from " + resource, e);
+        }
+        String hash = sha256(content);
+
+        CatalogMeta imported = mongoTemplate.findById(CatalogMeta.ID, CatalogMeta.class);
+        if (imported != null && hash.equals(imported.getContentHash())) {
+            logger.info("Catalog version {} is already imported", imported.getVersion());
+            return;
+        }
+
+        Document catalog = Document.parse(new String(content, StandardCharsets.UTF_8));
+        int rides = upsertByName(Ride.class, catalog.getList("rides", Document.class, List.of()), Map.of("isActive", true));
+        int ticketTypes = upsertByName(TicketType.class, catalog.getList("ticketTypes", Document.class, List.of()), Map.of());
+
+        CatalogMeta meta = new CatalogMeta(catalog.getInteger("version", 0), hash);
+        mongoTemplate.save(meta);
+        logger.info("Imported catalog version {} with {} rides and {} ticket types", meta.getVersion(), rides, ticketTypes);
+        catalogService.refresh();
+    }
+
+    /**
+     * Write catalog entries with a single unordered bulk write
+     * @param type The entity the entries belong to
+     * @param entries The entries, with the stored field names
+     * @param insertDefaults Values of fields missing from an entry, only used for new documents
+     * @return Number of entries written
+     */
+    private int upsertByName(Class<?> type, List<Document> entries, Map<String, Object> insertDefaults) {
+        if (entries.isEmpty()) {
+            return 0;
+        }
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, type);
+        for (Document entry : entries) {
+            String name = entry.getString("name");
+            if (name == null || name.isBlank()) {
+                throw new IllegalStateException("Catalog entry without a name: " + entry.toJson());
+            }
+            Update update = new Update();
+            entry.forEach((field, value) -> {
+                if (!"_id".equals(field)) {
+                    update.set(field, value);
+                }
+            });
+            insertDefaults.forEach((field, value) -> {
+                if (!entry.containsKey(field)) {
+                    update.setOnInsert(field, value);
+                }
+            });
+            bulk.upsert(new Query(Criteria.where("name").is(name)), update);
+        }
+        bulk.execute();
+        return entries.size();
+    }
+
+    private static String sha256(byte[] content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.amusementpark.services;
+
+import com.amusementpark.models.RideSummary;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Serialized responses of the static catalog endpoints. They are built once per
+ * catalog version, so a request only picks the prebuilt bytes.
+ */
+@Service
+public class CatalogResponseCache {
+
+    private static final Map<String, String> PARK_TIMINGS = Map.of("summer", "11:00 AM - 7:00 PM");
+
+    private static final List<String> IMPORTANT_NOTES = List.of(
+            "Park entry ticket prices are subject to change without prior notice.",
+            "Park timings are subject to change without prior notice."
+    );
+
+    @Autowired
+    private CatalogService catalogService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${catalog.responses.gzip:true}")
+    private boolean gzip;
+
+    private volatile Responses responses;
+
+    private static final class Responses {
+        private final long version;
+        private final PrecomputedResponse rides;
+        private final PrecomputedResponse rideSummaries;
+        private final PrecomputedResponse ridesGrouped;
+        private final PrecomputedResponse ticketTypes;
+        private final PrecomputedResponse ticketInfo;
+
+        private Responses(long version, PrecomputedResponse rides, PrecomputedResponse rideSummaries,
+                          PrecomputedResponse ridesGrouped, PrecomputedResponse ticketTypes,
+                          PrecomputedResponse ticketInfo) {
+            this.version = version;
+            this.rides = rides;
+            this.rideSummaries = rideSummaries;
+            this.ridesGrouped = ridesGrouped;
+            this.ticketTypes = ticketTypes;
+            this.ticketInfo = ticketInfo;
+        }
+    }
+
+    /**
+     * @return Response of GET /api/rides
+     */
+    public PrecomputedResponse getRides() {
+        return current().rides;
+    }
+
+    /**
+     * @return Response of GET /api/rides?view=summary
+     */
+    public PrecomputedResponse getRideSummaries() {
+        return current().rideSummaries;
+    }
+
+    /**
+     * @return Response of GET /api/rides/grouped
+     */
+    public PrecomputedResponse getRidesGrouped() {
+        return current().ridesGrouped;
+    }
+
+    /**
+     * @return Response of GET /api/tickets/types
+     */
+    public PrecomputedResponse getTicketTypes() {
+        return current().ticketTypes;
+    }
+
+    /**
+     * @return Response of GET /api/tickets/info
+     */
+    public PrecomputedResponse getTicketInfo() {
+        return current().ticketInfo;
+    }
+
+    private Responses current() {
+        CatalogSnapshot catalog = catalogService.getCatalog();
+        Responses current = responses;
+        if (current == null || current.version != catalog.getVersion()) {
+            // Concurrent rebuilds for the same version produce identical bytes, so no locking is needed
+            current = build(catalog);
+            responses = current;
+        }
+        return current;
+    }
+
+    private Responses build(CatalogSnapshot catalog) {
+        Map<String, Object> ticketInfo = new LinkedHashMap<>();
+        ticketInfo.put("ticketTypes", catalog.getTicketTypes());
+        ticketInfo.put("parkTimings", PARK_TIMINGS);
+        ticketInfo.put("importantNotes", IMPORTANT_NOTES);
+
+        return new Responses(
+                catalog.getVersion(),
+                serialize(catalog.getRides()),
+                serialize(catalog.getRides().stream().map(RideSummary::of).toList()),
+                serialize(catalog.getRidesGroupedByCategory()),
+                serialize(catalog.getTicketTypes()),
+                serialize(ticketInfo));
+    }
+
+    private PrecomputedResponse serialize(Object value) {
+        try {
+            return new PrecomputedResponse(objectMapper.writeValueAsBytes(value), gzip);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize catalog response", e);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.amusementpark.services;
+
+import com.amusementpark.models.Ride;
+import com.amusementpark.models.TicketType;
+import com.amusementpark.repositories.RideRepository;
+import com.amusementpark.repositories.TicketTypeRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Holds the current {@link CatalogSnapshot} of rides and ticket types.
+ * The catalog is read from MongoDB at startup and reloaded when it is changed through
+ * this service, when a refresh is requested, or when the periodic poll finds that the
+ * collections were changed by someone else. Readers never touch the database.
+ */
+@Service
+public class CatalogService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CatalogService.class);
+
+    @Autowired
+    private RideRepository rideRepository;
+
+    @Autowired
+    private TicketTypeRepository ticketTypeRepository;
+
+    private volatile CatalogSnapshot catalog;
+
+    // A lock rather than synchronized, so virtual threads waiting on the reload are not pinned
+    private final ReentrantLock refreshLock = new ReentrantLock();
+
+    /**
+     * Get the current catalog, loading it on first use
+     * @return The current catalog snapshot
+     */
+    public CatalogSnapshot getCatalog() {
+        CatalogSnapshot snapshot = catalog;
+        return snapshot != null ? snapshot : refresh();
+    }
+
+    /**
+     * Load the catalog once the application has started
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        refresh();
+    }
+
+    /**
+     * Reload the catalog and pick up changes made directly in the database
+     */
+    @Scheduled(fixedDelayString = "${catalog.poll-interval-ms:60000}", initialDelayString = "${catalog.poll-interval-ms:60000}")
+    public void poll() {
+        try {
+            refresh();
+        } catch (RuntimeException e) {
+            logger.error("Failed to poll the catalog, keeping version {}", catalog != null ? catalog.getVersion() : 0, e);
+        }
+    }
+
+    /**
+     * Reload the catalog from the database. The snapshot is only replaced, and its
+     * version increased, if the content changed.
+     * @return The current catalog snapshot
+     */
+    public CatalogSnapshot refresh() {
+        refreshLock.lock();
+        try {
+            List<Ride> rides = rideRepository.findAll();
+            List<TicketType> ticketTypes = ticketTypeRepository.findAll();
+
+            CatalogSnapshot current = catalog;
+            if (current != null && current.hasSameContent(rides, ticketTypes)) {
+                return current;
+            }
+            long version = current != null ? current.getVersion() + 1 : 1;
+            catalog = new CatalogSnapshot(version, rides, ticketTypes);
+            logger.info("Loaded catalog version {} with {} rides and {} ticket types", version, rides.size(), ticketTypes.size());
+            return catalog;
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    /**
+     * Save a ride and publish the change
+     * @param ride The ride to save
+     * @return The saved ride
+     */
+    public Ride saveRide(Ride ride) {
+        Ride saved = rideRepository.save(ride);
+        refresh();
+        return saved;
+    }
+
+    /**
+     * Save a ticket type and publish the change
+     * @param ticketType The ticket type to save
+     * @return The saved ticket type
+     */
+    public TicketType saveTicketType(TicketType ticketType) {
+        TicketType saved = ticketTypeRepository.save(ticketType);
+        refresh();
+        return saved;
+    }
+}
@@ -0,0 +1,135 @@
+package com.amusementpark.services;
+
+import com.amusementpark.models.Ride;
+import com.amusementpark.models.TicketType;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable view of the ride and ticket type catalog at one point in time.
+ * A new snapshot with a higher version is built whenever the catalog changes,
+ * so anything derived from a snapshot can be cached against its version.
+ * The entities are shared between callers and must not be modified.
+ */
+public final class CatalogSnapshot {
+
+    private final long version;
+    private final LocalDateTime loadedAt;
+
+    private final List<Ride> rides;
+    private final Map<String, Ride> ridesById = new HashMap<>();
+    private final Map<String, Ride> ridesByName = new HashMap<>();
+    private final Map<String, List<Ride>> ridesByCategory;
+
+    private final List<TicketType> ticketTypes;
+    private final Map<String, TicketType> ticketTypesById = new HashMap<>();
+    private final Map<String, TicketType> ticketTypesByName = new HashMap<>();
+
+    CatalogSnapshot(long version, List<Ride> rides, List<TicketType> ticketTypes) {
+        this.version = version;
+        this.loadedAt = LocalDateTime.now();
+        this.rides = Collections.unmodifiableList(new ArrayList<>(rides));
+        this.ticketTypes = Collections.unmodifiableList(new ArrayList<>(ticketTypes));
+
+        Map<String, List<Ride>> byCategory = new LinkedHashMap<>();
+        for (Ride ride : this.rides) {
+            ridesById.put(ride.getId(), ride);
+            ridesByName.put(ride.getName(), ride);
+            if (ride.getCategory() != null) {
+                byCategory.computeIfAbsent(ride.getCategory(), category -> new ArrayList<>()).add(ride);
+            }
+        }
+        byCategory.replaceAll((category, list) -> Collections.unmodifiableList(list));
+        this.ridesByCategory = Collections.unmodifiableMap(byCategory);
+
+        for (TicketType ticketType : this.ticketTypes) {
+            ticketTypesById.put(ticketType.getId(), ticketType);
+            ticketTypesByName.put(ticketType.getName(), ticketType);
+        }
+    }
+
+    /**
+     * @return Version of this snapshot, increases with every catalog change
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return When this snapshot was loaded
+     */
+    public LocalDateTime getLoadedAt() {
+        return loadedAt;
+    }
+
+    /**
+     * @return All rides
+     */
+    public List<Ride> getRides() {
+        return rides;
+    }
+
+    /**
+     * @param id The ride ID
+     * @return The ride, or null
+     */
+    public Ride getRideById(String id) {
+        return ridesById.get(id);
+    }
+
+    /**
+     * @param name The ride name
+     * @return The ride, or null
+     */
+    public Ride getRideByName(String name) {
+        return ridesByName.get(name);
+    }
+
+    /**
+     * @param category The ride category
+     * @return The rides in the category, empty if none
+     */
+    public List<Ride> getRidesByCategory(String category) {
+        return ridesByCategory.getOrDefault(category, Collections.emptyList());
+    }
+
+    /**
+     * @return Rides grouped by category, rides without a category are left out
+     */
+    public Map<String, List<Ride>> getRidesGroupedByCategory() {
+        return ridesByCategory;
+    }
+
+    /**
+     * @return All ticket types
+     */
+    public List<TicketType> getTicketTypes() {
+        return ticketTypes;
+    }
+
+    /**
+     * @param id The ticket type ID
+     * @return The ticket type, or null
+     */
+    public TicketType getTicketTypeById(String id) {
+        return ticketTypesById.get(id);
+    }
+
+    /**
+     * @param name The ticket type name
+     * @return The ticket type, or null
+     */
+    public TicketType getTicketTypeByName(String name) {
+        return ticketTypesByName.get(name);
+    }
+
+    boolean hasSameContent(List<Ride> otherRides, List<TicketType> otherTicketTypes) {
+        return rides.equals(otherRides) && ticketTypes.equals(otherTicketTypes);
+    }
+}
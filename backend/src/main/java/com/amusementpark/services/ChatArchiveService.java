@@ -0,0 +1,408 @@
+package com.amusementpark.services;
+
+import com.amusementpark.models.ChatArchiveBucket;
+import com.amusementpark.models.ChatMessage;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+
+import jakarta.annotation.PostConstruct;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Moves chat messages older than chat.archive.archive-after-days out of the hot
+ * {@link ChatMessageStore} into chat_archive buckets of up to chat.archive.bucket-size
+ * messages per user and month, so the hot collection and its indexes only hold recent
+ * conversations and no bucket grows towards the document size limit. Messages are moved
+ * oldest first: the batch is appended to each user's newest bucket, or to new ones once it
+ * is full or the month changes, and only then deleted from the store. A run that fails in
+ * between moves the batch again and skips the messages that are not newer than the last
+ * archived one; those are only deleted once their _id is found in the archive. Only one
+ * instance archives at a time, holding a lease in job_locks.
+ *
+ * Because of this order every archived message of a user comes before all of that user's
+ * hot messages, and readers stitch the two tiers by reading the archive first and then the
+ * hot messages after the last archived one. A message present in both tiers during a move
+ * is only returned once.
+ *
+ * A TTL index on the hot messages with a longer expiry than the archive age deletes
+ * hot messages the job has not moved in time, e.g. because it was disabled.
+ */
+@Service
+public class ChatArchiveService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChatArchiveService.class);
+
+    /**
+     * Order of messages in a conversation, and the order of the history cursor
+     */
+    public static final Comparator<ChatMessage> POSITION =
+            Comparator.comparing(ChatMessage::getTimestamp).thenComparing(ChatMessage::getId);
+
+    private static final String JOB_LOCKS = "job_locks";
+    private static final String LOCK_ID = "chat-archive";
+
+    /**
+     * Messages of one batch going into one bucket, which already holds storedCount
+     */
+    private static final class PendingBucket {
+        private final String id;
+        private final String userId;
+        private final String month;
+        private final int storedCount;
+        private final List<ChatMessage> messages = new ArrayList<>();
+
+        private PendingBucket(String id, String userId, String month, int storedCount) {
+            this.id = id;
+            this.userId = userId;
+            this.month = month;
+            this.storedCount = storedCount;
+        }
+
+        private int size() {
+            return storedCount + messages.size();
+        }
+    }
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ReactiveMongoTemplate reactiveMongoTemplate;
+
+    @Autowired
+    private ChatMessageStore chatMessageStore;
+
+    @Value("${chat.archive.enabled:true}")
+    private boolean enabled;
+
+    @Value("${chat.archive.archive-after-days:30}")
+    private int archiveAfterDays;
+
+    @Value("${chat.archive.hot-ttl-days:90}")
+    private int hotTtlDays;
+
+    @Value("${chat.archive.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${chat.archive.max-batches-per-run:100}")
+    private int maxBatchesPerRun;
+
+    @Value("${chat.archive.bucket-size:1000}")
+    private int bucketSize;
+
+    @Value("${chat.archive.lock-ms:600000}")
+    private long lockMs;
+
+    // Owner of the archiving lock while this instance holds it
+    private final String instanceId = new ObjectId().toHexString();
+
+    /**
+     * Create the TTL index on the hot collection. It is left out when its expiry would not
+     * be longer than the archive age, since it would then delete messages before they are
+     * archived.
+     */
+    @PostConstruct
+    public void ensureIndexes() {
+        if (!enabled) {
+            return;
+        }
+        if (hotTtlDays <= archiveAfterDays) {
+            logger.error("chat.archive.hot-ttl-days ({}) must be greater than chat.archive.archive-after-days ({}), not expiring hot chat messages",
+                    hotTtlDays, archiveAfterDays);
+            return;
+        }
+        try {
+            chatMessageStore.expireAfter(Duration.ofDays(hotTtlDays));
+        } catch (RuntimeException e) {
+            // An index on the same field with a different expiry has to be changed by hand
+            logger.error("Failed to create the TTL index on the hot chat messages", e);
+        }
+    }
+
+    /**
+     * Move messages older than the archive age into the archive, a batch at a time
+     * @return Number of messages moved
+     */
+    @Scheduled(fixedDelayString = "${chat.archive.interval-ms:3600000}", initialDelayString = "${chat.archive.interval-ms:3600000}")
+    public int archiveOldMessages() {
+        if (!enabled) {
+            return 0;
+        }
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(archiveAfterDays);
+        int moved = 0;
+        try {
+            // Taken again before every batch, which extends the lease
+            for (int batch = 0; batch < maxBatchesPerRun && lock(); batch++) {
+                int count = archiveBatch(cutoff);
+                moved += count;
+                if (count < batchSize) {
+                    break;
+                }
+            }
+        } catch (RuntimeException e) {
+            logger.error("Chat archiving stopped after {} messages, the rest is moved on the next run", moved, e);
+        } finally {
+            unlock();
+        }
+        if (moved > 0) {
+            logger.info("Archived {} chat messages older than {}", moved, cutoff);
+        }
+        return moved;
+    }
+
+    private int archiveBatch(LocalDateTime cutoff) {
+        List<ChatMessage> messages = chatMessageStore.findOlderThan(cutoff, batchSize);
+        if (messages.isEmpty()) {
+            return 0;
+        }
+        Map<String, List<ChatMessage>> byUser = new LinkedHashMap<>();
+        for (ChatMessage message : messages) {
+            byUser.computeIfAbsent(message.getUserId(), userId -> new ArrayList<>()).add(message);
+        }
+
+        // Each user's buckets in the order of their messages, so an ordered bulk write that
+        // fails part way has archived a prefix of every user's messages
+        List<PendingBucket> buckets = new ArrayList<>();
+        Set<String> removable = new HashSet<>();
+        for (Map.Entry<String, List<ChatMessage>> user : byUser.entrySet()) {
+            List<ChatMessage> skipped = new ArrayList<>();
+            ChatArchiveBucket newest = findNewestBucket(user.getKey());
+            ChatMessage lastArchived = null;
+            PendingBucket open = null;
+            if (newest != null) {
+                lastArchived = new ChatMessage();
+                lastArchived.setTimestamp(newest.getLastTimestamp());
+                lastArchived.setId(newest.getLastMessageId());
+                open = new PendingBucket(newest.getId(), user.getKey(), newest.getMonth(), newest.getCount());
+            }
+            for (ChatMessage message : user.getValue()) {
+                if (lastArchived != null && POSITION.compare(message, lastArchived) <= 0) {
+                    // Archived by an earlier run that failed before removing it, checked below
+                    skipped.add(message);
+                    continue;
+                }
+                String month = YearMonth.from(message.getTimestamp()).toString();
+                if (open == null || !open.month.equals(month) || open.size() >= bucketSize) {
+                    open = new PendingBucket(new ObjectId().toHexString(), user.getKey(), month, 0);
+                }
+                if (open.messages.isEmpty()) {
+                    buckets.add(open);
+                }
+                open.messages.add(message);
+                removable.add(message.getId());
+            }
+            if (!skipped.isEmpty()) {
+                removable.addAll(findArchivedIds(user.getKey(), skipped));
+            }
+        }
+
+        if (!buckets.isEmpty()) {
+            BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.ORDERED, ChatArchiveBucket.class);
+            for (PendingBucket bucket : buckets) {
+                Object[] documents = new Object[bucket.messages.size()];
+                for (int i = 0; i < documents.length; i++) {
+                    Document document = new Document();
+                    mongoTemplate.getConverter().write(bucket.messages.get(i), document);
+                    documents[i] = document;
+                }
+                ChatMessage last = bucket.messages.get(bucket.messages.size() - 1);
+                Update update = new Update()
+                        .setOnInsert("userId", bucket.userId)
+                        .setOnInsert("month", bucket.month)
+                        .setOnInsert("firstTimestamp", bucket.messages.get(0).getTimestamp())
+                        .push("messages").each(documents)
+                        .inc("count", bucket.messages.size())
+                        .set("lastTimestamp", last.getTimestamp())
+                        .set("lastMessageId", last.getId());
+                // Matches only while the bucket holds what was read above, otherwise the
+                // upsert fails on the duplicate _id and the next run starts over
+                bulk.upsert(new Query(Criteria.where("_id").is(bucket.id).and("count").is(bucket.storedCount)), update);
+            }
+            bulk.execute();
+        }
+
+        List<ChatMessage> toRemove = messages.stream().filter(message -> removable.contains(message.getId())).toList();
+        if (toRemove.size() < messages.size()) {
+            // E.g. a message stored late with an older timestamp, the hot TTL deletes it eventually
+            logger.warn("{} chat message(s) are not newer than the last archived message but not in the archive, "
+                    + "they stay in the hot store", messages.size() - toRemove.size());
+        }
+        if (!toRemove.isEmpty()) {
+            chatMessageStore.remove(toRemove);
+        }
+        return toRemove.size();
+    }
+
+    /**
+     * Find which of a user's messages are in the archive
+     * @param userId The user ID
+     * @param candidates The messages to look for
+     * @return The IDs of the candidates found in one of the user's buckets
+     */
+    private Set<String> findArchivedIds(String userId, List<ChatMessage> candidates) {
+        List<Object> ids = new ArrayList<>(candidates.size());
+        for (ChatMessage message : candidates) {
+            ids.add(ObjectId.isValid(message.getId()) ? new ObjectId(message.getId()) : message.getId());
+        }
+        Query query = new Query(Criteria.where("userId").is(userId).and("messages._id").in(ids));
+        query.fields().include("messages._id");
+        Set<String> archivedIds = new HashSet<>();
+        for (Document bucket : mongoTemplate.find(query, Document.class, mongoTemplate.getCollectionName(ChatArchiveBucket.class))) {
+            for (Document message : bucket.getList("messages", Document.class)) {
+                archivedIds.add(message.get("_id").toString());
+            }
+        }
+        return archivedIds;
+    }
+
+    private ChatArchiveBucket findNewestBucket(String userId) {
+        Query query = new Query(Criteria.where("userId").is(userId))
+                .with(Sort.by(Sort.Direction.DESC, "lastTimestamp"))
+                .limit(1);
+        query.fields().exclude("messages");
+        return mongoTemplate.findOne(query, ChatArchiveBucket.class);
+    }
+
+    /**
+     * Take or extend the archiving lease. Inserting the lock document fails on the
+     * duplicate _id while another instance holds an unexpired lease.
+     * @return true if this instance holds the lease
+     */
+    private boolean lock() {
+        LocalDateTime now = LocalDateTime.now();
+        Query free = new Query(Criteria.where("_id").is(LOCK_ID).orOperator(
+                Criteria.where("lockedUntil").lt(now),
+                Criteria.where("owner").is(instanceId)));
+        try {
+            mongoTemplate.upsert(free, new Update().set("owner", instanceId).set("lockedUntil", now.plus(Duration.ofMillis(lockMs))),
+                    JOB_LOCKS);
+            return true;
+        } catch (DuplicateKeyException e) {
+            logger.debug("Chat archiving is running on another instance");
+            return false;
+        }
+    }
+
+    private void unlock() {
+        try {
+            mongoTemplate.updateFirst(new Query(Criteria.where("_id").is(LOCK_ID).and("owner").is(instanceId)),
+                    new Update().set("lockedUntil", LocalDateTime.now()), JOB_LOCKS);
+        } catch (RuntimeException e) {
+            // The lease runs out by itself
+            logger.warn("Failed to release the chat archiving lock", e);
+        }
+    }
+
+    /**
+     * Stream the archived messages of a user, oldest first. Only one bucket is held in
+     * memory at a time.
+     * @param userId The user ID
+     * @return Stream of messages, must be closed by the caller
+     */
+    public Stream<ChatMessage> streamArchivedMessages(String userId) {
+        Query query = new Query(Criteria.where("userId").is(userId)).with(Sort.by("lastTimestamp"));
+        return mongoTemplate.stream(query, ChatArchiveBucket.class)
+                .flatMap(bucket -> sorted(bucket).stream());
+    }
+
+    /**
+     * Find the archived messages of a user following a position, oldest first
+     * @param userId The user ID
+     * @param after The last message already returned, or null to start at the beginning
+     * @param limit Maximum number of messages
+     * @return The messages
+     */
+    public List<ChatMessage> findArchivedMessagesAfter(String userId, ChatMessage after, int limit) {
+        Criteria criteria = Criteria.where("userId").is(userId);
+        if (after != null) {
+            criteria = criteria.and("lastTimestamp").gte(after.getTimestamp());
+        }
+        List<ChatMessage> page = new ArrayList<>();
+        try (Stream<ChatArchiveBucket> buckets = mongoTemplate.stream(new Query(criteria).with(Sort.by("lastTimestamp")), ChatArchiveBucket.class)) {
+            Iterator<ChatArchiveBucket> it = buckets.iterator();
+            while (it.hasNext() && page.size() < limit) {
+                for (ChatMessage message : sorted(it.next())) {
+                    if (page.size() == limit) {
+                        break;
+                    }
+                    if (after == null || POSITION.compare(message, after) > 0) {
+                        page.add(message);
+                    }
+                }
+            }
+        }
+        return page;
+    }
+
+    /**
+     * Find the newest archived messages of a user preceding a position
+     * @param userId The user ID
+     * @param before The oldest message already returned, or null to start at the newest
+     * @param limit Maximum number of messages
+     * @return The messages, newest first
+     */
+    public List<ChatMessage> findArchivedMessagesBefore(String userId, ChatMessage before, int limit) {
+        Criteria criteria = Criteria.where("userId").is(userId);
+        if (before != null) {
+            criteria = criteria.and("firstTimestamp").lte(before.getTimestamp());
+        }
+        Query query = new Query(criteria).with(Sort.by(Sort.Direction.DESC, "firstTimestamp"));
+        List<ChatMessage> page = new ArrayList<>();
+        try (Stream<ChatArchiveBucket> buckets = mongoTemplate.stream(query, ChatArchiveBucket.class)) {
+            Iterator<ChatArchiveBucket> it = buckets.iterator();
+            while (it.hasNext() && page.size() < limit) {
+                List<ChatMessage> messages = sorted(it.next());
+                for (int i = messages.size() - 1; i >= 0 && page.size() < limit; i--) {
+                    if (before == null || POSITION.compare(messages.get(i), before) < 0) {
+                        page.add(messages.get(i));
+                    }
+                }
+            }
+        }
+        return page;
+    }
+
+    /**
+     * Non-blocking variant of {@link #streamArchivedMessages}
+     * @param userId The user ID
+     * @return The archived messages, oldest first
+     */
+    public Flux<ChatMessage> findArchivedMessages(String userId) {
+        Query query = new Query(Criteria.where("userId").is(userId)).with(Sort.by("lastTimestamp"));
+        return reactiveMongoTemplate.find(query, ChatArchiveBucket.class)
+                .concatMapIterable(ChatArchiveService::sorted);
+    }
+
+    private static List<ChatMessage> sorted(ChatArchiveBucket bucket) {
+        List<ChatMessage> messages = new ArrayList<>(bucket.getMessages());
+        messages.sort(POSITION);
+        return messages;
+    }
+
+}
@@ -0,0 +1,44 @@
+package com.amusementpark.services;
+
+/**
+ * Keyword vocabularies recognised by the chatbot.
+ * Whole-word vocabularies behave like the old \b(...)\b regex checks,
+ * the others match anywhere in the message like String.contains did.
+ */
+public enum ChatIntent {
+    GREETING(true, "hello", "hi", "hey", "good morning", "good evening"),
+    TICKET(true, "ticket", "buy", "purchase", "entry", "pass", "booking"),
+    FRIENDS(false, "friend"),
+    FAMILY(false, "family"),
+    SOLO(false, "alone", "myself", "just me", "solo"),
+    AFFIRMATIVE(false, "yes", "yeah", "yep"),
+    NEGATIVE(false, "no", "nope"),
+    PASS_TIER(true, "silver", "gold", "diamond"),
+    RIDE(true, "ride", "rides", "rollercoaster", "attraction", "thrill"),
+    FOOD(true, "food", "eat", "restaurant", "snack", "lunch", "dinner", "meal"),
+    TIMING(true, "time", "timing", "open", "closing", "hours"),
+    THANKS(false, "thanks", "thank you"),
+    FAREWELL(false, "bye", "goodbye", "see you");
+
+    private final boolean wholeWord;
+    private final String[] keywords;
+
+    ChatIntent(boolean wholeWord, String... keywords) {
+        this.wholeWord = wholeWord;
+        this.keywords = keywords;
+    }
+
+    /**
+     * @return True if keywords must be surrounded by word boundaries
+     */
+    public boolean isWholeWord() {
+        return wholeWord;
+    }
+
+    /**
+     * @return The lower-case keywords of this vocabulary
+     */
+    public String[] getKeywords() {
+        return keywords.clone();
+    }
+}
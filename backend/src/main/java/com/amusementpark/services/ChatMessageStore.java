@@ -0,0 +1,85 @@
+package com.amusementpark.services;
+
+import com.amusementpark.models.ChatMessage;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Storage of the hot chat messages, the ones not yet moved to the archive.
+ * chat.storage.mode selects the implementation: "documents" stores one document per
+ * message, "buckets" appends the messages of a user and day to shared bucket documents.
+ * Positions are compared with {@link ChatArchiveService#POSITION}.
+ */
+public interface ChatMessageStore {
+
+    /**
+     * Store messages whose ids are already assigned
+     * @param messages The messages, in order
+     */
+    void insert(List<ChatMessage> messages);
+
+    /**
+     * Non-blocking variant of {@link #insert} for a single message
+     * @param message The message, its id is assigned if missing
+     * @return The stored message
+     */
+    Mono<ChatMessage> insertReactive(ChatMessage message);
+
+    /**
+     * Find the messages of a user following a position, oldest first
+     * @param userId The user ID
+     * @param after The last message already read, or null to start at the beginning
+     * @param limit Maximum number of messages
+     * @return The messages
+     */
+    List<ChatMessage> findAfter(String userId, ChatMessage after, int limit);
+
+    /**
+     * Find the most recent messages of a user
+     * @param userId The user ID
+     * @param limit Maximum number of messages
+     * @return The messages, newest first
+     */
+    List<ChatMessage> findLatest(String userId, int limit);
+
+    /**
+     * Stream all messages of a user following a position, oldest first
+     * @param userId The user ID
+     * @param after The last message already read, or null to start at the beginning
+     * @return Stream of messages, must be closed by the caller
+     */
+    Stream<ChatMessage> streamAfter(String userId, ChatMessage after);
+
+    /**
+     * Non-blocking variant of {@link #streamAfter}
+     * @param userId The user ID
+     * @param after The last message already read, or null to start at the beginning
+     * @return The messages, oldest first
+     */
+    Flux<ChatMessage> findAfterReactive(String userId, ChatMessage after);
+
+    /**
+     * Find the oldest messages of all users, for moving them to the archive
+     * @param cutoff Only messages older than this are returned
+     * @param limit Number of messages wanted, may be exceeded to keep a bucket whole
+     * @return The messages, oldest first
+     */
+    List<ChatMessage> findOlderThan(LocalDateTime cutoff, int limit);
+
+    /**
+     * Delete messages returned by {@link #findOlderThan}
+     * @param messages The messages
+     */
+    void remove(List<ChatMessage> messages);
+
+    /**
+     * Create the TTL index that deletes messages once they reach the given age
+     * @param ttl The age
+     */
+    void expireAfter(Duration ttl);
+}
@@ -0,0 +1,210 @@
+package com.amusementpark.services;
+
+import com.amusementpark.models.ChatMessage;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Persists chat messages in batches.
+ * In "sync" mode the messages of a turn are written with a single insertMany before returning.
+ * In "async" mode they are queued and a background writer flushes them once the batch is full
+ * or the flush interval has passed. The queue is bounded: when it stays full for longer than
+ * the enqueue timeout the caller writes its messages itself, which throttles producers instead
+ * of dropping messages. Once the writer is stopped, messages are written synchronously.
+ *
+ * Async delivery is at most once: a batch that fails to insert is logged and counted in
+ * failedMessages, but not retried, because a retry of a partly applied insert could store
+ * messages twice. Use "sync" mode where a failed write must reach the caller.
+ */
+@Service
+public class ChatMessageWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChatMessageWriter.class);
+
+    @Autowired
+    private ChatMessageStore chatMessageStore;
+
+    @Value("${chat.persistence.mode:sync}")
+    private String mode;
+
+    @Value("${chat.persistence.batch-size:100}")
+    private int batchSize;
+
+    @Value("${chat.persistence.flush-interval-ms:50}")
+    private long flushIntervalMs;
+
+    @Value("${chat.persistence.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${chat.persistence.enqueue-timeout-ms:1000}")
+    private long enqueueTimeoutMs;
+
+    private BlockingQueue<ChatMessage> queue;
+    private Thread flushThread;
+    private volatile boolean running;
+    private volatile boolean stopped;
+
+    private final AtomicLong writtenMessages = new AtomicLong();
+    private final AtomicLong failedMessages = new AtomicLong();
+
+    @PostConstruct
+    public void start() {
+        if (!isAsync()) {
+            return;
+        }
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        running = true;
+        flushThread = new Thread(this::runFlushLoop, "chat-message-writer");
+        flushThread.setDaemon(true);
+        flushThread.start();
+        logger.info("Chat messages are written asynchronously (batch size {}, flush interval {} ms)", batchSize, flushIntervalMs);
+    }
+
+    /**
+     * Flush everything still queued before the application shuts down
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (flushThread == null) {
+            return;
+        }
+        stopped = true;
+        running = false;
+        flushThread.interrupt();
+        flushThread.join(TimeUnit.SECONDS.toMillis(10));
+        drainQueue();
+    }
+
+    /**
+     * Persist the messages of one chat turn. Ids are assigned up front so the
+     * messages can be returned to the client before they reach the database.
+     * @param messages The messages to persist, in order
+     */
+    public void write(List<ChatMessage> messages) {
+        for (ChatMessage message : messages) {
+            if (message.getId() == null) {
+                message.setId(new ObjectId().toHexString());
+            }
+        }
+        if (!isAsync() || stopped) {
+            insert(messages);
+            return;
+        }
+
+        for (int i = 0; i < messages.size(); i++) {
+            boolean queued;
+            try {
+                queued = queue.offer(messages.get(i), enqueueTimeoutMs, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                queued = false;
+            }
+            if (!queued) {
+                logger.warn("Chat message queue is full, writing {} message(s) synchronously", messages.size() - i);
+                insert(messages.subList(i, messages.size()));
+                return;
+            }
+        }
+        // The writer stopped while these were queued, its last drain may have missed them
+        if (stopped) {
+            drainQueue();
+        }
+    }
+
+    /**
+     * @return True if messages are queued and written in the background
+     */
+    public boolean isAsync() {
+        return "async".equalsIgnoreCase(mode);
+    }
+
+    /**
+     * @return Number of messages waiting to be written
+     */
+    public int getQueueDepth() {
+        return queue == null ? 0 : queue.size();
+    }
+
+    /**
+     * @return Number of messages written so far
+     */
+    public long getWrittenMessages() {
+        return writtenMessages.get();
+    }
+
+    /**
+     * @return Number of messages that could not be written
+     */
+    public long getFailedMessages() {
+        return failedMessages.get();
+    }
+
+    private void runFlushLoop() {
+        List<ChatMessage> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                ChatMessage first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+
+                // Keep collecting until the batch is full or the oldest message waited a full interval
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || remaining <= 0) {
+                        break;
+                    }
+                    ChatMessage next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                // stop() interrupts the loop, the batch collected so far is still written below
+                running = false;
+            }
+            if (!batch.isEmpty()) {
+                insert(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void drainQueue() {
+        List<ChatMessage> remaining = new ArrayList<>(batchSize);
+        while (queue.drainTo(remaining, batchSize) > 0) {
+            insert(remaining);
+            remaining.clear();
+        }
+    }
+
+    private void insert(List<ChatMessage> messages) {
+        try {
+            chatMessageStore.insert(messages);
+            writtenMessages.addAndGet(messages.size());
+        } catch (RuntimeException e) {
+            failedMessages.addAndGet(messages.size());
+            logger.error("Failed to write {} chat message(s)", messages.size(), e);
+            if (!isAsync()) {
+                throw e;
+            }
+        }
+    }
+}
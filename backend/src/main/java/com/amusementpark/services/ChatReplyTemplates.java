@@ -0,0 +1,112 @@
+package com.amusementpark.services;
+
+import com.amusementpark.models.Ride;
+import com.amusementpark.models.TicketType;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Chatbot reply fragments that only depend on the catalog. They are formatted once
+ * per catalog version instead of on every chat turn.
+ */
+@Service
+public class ChatReplyTemplates {
+
+    private static final String NO_RIDES = "Sorry, we currently don't have ride info.";
+
+    private static final String SUGGESTION_FOOTER =
+            "\n🎢 Recommended rides for adults: Thunder Coaster, Sky Drop\n"
+            + "🎠 For children: Mini Carousel, Water Splash\n"
+            + "🍔 Food stalls nearby: Burger Bonanza, Candy Corner\n"
+            + "\nWould you like to proceed with a booking or ask something else?";
+
+    @Autowired
+    private CatalogService catalogService;
+
+    private volatile Fragments fragments;
+
+    private static final class Fragments {
+        private final long version;
+        private final String ridesSummary;
+        private final String ticketPrices;
+
+        private Fragments(long version, String ridesSummary, String ticketPrices) {
+            this.version = version;
+            this.ridesSummary = ridesSummary;
+            this.ticketPrices = ticketPrices;
+        }
+    }
+
+    /**
+     * @return Summary of all rides by category, for "rides" questions
+     */
+    public String getRidesSummary() {
+        return current().ridesSummary;
+    }
+
+    /**
+     * @return Price lines of the Silver, Gold and Diamond tickets, empty if there are no ticket types
+     */
+    public String getTicketPrices() {
+        return current().ticketPrices;
+    }
+
+    /**
+     * @return Closing lines of a ticket suggestion
+     */
+    public String getSuggestionFooter() {
+        return SUGGESTION_FOOTER;
+    }
+
+    private Fragments current() {
+        CatalogSnapshot catalog = catalogService.getCatalog();
+        Fragments current = fragments;
+        if (current == null || current.version != catalog.getVersion()) {
+            current = new Fragments(catalog.getVersion(), summarizeRides(catalog), formatTicketPrices(catalog));
+            fragments = current;
+        }
+        return current;
+    }
+
+    private static String summarizeRides(CatalogSnapshot catalog) {
+        List<Ride> rides = catalog.getRides();
+        if (rides.isEmpty()) {
+            return NO_RIDES;
+        }
+        StringBuilder sb = new StringBuilder();
+        sb.append("We have ").append(rides.size()).append(" exciting rides at our amusement park across several categories:\n\n");
+        boolean first = true;
+        for (Map.Entry<String, List<Ride>> entry : catalog.getRidesGroupedByCategory().entrySet()) {
+            String categoryName = entry.getKey();
+            // Basic capitalization for category
+            if (!categoryName.isEmpty()) {
+                categoryName = categoryName.substring(0, 1).toUpperCase() + categoryName.substring(1).toLowerCase();
+            }
+            String rideNames = entry.getValue().stream().map(Ride::getName).collect(Collectors.joining(", "));
+            if (!first) {
+                sb.append('\n');
+            }
+            sb.append(String.format("%s Rides: %s.", categoryName, rideNames));
+            first = false;
+        }
+        return sb.toString();
+    }
+
+    private static String formatTicketPrices(CatalogSnapshot catalog) {
+        List<TicketType> ticketTypes = catalog.getTicketTypes();
+        if (ticketTypes.isEmpty()) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder("\nTicket Price Examples (per person):");
+        for (TicketType tt : ticketTypes) {
+            if (tt.getName().equalsIgnoreCase("Gold") || tt.getName().equalsIgnoreCase("Diamond") || tt.getName().equalsIgnoreCase("Silver")) {
+                sb.append(String.format("- %s Ticket: Rs %.2f\n", tt.getName(), tt.getPrice()));
+            }
+        }
+        return sb.toString();
+    }
+}
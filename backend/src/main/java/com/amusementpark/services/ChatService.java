@@ -1,39 +1,97 @@
 package com.amusementpark.services;
 
+import com.amusementpark.models.ChatHistoryPage;
 import com.amusementpark.models.ChatMessage;
-import com.amusementpark.models.Ride;
-import com.amusementpark.models.TicketType;
-import com.amusementpark.repositories.ChatMessageRepository;
-import com.amusementpark.repositories.ConversationStateRepository; // Added import
 import com.amusementpark.models.ConversationState; // Added import
+import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.EnumMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 @Service
 public class ChatService {
 
+    private static final Pattern NUMBER = Pattern.compile("\\d+");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern NON_DIGIT = Pattern.compile("[^0-9]");
+
     @Autowired
-    private ConversationStateRepository conversationStateRepository; // Added repository
+    private ConversationStateCache conversationStateCache;
     
     @Autowired
-    private ChatMessageRepository chatMessageRepository;
+    private ChatMessageStore chatMessageStore;
+
+    @Autowired
+    private IntentMatcher intentMatcher;
+
+    @Autowired
+    private ChatReplyTemplates chatReplyTemplates;
 
     @Autowired
-    private RideService rideService; // Added RideService dependency
+    private ChatMessageWriter chatMessageWriter;
 
     @Autowired
-    private TicketTypeService ticketTypeService; // Added TicketTypeService dependency
+    private ChatTurnExecutor chatTurnExecutor;
 
-    // Updated constructor to include ConversationStateRepository
     @Autowired
-    public ChatService(ChatMessageRepository chatMessageRepository, RideService rideService, TicketTypeService ticketTypeService, ConversationStateRepository conversationStateRepository) {
-        this.chatMessageRepository = chatMessageRepository;
-        this.rideService = rideService;
-        this.ticketTypeService = ticketTypeService;
-        this.conversationStateRepository = conversationStateRepository;
+    private ChatArchiveService chatArchiveService;
+
+    @Value("${chat.history.max-turns:10}")
+    private int historyMaxTurns;
+
+    @Value("${chat.history.max-entry-length:280}")
+    private int historyMaxEntryLength;
+
+    // Handlers of the ticket flow, keyed by the state the conversation is in
+    private final Map<DialogState, TicketFlowHandler> ticketFlowHandlers = new EnumMap<>(DialogState.class);
+
+    @Autowired
+    public ChatService(ChatMessageStore chatMessageStore, ConversationStateCache conversationStateCache, IntentMatcher intentMatcher, ChatReplyTemplates chatReplyTemplates) {
+        this.chatMessageStore = chatMessageStore;
+        this.conversationStateCache = conversationStateCache;
+        this.intentMatcher = intentMatcher;
+        this.chatReplyTemplates = chatReplyTemplates;
+
+        ticketFlowHandlers.put(DialogState.AWAIT_FRIENDS_ADULT_STATUS_CONFIRMATION, this::handleFriendsAdultStatus);
+        ticketFlowHandlers.put(DialogState.AWAIT_FRIENDS_COUNT, this::handleFriendsCount);
+        ticketFlowHandlers.put(DialogState.AWAIT_FRIENDS_MIXED_COMPOSITION, this::handleFriendsMixedComposition);
+        ticketFlowHandlers.put(DialogState.AWAIT_FAMILY_COMPOSITION, this::handleFamilyComposition);
+        ticketFlowHandlers.put(DialogState.AWAIT_CHILDREN_HEIGHT_CONFIRMATION, this::handleChildrenHeight);
+        ticketFlowHandlers.put(DialogState.SUGGEST_SOLO_TICKET_OPTIONS, this::handleSoloOptions);
+        ticketFlowHandlers.put(DialogState.BUY_TICKET, this::handleGroupDetails);
+        ticketFlowHandlers.put(DialogState.GROUP_DETAILS, this::handleGroupDetails);
+        ticketFlowHandlers.put(DialogState.GROUP_DETAILS_UPDATED, this::handleGroupDetails);
+    }
+
+    /**
+     * Handles one turn of the ticket flow for a given state
+     */
+    @FunctionalInterface
+    private interface TicketFlowHandler {
+        /**
+         * @param state The conversation state
+         * @param msg The lower-cased user message
+         * @param match The intents found in the message
+         * @return The bot reply, or null to fall through to the general intents
+         */
+        String handle(ConversationState state, String msg, IntentMatch match);
     }
     
     /**
@@ -42,55 +100,208 @@ public class ChatService {
      * @return The saved message
      */
     public ChatMessage saveMessage(ChatMessage chatMessage) {
-        return chatMessageRepository.save(chatMessage);
+        if (chatMessage.getId() == null) {
+            chatMessage.setId(new ObjectId().toHexString());
+        }
+        chatMessageStore.insert(List.of(chatMessage));
+        return chatMessage;
     }
     
     /**
-     * Save a user message and generate a bot reply
+     * Queue a user message behind the user's earlier messages, then save it and generate
+     * a bot reply. Messages of different users are processed in parallel.
+     * @param userId The user ID
+     * @param userMessageText The user's message
+     * @return Completes with the bot's reply message
+     * @throws java.util.concurrent.RejectedExecutionException if too many turns are waiting
+     */
+    public CompletableFuture<ChatMessage> submitUserMessage(String userId, String userMessageText) {
+        return chatTurnExecutor.submit(userId, () -> processUserMessage(userId, userMessageText));
+    }
+
+    /**
+     * Like {@link #submitUserMessage(String, String)}, but hands the reply to the listener
+     * as soon as it is generated, before the messages are persisted
+     * @param userId The user ID
+     * @param userMessageText The user's message
+     * @param replyListener Receives the bot's reply, called on the turn's thread
+     * @return Completes with the bot's reply message once it is persisted
+     * @throws java.util.concurrent.RejectedExecutionException if too many turns are waiting
+     */
+    public CompletableFuture<ChatMessage> submitUserMessage(String userId, String userMessageText, Consumer<ChatMessage> replyListener) {
+        return chatTurnExecutor.submit(userId, () -> processUserMessage(userId, userMessageText, replyListener));
+    }
+
+    /**
+     * Save a user message and generate a bot reply. Callers must not run two turns of
+     * the same user at once, see {@link #submitUserMessage}.
      * @param userId The user ID
      * @param userMessage The user's message
      * @return The bot's reply message
      */
     public ChatMessage processUserMessage(String userId, String userMessageText) {
-        // 1. Save user message
+        return processUserMessage(userId, userMessageText, reply -> { });
+    }
+
+    /**
+     * Save a user message and generate a bot reply, handing the reply to the listener
+     * before anything is persisted
+     * @param userId The user ID
+     * @param userMessageText The user's message
+     * @param replyListener Receives the bot's reply as soon as it is generated
+     * @return The bot's reply message
+     */
+    public ChatMessage processUserMessage(String userId, String userMessageText, Consumer<ChatMessage> replyListener) {
+        // 1. Create user message, it is persisted together with the bot reply. Its id is
+        // assigned before the reply's, so the question sorts first when the timestamps tie.
         ChatMessage userMessage = new ChatMessage(userId, userMessageText, "user");
-        chatMessageRepository.save(userMessage);
+        userMessage.setId(new ObjectId().toHexString());
 
         // 2. Retrieve or create conversation state
-        ConversationState state = conversationStateRepository.findByUserId(userId);
-        if (state == null) {
-            state = new ConversationState(userId);
-        }
+        ConversationState state = conversationStateCache.get(userId);
+
+        // 3. Run the turn against the conversation state
+        ChatMessage botMessage = respond(state, userMessageText);
+        // Assign the id now so the early reply carries the id it is stored under
+        botMessage.setId(new ObjectId().toHexString());
+        replyListener.accept(botMessage);
 
-        // 3. Update conversation state with user's message
-        state.addToHistory("User: " + userMessageText);
+        // 4. Persist both messages in one batch, the state is written back by the cache
+        chatMessageWriter.write(List.of(userMessage, botMessage));
+        conversationStateCache.markDirty(state);
+
+        return botMessage;
+    }
+
+    /**
+     * Run one chat turn against a conversation state: record the user message, generate
+     * the reply and record it too. Nothing is persisted, so blocking and reactive callers
+     * can share the dialog logic.
+     * @param state The conversation state of the user
+     * @param userMessageText The user's message
+     * @return The bot's reply message, not yet saved
+     */
+    public ChatMessage respond(ConversationState state, String userMessageText) {
+        // Update conversation state with user's message
+        state.addToHistory(ConversationState.USER_ENTRY, userMessageText, historyMaxTurns * 2, historyMaxEntryLength);
         state.setLastInteractionTime(System.currentTimeMillis());
         // Example: Storing the raw user message for context
         state.setContextValue("last_user_message_text", userMessageText);
-        conversationStateRepository.save(state);
 
-        // 4. Generate bot reply using conversation state
+        // Generate bot reply using conversation state
         String botReplyText = generateBotReply(state, userMessageText); // Pass state and original message
+        ChatMessage botMessage = new ChatMessage(state.getUserId(), botReplyText, "bot");
 
-        // 5. Save bot message
-        ChatMessage botMessage = new ChatMessage(userId, botReplyText, "bot");
-        chatMessageRepository.save(botMessage);
-
-        // 6. Update conversation state with bot's message
-        state.addToHistory("Bot: " + botReplyText);
+        // Update conversation state with bot's message
+        state.addToHistory(ConversationState.BOT_ENTRY, botReplyText, historyMaxTurns * 2, historyMaxEntryLength);
         state.setLastInteractionTime(System.currentTimeMillis());
-        conversationStateRepository.save(state);
-
         return botMessage;
     }
     
     /**
-     * Retrieve chat history for a specific user
+     * Retrieve chat history for a specific user, archived messages included
      * @param userId The user ID
      * @return List of chat messages for the user
      */
     public List<ChatMessage> getChatHistoryByUserId(String userId) {
-        return chatMessageRepository.findByUserIdOrderByTimestampAsc(userId);
+        try (Stream<ChatMessage> messages = streamChatHistoryByUserId(userId)) {
+            return messages.toList();
+        }
+    }
+
+    /**
+     * Retrieve one page of chat history, oldest first, using keyset pagination
+     * @param userId The user ID
+     * @param cursor The nextCursor of the previous page, or null for the first page
+     * @param limit Maximum number of messages in the page
+     * @return The page with the cursor of the following page
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    public ChatHistoryPage getChatHistoryPage(String userId, String cursor, int limit) {
+        // Fetch one extra message to know whether another page follows
+        ChatMessage after = null;
+        if (cursor != null && !cursor.isEmpty()) {
+            String[] position = decodeCursor(cursor);
+            after = new ChatMessage();
+            after.setTimestamp(LocalDateTime.parse(position[0]));
+            after.setId(position[1]);
+        }
+
+        // Archived messages come first; the hot ones continue after the last archived message
+        List<ChatMessage> messages = new ArrayList<>(chatArchiveService.findArchivedMessagesAfter(userId, after, limit + 1));
+        if (messages.size() <= limit) {
+            if (!messages.isEmpty()) {
+                after = messages.get(messages.size() - 1);
+            }
+            messages.addAll(chatMessageStore.findAfter(userId, after, limit + 1 - messages.size()));
+        }
+
+        String nextCursor = null;
+        if (messages.size() > limit) {
+            messages = messages.subList(0, limit);
+            ChatMessage last = messages.get(limit - 1);
+            nextCursor = encodeCursor(last.getTimestamp(), last.getId());
+        }
+        return new ChatHistoryPage(messages, nextCursor);
+    }
+
+    /**
+     * Retrieve the most recent messages of a user
+     * @param userId The user ID
+     * @param limit Number of messages to return
+     * @return The most recent messages, newest first
+     */
+    public List<ChatMessage> getRecentMessages(String userId, int limit) {
+        List<ChatMessage> messages = chatMessageStore.findLatest(userId, limit);
+        if (messages.size() == limit) {
+            return messages;
+        }
+        // All hot messages are here, the rest comes from before the oldest of them
+        List<ChatMessage> recent = new ArrayList<>(messages);
+        ChatMessage before = recent.isEmpty() ? null : recent.get(recent.size() - 1);
+        recent.addAll(chatArchiveService.findArchivedMessagesBefore(userId, before, limit - recent.size()));
+        return recent;
+    }
+
+    /**
+     * Stream the full chat history of a user, oldest first, without loading it into memory.
+     * Archived messages are read first, then the hot messages after the last archived one.
+     * @param userId The user ID
+     * @return Stream of messages, must be closed by the caller
+     */
+    public Stream<ChatMessage> streamChatHistoryByUserId(String userId) {
+        AtomicReference<ChatMessage> lastArchived = new AtomicReference<>();
+        AtomicReference<Stream<ChatMessage>> hotCursor = new AtomicReference<>();
+        Stream<ChatMessage> archived = chatArchiveService.streamArchivedMessages(userId).peek(lastArchived::set);
+        // The hot query is only run once the archive is exhausted
+        Stream<ChatMessage> hot = StreamSupport.stream(() -> {
+            hotCursor.set(chatMessageStore.streamAfter(userId, lastArchived.get()));
+            return hotCursor.get().spliterator();
+        }, Spliterator.ORDERED, false).onClose(() -> {
+            if (hotCursor.get() != null) {
+                hotCursor.get().close();
+            }
+        });
+        return Stream.concat(archived, hot);
+    }
+
+    private static String encodeCursor(LocalDateTime timestamp, String id) {
+        String position = timestamp + "_" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String[] decodeCursor(String cursor) {
+        try {
+            String position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = position.split("_", 2);
+            if (parts.length != 2 || !ObjectId.isValid(parts[1])) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            LocalDateTime.parse(parts[0]);
+            return parts;
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
     }
     
     /**
@@ -101,243 +312,230 @@ public class ChatService {
      */
     public String generateBotReply(ConversationState state, String userMessageText) {
         String msg = userMessageText.toLowerCase();
-        String lastIntent = (String) state.getContextValue("last_intent");
+        IntentMatch match = intentMatcher.match(userMessageText);
+        DialogState lastState = DialogState.fromKey((String) state.getContextValue("last_intent"));
         String groupType = (String) state.getContextValue("groupType");
 
         // --- Enhanced Greetings ---
-        if (msg.matches(".*\\b(hello|hi|hey|good morning|good evening)\\b.*") && (lastIntent == null || !lastIntent.startsWith("await_"))) {
+        if (match.has(ChatIntent.GREETING) && (lastState == null || !lastState.isAwaiting())) {
             state.reset(); // Reset state on new greeting if not in an active flow
-            state.setContextValue("last_intent", "greet");
+            setDialogState(state, DialogState.GREET);
             return "Hey there! 😊 Welcome to Amusement Park Chat! You can ask about 🎢 rides, 🎟️ tickets, 🍔 food stalls, or park 🕒 timings.";
         }
 
         // --- Enhanced Ticket Intent Recognition ---
-        boolean isNewTicketKeyword = msg.matches(".*\\b(ticket|buy|purchase|entry|pass|booking)\\b.*");
-
-        if (isNewTicketKeyword) { // If user mentions ticket keyword, we re-evaluate the ticket intent start.
-            state.setContextValue("last_intent", "buy_ticket");
-            lastIntent = "buy_ticket"; // Reset to the beginning of ticket flow
-
+        if (match.has(ChatIntent.TICKET)) { // If user mentions ticket keyword, we re-evaluate the ticket intent start.
             // Check if the current message *also* specifies a group type
-            if (msg.contains("friend")) {
-                state.setContextValue("groupType", "friends");
-                groupType = "friends";
-                state.setContextValue("last_intent", "await_friends_adult_status_confirmation");
-                lastIntent = "await_friends_adult_status_confirmation";
-            } else if (msg.contains("family")) {
-                state.setContextValue("groupType", "family");
-                groupType = "family";
-                state.setContextValue("last_intent", "await_family_composition");
-                lastIntent = "await_family_composition";
-            } else if (msg.contains("alone") || msg.contains("myself") || msg.contains("just me") || msg.contains("solo")) {
-                state.setContextValue("groupType", "solo");
-                groupType = "solo";
-                state.setContextValue("adults", 1);
-                state.setContextValue("children", 0);
-                state.setContextValue("last_intent", "suggest_solo_ticket_options");
-                lastIntent = "suggest_solo_ticket_options";
-            } else {
+            lastState = applyGroupType(state, match);
+            if (lastState == null) {
                 // Ticket keyword mentioned, but no group type in this specific message.
                 // Clear previous groupType so it's asked again.
                 state.setContextValue("groupType", null);
-                groupType = null;
-                // lastIntent remains "buy_ticket", which will lead to asking group type.
+                lastState = DialogState.BUY_TICKET; // Leads to asking the group type
             }
+            setDialogState(state, lastState);
+            groupType = (String) state.getContextValue("groupType");
         }
 
-        boolean inTicketFlow = lastIntent != null && 
-                               (lastIntent.equals("buy_ticket") || 
-                                lastIntent.startsWith("await_") || 
-                                lastIntent.equals("group_details") || 
-                                lastIntent.equals("suggest_solo_ticket_options") ||
-                                lastIntent.equals("group_details_updated"));
-
-        if (inTicketFlow) {
+        if (lastState != null && lastState.isTicketFlow()) {
             // 1. Determine Group Type if not set or clarification needed
-            if (groupType == null || "await_group_type_clarification".equals(lastIntent)) {
-                if (msg.contains("friend")) {
-                    state.setContextValue("groupType", "friends");
-                    groupType = "friends";
-                    state.setContextValue("last_intent", "await_friends_adult_status_confirmation");
-                    lastIntent = "await_friends_adult_status_confirmation";
-                    return "Are all your friends adults?";
-                } else if (msg.contains("family")) {
-                    state.setContextValue("groupType", "family");
-                    groupType = "family";
-                    state.setContextValue("last_intent", "await_family_composition");
-                    lastIntent = "await_family_composition";
-                    return "How many adults and how many children will be joining?";
-                } else if (msg.contains("alone") || msg.contains("myself") || msg.contains("just me") || msg.contains("solo")) {
-                    state.setContextValue("groupType", "solo");
-                    groupType = "solo";
-                    state.setContextValue("adults", 1);
-                    state.setContextValue("children", 0);
-                    state.setContextValue("last_intent", "suggest_solo_ticket_options");
-                    lastIntent = "suggest_solo_ticket_options";
-                    return "You can choose from Silver, Gold, or Diamond passes. Want help deciding?";
-                } else { // If the current message didn't clarify group type or it's a fresh "buy_ticket" intent
-                    state.setContextValue("last_intent", "await_group_type_clarification");
-                    return "Are you visiting alone, with friends, or with family?";
-                }
+            if (groupType == null || lastState == DialogState.AWAIT_GROUP_TYPE_CLARIFICATION) {
+                return askGroupType(state, match);
             }
 
-            // 2. Process based on groupType and lastIntent
-            if ("friends".equals(groupType)) {
-                if ("await_friends_adult_status_confirmation".equals(lastIntent)) {
-                    if (msg.contains("yes") || msg.contains("yeah") || msg.contains("yep")) {
-                        state.setContextValue("friends_are_adults", true);
-                        state.setContextValue("last_intent", "await_friends_count");
-                        return "Great! How many friends will be joining you?";
-                    } else if (msg.contains("no") || msg.contains("nope")) {
-                        state.setContextValue("friends_are_adults", false);
-                        state.setContextValue("last_intent", "await_friends_mixed_composition");
-                        return "Okay. Please tell me how many adults and how many children are in your group of friends.";
-                    } else {
-                        return "Sorry, I didn't catch that. Are all your friends adults? (yes/no)";
-                    }
-                } else if ("await_friends_count".equals(lastIntent)) {
-                    int numberOfFriends = extractNumberFromText(msg, "");
-                    if (numberOfFriends > 0) {
-                        state.setContextValue("adults", numberOfFriends + 1); // User + friends
-                        state.setContextValue("children", 0);
-                        state.setContextValue("last_intent", "group_details_updated");
-                        return suggestTicketsAndRides(state);
-                    } else {
-                        return "Please tell me the number of friends joining you.";
-                    }
-                } else if ("await_friends_mixed_composition".equals(lastIntent)) {
-                    int adultsInFriendsGroup = extractNumberFromText(msg, "adult");
-                    int childrenInFriendsGroup = extractNumberFromText(msg, "child");
-                    if (adultsInFriendsGroup == 0 && childrenInFriendsGroup == 0 && msg.matches(".*\\d+.*")) { // If no keywords but numbers exist
-                        // Try to parse two numbers or one, this is a simplification
-                        // A more robust parser would be needed for "2 adults 1 child" vs "2 and 1"
-                        // For now, let's assume if one number, it's adults, if two, first is adults, second children
-                        // This is a heuristic and might need refinement.
-                        int[] numbers = extractMultipleNumbers(msg, 2);
-                        if (numbers.length >= 1) adultsInFriendsGroup = numbers[0];
-                        if (numbers.length >= 2) childrenInFriendsGroup = numbers[1];
-                    }
-
-                    if (adultsInFriendsGroup > 0 || childrenInFriendsGroup > 0) {
-                        state.setContextValue("adults", adultsInFriendsGroup + 1); // +1 for the user
-                        state.setContextValue("children", childrenInFriendsGroup);
-                        if (childrenInFriendsGroup > 0) {
-                            state.setContextValue("last_intent", "await_children_height_confirmation");
-                            return "Are the children in your group shorter than 2.5 ft in height?";
-                        } else {
-                            state.setContextValue("last_intent", "group_details_updated");
-                            return suggestTicketsAndRides(state);
-                        }
-                    } else {
-                        return "Please specify the number of adults and children among your friends.";
-                    }
+            // 2. Dispatch to the handler of the current state
+            TicketFlowHandler handler = ticketFlowHandlers.get(lastState);
+            if (handler != null) {
+                String reply = handler.handle(state, msg, match);
+                if (reply != null) {
+                    return reply;
                 }
-            } else if ("family".equals(groupType)) {
-                if ("await_family_composition".equals(lastIntent)) {
-                    int adults = extractNumberFromText(msg, "adult");
-                    int children = extractNumberFromText(msg, "child");
-                    if (adults == 0 && children == 0 && msg.matches(".*\\d+.*")) {
-                        int[] numbers = extractMultipleNumbers(msg, 2);
-                        if (numbers.length >= 1) adults = numbers[0]; // Assume first number is adults if not specified
-                        if (numbers.length >= 2) children = numbers[1];
-                    }
-
-                    if (adults > 0 || children > 0) {
-                        state.setContextValue("adults", adults);
-                        state.setContextValue("children", children);
-                        if (children > 0) {
-                            state.setContextValue("last_intent", "await_children_height_confirmation");
-                            return "Are the children shorter than 2.5 ft in height?";
-                        } else {
-                            state.setContextValue("last_intent", "group_details_updated");
-                            return suggestTicketsAndRides(state);
-                        }
-                    } else {
-                        return "Please tell me how many adults and children will be joining.";
-                    }
-                } else if ("await_children_height_confirmation".equals(lastIntent)) {
-                    if (msg.contains("yes") || msg.contains("yeah") || msg.contains("yep")) {
-                        state.setContextValue("childrenFree", true);
-                    } else if (msg.contains("no") || msg.contains("nope")) {
-                        state.setContextValue("childrenFree", false);
-                    } else {
-                        return "Sorry, I didn't catch that. Are the children shorter than 2.5 ft? (yes/no)";
-                    }
-                    state.setContextValue("last_intent", "group_details_updated");
-                    return suggestTicketsAndRides(state);
-                }
-            } else if ("solo".equals(groupType)) {
-                if ("suggest_solo_ticket_options".equals(lastIntent)) {
-                    if (msg.contains("yes") || msg.contains("help") || msg.contains("decide") || msg.matches(".*\\b(silver|gold|diamond)\\b.*")) {
-                        if(msg.matches(".*\\b(silver|gold|diamond)\\b.*")){
-                            state.setContextValue("preferredPass", msg.replaceAll(".*\\b(silver|gold|diamond)\\b.*", "$1"));
-                        }
-                        return suggestTicketsAndRides(state);
-                    } else {
-                         // If user says something else, or just 'no' to help, still suggest general options
-                        return suggestTicketsAndRides(state);
-                    }
-                }
-                 // If groupType is solo and adults/children already set, can directly suggest
-                return suggestTicketsAndRides(state);
             }
             // If in ticket flow but no specific sub-handler matched, could be an unexpected response
             // The specific handlers should provide re-prompts. If we reach here, it's a gap or user changed topic.
         }
 
         // --- Enhanced Ride Info Intent --- (Allow breaking out of ticket flow if specifically asked)
-        if (msg.matches(".*\\b(ride|rides|rollercoaster|attraction|thrill)\\b.*")) {
-            List<Ride> rides = rideService.getAllRides();
-            return rides.isEmpty() ? "Sorry, we currently don't have ride info." : summarizeRides(rides);
+        if (match.has(ChatIntent.RIDE)) {
+            return chatReplyTemplates.getRidesSummary();
         }
 
         // --- Food Options ---
-        if (msg.matches(".*\\b(food|eat|restaurant|snack|lunch|dinner|meal)\\b.*")) {
+        if (match.has(ChatIntent.FOOD)) {
             return "Hungry? 🍕 We have stalls like 'Pizza Paradise', 'Park Diner', and 'Spicy Grill'. Veg & non-veg options available!";
         }
 
         // --- Time Info ---
-        if (msg.matches(".*\\b(time|timing|open|closing|hours)\\b.*")) {
+        if (match.has(ChatIntent.TIMING)) {
             return "⏰ We're open daily from 11:00 AM to 7:00 PM during the summer season!";
         }
 
         // --- Polite Ending ---
-        if (msg.contains("thanks") || msg.contains("thank you")) {
-            if ("ticket_suggestion_provided".equals(lastIntent) || "greet".equals(lastIntent)) {
+        if (match.has(ChatIntent.THANKS)) {
+            if (lastState == DialogState.TICKET_SUGGESTION_PROVIDED || lastState == DialogState.GREET) {
                  state.reset(); // Reset if conversation segment concluded
             }
             return "You're welcome! 😊 Anything else you’d like to know?";
         }
 
-        if (msg.contains("bye") || msg.contains("goodbye") || msg.contains("see you")) {
+        if (match.has(ChatIntent.FAREWELL)) {
             state.reset();
             return "Goodbye! 🎉 Hope you have an amazing day at the park!";
         }
 
         // --- Fallback Intent --- 
-        // If still in an await state, the specific handler should have re-prompted.
-        // This is a more generic fallback if no other intent matched.
-        if (lastIntent != null && lastIntent.startsWith("await_")) {
-            // This means the user's response was not understood in the context of the current question.
-            // Re-prompt based on the question implied by lastIntent.
-            // Example: if lastIntent was await_friends_count, re-prompt for number of friends.
-            // This is a simplified fallback; ideally, each await state has its specific re-prompt.
-            if ("await_group_type_clarification".equals(lastIntent)) return "Are you visiting alone, with friends, or with family?";
-            if ("await_friends_adult_status_confirmation".equals(lastIntent)) return "Are all your friends adults? (yes/no)";
-            if ("await_friends_count".equals(lastIntent)) return "Please tell me the number of friends joining you.";
-            if ("await_family_composition".equals(lastIntent)) return "How many adults and how many children will be joining?";
-            if ("await_children_height_confirmation".equals(lastIntent)) return "Are the children shorter than 2.5 ft? (yes/no)";
-            // Add more specific re-prompts if needed
+        // If still in an await state, the user's response was not understood in the context
+        // of the current question, so repeat the question implied by that state.
+        if (lastState != null && lastState.getReprompt() != null) {
+            return lastState.getReprompt();
         }
 
         return "Hmm 🤔 I didn't quite get that. You can ask about 🎢 rides, 🎟️ tickets, 🍔 food stalls, or park 🕒 timings.";
     }
 
+    private void setDialogState(ConversationState state, DialogState dialogState) {
+        state.setContextValue("last_intent", dialogState.getKey());
+    }
+
+    /**
+     * Store the group type mentioned in the message
+     * @return The state that continues the flow for that group, or null if no group type was mentioned
+     */
+    private DialogState applyGroupType(ConversationState state, IntentMatch match) {
+        if (match.has(ChatIntent.FRIENDS)) {
+            state.setContextValue("groupType", "friends");
+            return DialogState.AWAIT_FRIENDS_ADULT_STATUS_CONFIRMATION;
+        } else if (match.has(ChatIntent.FAMILY)) {
+            state.setContextValue("groupType", "family");
+            return DialogState.AWAIT_FAMILY_COMPOSITION;
+        } else if (match.has(ChatIntent.SOLO)) {
+            state.setContextValue("groupType", "solo");
+            state.setContextValue("adults", 1);
+            state.setContextValue("children", 0);
+            return DialogState.SUGGEST_SOLO_TICKET_OPTIONS;
+        }
+        return null;
+    }
+
+    private String askGroupType(ConversationState state, IntentMatch match) {
+        DialogState next = applyGroupType(state, match);
+        if (next == null) { // The current message didn't clarify group type or it's a fresh "buy_ticket" intent
+            next = DialogState.AWAIT_GROUP_TYPE_CLARIFICATION;
+        }
+        setDialogState(state, next);
+        switch (next) {
+            case AWAIT_FRIENDS_ADULT_STATUS_CONFIRMATION:
+                return "Are all your friends adults?";
+            case AWAIT_FAMILY_COMPOSITION:
+                return "How many adults and how many children will be joining?";
+            case SUGGEST_SOLO_TICKET_OPTIONS:
+                return "You can choose from Silver, Gold, or Diamond passes. Want help deciding?";
+            default:
+                return next.getReprompt();
+        }
+    }
+
+    private String handleFriendsAdultStatus(ConversationState state, String msg, IntentMatch match) {
+        if (match.has(ChatIntent.AFFIRMATIVE)) {
+            state.setContextValue("friends_are_adults", true);
+            setDialogState(state, DialogState.AWAIT_FRIENDS_COUNT);
+            return "Great! How many friends will be joining you?";
+        } else if (match.has(ChatIntent.NEGATIVE)) {
+            state.setContextValue("friends_are_adults", false);
+            setDialogState(state, DialogState.AWAIT_FRIENDS_MIXED_COMPOSITION);
+            return "Okay. Please tell me how many adults and how many children are in your group of friends.";
+        }
+        return "Sorry, I didn't catch that. Are all your friends adults? (yes/no)";
+    }
+
+    private String handleFriendsCount(ConversationState state, String msg, IntentMatch match) {
+        int numberOfFriends = extractNumberFromText(msg, "");
+        if (numberOfFriends > 0) {
+            state.setContextValue("adults", numberOfFriends + 1); // User + friends
+            state.setContextValue("children", 0);
+            setDialogState(state, DialogState.GROUP_DETAILS_UPDATED);
+            return suggestTicketsAndRides(state);
+        }
+        return "Please tell me the number of friends joining you.";
+    }
+
+    private String handleFriendsMixedComposition(ConversationState state, String msg, IntentMatch match) {
+        int adultsInFriendsGroup = extractNumberFromText(msg, "adult");
+        int childrenInFriendsGroup = extractNumberFromText(msg, "child");
+        if (adultsInFriendsGroup == 0 && childrenInFriendsGroup == 0 && match.hasDigits()) { // If no keywords but numbers exist
+            // Try to parse two numbers or one, this is a simplification
+            // A more robust parser would be needed for "2 adults 1 child" vs "2 and 1"
+            // For now, let's assume if one number, it's adults, if two, first is adults, second children
+            // This is a heuristic and might need refinement.
+            int[] numbers = extractMultipleNumbers(msg, 2);
+            if (numbers.length >= 1) adultsInFriendsGroup = numbers[0];
+            if (numbers.length >= 2) childrenInFriendsGroup = numbers[1];
+        }
+
+        if (adultsInFriendsGroup > 0 || childrenInFriendsGroup > 0) {
+            state.setContextValue("adults", adultsInFriendsGroup + 1); // +1 for the user
+            state.setContextValue("children", childrenInFriendsGroup);
+            if (childrenInFriendsGroup > 0) {
+                setDialogState(state, DialogState.AWAIT_CHILDREN_HEIGHT_CONFIRMATION);
+                return "Are the children in your group shorter than 2.5 ft in height?";
+            }
+            setDialogState(state, DialogState.GROUP_DETAILS_UPDATED);
+            return suggestTicketsAndRides(state);
+        }
+        return "Please specify the number of adults and children among your friends.";
+    }
+
+    private String handleFamilyComposition(ConversationState state, String msg, IntentMatch match) {
+        int adults = extractNumberFromText(msg, "adult");
+        int children = extractNumberFromText(msg, "child");
+        if (adults == 0 && children == 0 && match.hasDigits()) {
+            int[] numbers = extractMultipleNumbers(msg, 2);
+            if (numbers.length >= 1) adults = numbers[0]; // Assume first number is adults if not specified
+            if (numbers.length >= 2) children = numbers[1];
+        }
+
+        if (adults > 0 || children > 0) {
+            state.setContextValue("adults", adults);
+            state.setContextValue("children", children);
+            if (children > 0) {
+                setDialogState(state, DialogState.AWAIT_CHILDREN_HEIGHT_CONFIRMATION);
+                return "Are the children shorter than 2.5 ft in height?";
+            }
+            setDialogState(state, DialogState.GROUP_DETAILS_UPDATED);
+            return suggestTicketsAndRides(state);
+        }
+        return "Please tell me how many adults and children will be joining.";
+    }
+
+    private String handleChildrenHeight(ConversationState state, String msg, IntentMatch match) {
+        if (match.has(ChatIntent.AFFIRMATIVE)) {
+            state.setContextValue("childrenFree", true);
+        } else if (match.has(ChatIntent.NEGATIVE)) {
+            state.setContextValue("childrenFree", false);
+        } else {
+            return "Sorry, I didn't catch that. Are the children shorter than 2.5 ft? (yes/no)";
+        }
+        setDialogState(state, DialogState.GROUP_DETAILS_UPDATED);
+        return suggestTicketsAndRides(state);
+    }
+
+    private String handleSoloOptions(ConversationState state, String msg, IntentMatch match) {
+        if (match.getPassTier() != null) {
+            state.setContextValue("preferredPass", match.getPassTier());
+        }
+        // Whether the user asks for help, names a pass or says something else, suggest options
+        return suggestTicketsAndRides(state);
+    }
+
+    private String handleGroupDetails(ConversationState state, String msg, IntentMatch match) {
+        // If groupType is solo and adults/children already set, can directly suggest
+        return "solo".equals(state.getContextValue("groupType")) ? suggestTicketsAndRides(state) : null;
+    }
+
     // Helper method to extract multiple numbers, very basic
     private int[] extractMultipleNumbers(String text, int maxNumbers) {
-        java.util.regex.Pattern pattern = java.util.regex.Pattern.compile("\\d+");
-        java.util.regex.Matcher matcher = pattern.matcher(text);
-        java.util.List<Integer> numbers = new java.util.ArrayList<>();
+        Matcher matcher = NUMBER.matcher(text);
+        List<Integer> numbers = new ArrayList<>();
         while (matcher.find() && numbers.size() < maxNumbers) {
             numbers.add(Integer.parseInt(matcher.group()));
         }
@@ -347,18 +545,18 @@ public class ChatService {
     private int extractNumberFromText(String msg, String keyword) {
         msg = msg.toLowerCase();
         if (msg.contains(keyword)) {
-            String[] words = msg.split("\\s+"); // Split by any whitespace
+            String[] words = WHITESPACE.split(msg); // Split by any whitespace
             for (int i = 0; i < words.length; i++) {
                 // Check if the keyword (or its plural) is present and a number precedes it
                 if ((words[i].startsWith(keyword)) && i > 0) {
                     try {
-                        return Integer.parseInt(words[i - 1].replaceAll("[^0-9]", ""));
+                        return Integer.parseInt(NON_DIGIT.matcher(words[i - 1]).replaceAll(""));
                     } catch (NumberFormatException ignored) {}
                 }
                 // Check if a number is followed by the keyword
                 if (i + 1 < words.length && words[i+1].startsWith(keyword)) {
                      try {
-                        return Integer.parseInt(words[i].replaceAll("[^0-9]", ""));
+                        return Integer.parseInt(NON_DIGIT.matcher(words[i]).replaceAll(""));
                     } catch (NumberFormatException ignored) {}
                 }
             }
@@ -366,36 +564,16 @@ public class ChatService {
         // Fallback: if no keyword, try to extract first number if context implies quantity
         // This is a simplistic fallback, real NLP would be better.
         if (keyword.isEmpty()) { 
-            String[] words = msg.split("\\s+");
+            String[] words = WHITESPACE.split(msg);
             for (String word : words) {
                 try {
-                    return Integer.parseInt(word.replaceAll("[^0-9]", ""));
+                    return Integer.parseInt(NON_DIGIT.matcher(word).replaceAll(""));
                 } catch (NumberFormatException ignored) {}
             }
         }
         return 0; // default
     }
 
-    private String summarizeRides(List<Ride> rides) {
-        if (rides == null || rides.isEmpty()) {
-            return "We currently don't have information on rides. Please check back later!";
-        }
-        String rideDetails = rides.stream()
-            .collect(Collectors.groupingBy(Ride::getCategory))
-            .entrySet().stream()
-            .map(entry -> {
-                String categoryName = entry.getKey();
-                // Basic capitalization for category
-                if (categoryName != null && !categoryName.isEmpty()) {
-                    categoryName = categoryName.substring(0, 1).toUpperCase() + categoryName.substring(1).toLowerCase();
-                }
-                String rideNames = entry.getValue().stream().map(Ride::getName).collect(Collectors.joining(", "));
-                return String.format("%s Rides: %s.", categoryName, rideNames);
-            })
-            .collect(Collectors.joining("\n"));
-        return "We have " + rides.size() + " exciting rides at our amusement park across several categories:\n\n" + rideDetails;
-    }
-
     private String suggestTicketsAndRides(ConversationState context) {
         Object adultsObj = context.getContextValue("adults");
         Object childrenObj = context.getContextValue("children");
@@ -423,7 +601,7 @@ public class ChatService {
         if (adults == 0 && "solo".equals(context.getContextValue("groupType"))) adults = 1;
 
 
-        StringBuilder sb = new StringBuilder();
+        StringBuilder sb = new StringBuilder(512);
         sb.append("Great! Based on your information");
 
         if (adults > 0) {
@@ -444,21 +622,11 @@ public class ChatService {
         }
 
 
-        // Fetch all ticket types to give price examples
-        List<TicketType> allTicketTypes = ticketTypeService.getAllTicketTypes();
-        if (!allTicketTypes.isEmpty()) {
-            sb.append("\nTicket Price Examples (per person):");
-            allTicketTypes.stream()
-                .filter(tt -> tt.getName().equalsIgnoreCase("Gold") || tt.getName().equalsIgnoreCase("Diamond") || tt.getName().equalsIgnoreCase("Silver"))
-                .forEach(tt -> sb.append(String.format("- %s Ticket: Rs %.2f\n", tt.getName(), tt.getPrice())));
-        }
-
-        sb.append("\n🎢 Recommended rides for adults: Thunder Coaster, Sky Drop\n");
-        sb.append("🎠 For children: Mini Carousel, Water Splash\n");
-        sb.append("🍔 Food stalls nearby: Burger Bonanza, Candy Corner\n");
-        sb.append("\nWould you like to proceed with a booking or ask something else?");
+        // Price examples and closing lines are prebuilt per catalog version
+        sb.append(chatReplyTemplates.getTicketPrices());
+        sb.append(chatReplyTemplates.getSuggestionFooter());
 
-        context.setContextValue("last_intent", "ticket_suggestion_provided"); // Update intent
+        setDialogState(context, DialogState.TICKET_SUGGESTION_PROVIDED); // Update intent
         return sb.toString();
     }
 
@@ -0,0 +1,97 @@
+package com.amusementpark.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Runs chat turns so that the turns of one user never overlap. Users are spread over a
+ * fixed number of stripes by the hash of their user ID; each stripe is a single thread
+ * with its own bounded mailbox. Two messages from the same user (double taps, several
+ * tabs) are therefore applied to the conversation state one after the other in arrival
+ * order, while users on different stripes are processed in parallel.
+ *
+ * Depends on the {@link ChatMessageWriter} so that it is stopped first: turns still queued
+ * at shutdown finish while the writer can flush their messages.
+ */
+@Service
+@DependsOn("chatMessageWriter")
+public class ChatTurnExecutor {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChatTurnExecutor.class);
+
+    @Value("${chat.turns.stripes:32}")
+    private int stripeCount;
+
+    @Value("${chat.turns.queue-capacity:1000}")
+    private int queueCapacity;
+
+    private ThreadPoolExecutor[] stripes;
+
+    @PostConstruct
+    public void start() {
+        stripes = new ThreadPoolExecutor[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            String name = "chat-turn-" + i;
+            stripes[i] = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                        Thread thread = new Thread(runnable, name);
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+        }
+        logger.info("Chat turns run on {} stripes", stripeCount);
+    }
+
+    /**
+     * Queue a turn behind the earlier turns of the same user
+     * @param userId The user ID, selects the stripe
+     * @param turn The work of the turn
+     * @return Completes with the result of the turn
+     * @throws java.util.concurrent.RejectedExecutionException if the stripe's mailbox is full
+     */
+    public <T> CompletableFuture<T> submit(String userId, Supplier<T> turn) {
+        return CompletableFuture.supplyAsync(turn, stripeFor(userId));
+    }
+
+    /**
+     * @return Number of turns waiting in all mailboxes
+     */
+    public int getQueuedTurns() {
+        int queued = 0;
+        for (ThreadPoolExecutor stripe : stripes) {
+            queued += stripe.getQueue().size();
+        }
+        return queued;
+    }
+
+    /**
+     * Let queued turns finish before the application shuts down
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        for (ThreadPoolExecutor stripe : stripes) {
+            stripe.shutdown();
+        }
+        for (ThreadPoolExecutor stripe : stripes) {
+            stripe.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+
+    private ThreadPoolExecutor stripeFor(String userId) {
+        // Spread the hash bits first, user IDs often share long prefixes
+        int hash = userId.hashCode();
+        hash ^= (hash >>> 16);
+        return stripes[Math.floorMod(hash, stripes.length)];
+    }
+}
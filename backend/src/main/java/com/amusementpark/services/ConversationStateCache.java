@@ -0,0 +1,325 @@
+package com.amusementpark.services;
+
+import com.amusementpark.models.ConversationState;
+import com.amusementpark.repositories.ConversationStateRepository;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-process cache of conversation states in front of {@link ConversationStateRepository}.
+ * Changed states are only marked dirty; they are written back by the periodic checkpoint
+ * or when they are evicted, either for being idle longer than the TTL (based on
+ * lastInteractionTime) or to keep the cache within its maximum size.
+ *
+ * Turns change a state on the user's {@link ChatTurnExecutor} stripe, so everything that
+ * reads a cached state for writing it back runs on that stripe too: the checkpoint saves
+ * copies taken there, and an eviction writes the state back and only then removes it from
+ * the cache. A load after an eviction therefore always finds the latest state. A new state
+ * gets its ID there before its first save, since only a copy is saved and the ID generated
+ * on insert would not reach the cached state.
+ */
+@Service
+public class ConversationStateCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConversationStateCache.class);
+
+    // Share of the maximum size evicted at once when the cache is full, so the scan for the
+    // least recently active entries is paid once per that many additions
+    private static final int EVICTION_BATCH_DIVISOR = 100;
+
+    @Autowired
+    private ConversationStateRepository conversationStateRepository;
+
+    @Autowired
+    private ChatTurnExecutor chatTurnExecutor;
+
+    @Value("${chat.state-cache.max-entries:10000}")
+    private int maxEntries;
+
+    @Value("${chat.state-cache.idle-ttl-ms:1800000}")
+    private long idleTtlMs;
+
+    private final Map<String, CachedState> entries = new ConcurrentHashMap<>();
+
+    // Entries queued for eviction, they no longer count against the maximum size
+    private final AtomicInteger pendingEvictions = new AtomicInteger();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder writes = new LongAdder();
+
+    private static final class CachedState {
+        private final ConversationState state;
+        private volatile boolean dirty;
+        private volatile boolean evicting;
+
+        private CachedState(ConversationState state) {
+            this.state = state;
+        }
+    }
+
+    /**
+     * Get the conversation state of a user, loading or creating it on a miss
+     * @param userId The user ID
+     * @return The cached conversation state
+     */
+    public ConversationState get(String userId) {
+        ConversationState cached = getIfPresent(userId);
+        if (cached != null) {
+            return cached;
+        }
+        ConversationState state = conversationStateRepository.findByUserId(userId);
+        return add(state != null ? state : new ConversationState(userId));
+    }
+
+    /**
+     * Get the conversation state of a user only if it is cached
+     * @param userId The user ID
+     * @return The cached conversation state, or null
+     */
+    public ConversationState getIfPresent(String userId) {
+        CachedState cached = entries.get(userId);
+        if (cached == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return cached.state;
+    }
+
+    /**
+     * Cache a conversation state the caller loaded after a miss, e.g. through the
+     * reactive repository. If another request cached the user's state meanwhile,
+     * that state wins so all turns keep working on the same instance.
+     * @param state The loaded or newly created state
+     * @return The cached conversation state
+     */
+    public ConversationState add(ConversationState state) {
+        if (entries.size() - pendingEvictions.get() >= maxEntries) {
+            evictLeastRecentlyActive();
+        }
+        CachedState existing = entries.putIfAbsent(state.getUserId(), new CachedState(state));
+        return existing != null ? existing.state : state;
+    }
+
+    /**
+     * Record that a conversation state changed and must be written back
+     * @param state The changed state
+     */
+    public void markDirty(ConversationState state) {
+        entries.compute(state.getUserId(), (userId, cached) -> {
+            // The entry may have been evicted while the turn was running
+            if (cached == null || cached.state != state) {
+                cached = new CachedState(state);
+            }
+            cached.dirty = true;
+            return cached;
+        });
+    }
+
+    /**
+     * Write back dirty states and evict the ones that have been idle longer than the TTL
+     */
+    @Scheduled(fixedDelayString = "${chat.state-cache.checkpoint-interval-ms:30000}")
+    public void checkpoint() {
+        long idleBefore = System.currentTimeMillis() - idleTtlMs;
+        List<CachedState> toWrite = new ArrayList<>();
+        List<CachedState> idle = new ArrayList<>();
+        for (CachedState cached : entries.values()) {
+            if (cached.dirty) {
+                toWrite.add(cached);
+            }
+            if (cached.state.getLastInteractionTime() < idleBefore) {
+                idle.add(cached);
+            }
+        }
+        writeBack(toWrite);
+        for (CachedState cached : idle) {
+            evict(cached, idleBefore);
+        }
+    }
+
+    /**
+     * Write back all dirty states before the application shuts down
+     */
+    @PreDestroy
+    public void flush() {
+        List<CachedState> toWrite = new ArrayList<>();
+        for (CachedState cached : entries.values()) {
+            if (cached.dirty) {
+                toWrite.add(cached);
+            }
+        }
+        writeBack(toWrite);
+    }
+
+    /**
+     * @return Cache counters, used to size the cache for the visitor peak
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("size", entries.size());
+        stats.put("maxEntries", maxEntries);
+        stats.put("hits", hits.sum());
+        stats.put("misses", misses.sum());
+        stats.put("evictions", evictions.sum());
+        stats.put("writes", writes.sum());
+        return stats;
+    }
+
+    /**
+     * Evict the least recently active entries, a batch of them so the full scan is rare
+     */
+    private synchronized void evictLeastRecentlyActive() {
+        // Another caller may have queued enough evictions while this one waited
+        if (entries.size() - pendingEvictions.get() < maxEntries) {
+            return;
+        }
+        int batch = Math.max(1, maxEntries / EVICTION_BATCH_DIVISOR);
+        Comparator<CachedState> mostRecentFirst = Comparator.comparingLong(
+                (CachedState cached) -> cached.state.getLastInteractionTime()).reversed();
+        PriorityQueue<CachedState> victims = new PriorityQueue<>(batch + 1, mostRecentFirst);
+        for (CachedState cached : entries.values()) {
+            if (cached.evicting) {
+                continue;
+            }
+            victims.add(cached);
+            if (victims.size() > batch) {
+                victims.poll();
+            }
+        }
+        for (CachedState cached : victims) {
+            evict(cached, Long.MAX_VALUE);
+        }
+    }
+
+    /**
+     * Queue the eviction of an entry on its user's stripe. The state is written back there
+     * if it is dirty and the entry is only removed once that succeeded.
+     * @param cached The entry to evict
+     * @param idleBefore Keep the entry if it was active since, Long.MAX_VALUE to evict it anyway
+     */
+    private void evict(CachedState cached, long idleBefore) {
+        if (cached.evicting) {
+            return;
+        }
+        cached.evicting = true;
+        pendingEvictions.incrementAndGet();
+        String userId = cached.state.getUserId();
+        try {
+            chatTurnExecutor.submit(userId, () -> {
+                if (cached.state.getLastInteractionTime() >= idleBefore) {
+                    return null;
+                }
+                if (cached.dirty) {
+                    assignId(cached.state);
+                    conversationStateRepository.save(cached.state);
+                    cached.dirty = false;
+                    writes.increment();
+                }
+                if (entries.remove(userId, cached)) {
+                    evictions.increment();
+                }
+                return null;
+            }).whenComplete((ignored, e) -> {
+                if (e != null) {
+                    // Stays cached and dirty, the next checkpoint retries
+                    logger.error("Failed to write back the conversation state of {}", userId, e);
+                }
+                cached.evicting = false;
+                pendingEvictions.decrementAndGet();
+            });
+        } catch (RejectedExecutionException e) {
+            // The user's stripe is busy, the entry is picked again later
+            cached.evicting = false;
+            pendingEvictions.decrementAndGet();
+        }
+    }
+
+    /**
+     * Save copies of dirty states. Each copy is taken on its user's stripe, between turns,
+     * and the saves are done in one batch. If the batch fails the states are saved one by
+     * one, so a state that cannot be saved does not hold back the others.
+     */
+    private void writeBack(List<CachedState> toWrite) {
+        if (toWrite.isEmpty()) {
+            return;
+        }
+        List<CachedState> submitted = new ArrayList<>(toWrite.size());
+        List<CompletableFuture<ConversationState>> copies = new ArrayList<>(toWrite.size());
+        for (CachedState cached : toWrite) {
+            try {
+                copies.add(chatTurnExecutor.submit(cached.state.getUserId(), () -> {
+                    if (!cached.dirty) {
+                        return null;
+                    }
+                    cached.dirty = false;
+                    assignId(cached.state);
+                    return cached.state.copy();
+                }));
+                submitted.add(cached);
+            } catch (RejectedExecutionException e) {
+                // The user's stripe is busy, it stays dirty for the next checkpoint
+            }
+        }
+
+        List<CachedState> copied = new ArrayList<>(copies.size());
+        List<ConversationState> states = new ArrayList<>(copies.size());
+        for (int i = 0; i < copies.size(); i++) {
+            ConversationState state = copies.get(i).join();
+            if (state != null) {
+                copied.add(submitted.get(i));
+                states.add(state);
+            }
+        }
+        if (states.isEmpty()) {
+            return;
+        }
+        try {
+            conversationStateRepository.saveAll(states);
+            writes.add(states.size());
+        } catch (RuntimeException e) {
+            logger.warn("Failed to write back {} conversation state(s) at once, saving them one by one",
+                    states.size(), e);
+            for (int i = 0; i < states.size(); i++) {
+                try {
+                    conversationStateRepository.save(states.get(i));
+                    writes.increment();
+                } catch (RuntimeException single) {
+                    logger.error("Failed to write back the conversation state of {}", states.get(i).getUserId(), single);
+                    // Keep it dirty so the next checkpoint retries
+                    copied.get(i).dirty = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * Give a state that was never saved the ID it will be inserted with. Runs on the
+     * user's stripe, before the state or a copy of it is saved.
+     */
+    private static void assignId(ConversationState state) {
+        if (state.getId() == null) {
+            state.setId(new ObjectId().toHexString());
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.amusementpark.services;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * States of the chatbot conversation, stored under the "last_intent" context key.
+ * The keys are persisted with the conversation state, so they must not be renamed.
+ */
+public enum DialogState {
+    GREET("greet", false, null),
+    BUY_TICKET("buy_ticket", true, null),
+    GROUP_DETAILS("group_details", true, null),
+    GROUP_DETAILS_UPDATED("group_details_updated", true, null),
+    SUGGEST_SOLO_TICKET_OPTIONS("suggest_solo_ticket_options", true, null),
+    AWAIT_GROUP_TYPE_CLARIFICATION("await_group_type_clarification", true,
+            "Are you visiting alone, with friends, or with family?"),
+    AWAIT_FRIENDS_ADULT_STATUS_CONFIRMATION("await_friends_adult_status_confirmation", true,
+            "Are all your friends adults? (yes/no)"),
+    AWAIT_FRIENDS_COUNT("await_friends_count", true,
+            "Please tell me the number of friends joining you."),
+    AWAIT_FRIENDS_MIXED_COMPOSITION("await_friends_mixed_composition", true, null),
+    AWAIT_FAMILY_COMPOSITION("await_family_composition", true,
+            "How many adults and how many children will be joining?"),
+    AWAIT_CHILDREN_HEIGHT_CONFIRMATION("await_children_height_confirmation", true,
+            "Are the children shorter than 2.5 ft? (yes/no)"),
+    TICKET_SUGGESTION_PROVIDED("ticket_suggestion_provided", false, null);
+
+    private static final Map<String, DialogState> BY_KEY = new HashMap<>();
+
+    static {
+        for (DialogState state : values()) {
+            BY_KEY.put(state.key, state);
+        }
+    }
+
+    private final String key;
+    private final boolean ticketFlow;
+    private final boolean awaiting;
+    private final String reprompt;
+
+    DialogState(String key, boolean ticketFlow, String reprompt) {
+        this.key = key;
+        this.ticketFlow = ticketFlow;
+        this.awaiting = key.startsWith("await_");
+        this.reprompt = reprompt;
+    }
+
+    /**
+     * Look up a state by its persisted key
+     * @param key The "last_intent" value
+     * @return The matching state, or null if the key is null or unknown
+     */
+    public static DialogState fromKey(String key) {
+        return key == null ? null : BY_KEY.get(key);
+    }
+
+    /**
+     * @return The value stored under "last_intent"
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * @return True if this state belongs to the ticket booking flow
+     */
+    public boolean isTicketFlow() {
+        return ticketFlow;
+    }
+
+    /**
+     * @return True if the bot is waiting for an answer to a question
+     */
+    public boolean isAwaiting() {
+        return awaiting;
+    }
+
+    /**
+     * @return The question to repeat when the answer was not understood, or null
+     */
+    public String getReprompt() {
+        return reprompt;
+    }
+}
@@ -0,0 +1,96 @@
+package com.amusementpark.services;
+
+import com.amusementpark.models.ChatMessage;
+import com.amusementpark.repositories.ChatMessageRepository;
+import com.amusementpark.repositories.ReactiveChatMessageRepository;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Stores every chat message as its own document in chat_messages
+ */
+@Service
+@ConditionalOnProperty(name = "chat.storage.mode", havingValue = "documents", matchIfMissing = true)
+public class DocumentChatMessageStore implements ChatMessageStore {
+
+    @Autowired
+    private ChatMessageRepository chatMessageRepository;
+
+    @Autowired
+    private ReactiveChatMessageRepository reactiveChatMessageRepository;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Override
+    public void insert(List<ChatMessage> messages) {
+        mongoTemplate.insert(messages, ChatMessage.class);
+    }
+
+    @Override
+    public Mono<ChatMessage> insertReactive(ChatMessage message) {
+        return reactiveChatMessageRepository.insert(message);
+    }
+
+    @Override
+    public List<ChatMessage> findAfter(String userId, ChatMessage after, int limit) {
+        PageRequest pageable = PageRequest.of(0, limit);
+        return after == null
+                ? chatMessageRepository.findByUserIdOrderByTimestampAscIdAsc(userId, pageable)
+                : chatMessageRepository.findPageAfter(userId, after.getTimestamp(), new ObjectId(after.getId()), pageable);
+    }
+
+    @Override
+    public List<ChatMessage> findLatest(String userId, int limit) {
+        return chatMessageRepository.findByUserIdOrderByTimestampDesc(userId, PageRequest.of(0, limit));
+    }
+
+    @Override
+    public Stream<ChatMessage> streamAfter(String userId, ChatMessage after) {
+        return after == null
+                ? chatMessageRepository.streamByUserIdOrderByTimestampAsc(userId)
+                : chatMessageRepository.streamAfter(userId, after.getTimestamp(), new ObjectId(after.getId()));
+    }
+
+    @Override
+    public Flux<ChatMessage> findAfterReactive(String userId, ChatMessage after) {
+        return after == null
+                ? reactiveChatMessageRepository.findByUserIdOrderByTimestampAsc(userId)
+                : reactiveChatMessageRepository.findAfter(userId, after.getTimestamp(), new ObjectId(after.getId()));
+    }
+
+    @Override
+    public List<ChatMessage> findOlderThan(LocalDateTime cutoff, int limit) {
+        Query oldest = new Query(Criteria.where("timestamp").lt(cutoff))
+                .with(Sort.by("timestamp", "_id"))
+                .limit(limit);
+        return mongoTemplate.find(oldest, ChatMessage.class);
+    }
+
+    @Override
+    public void remove(List<ChatMessage> messages) {
+        List<String> ids = messages.stream().map(ChatMessage::getId).toList();
+        mongoTemplate.remove(new Query(Criteria.where("_id").in(ids)), ChatMessage.class);
+    }
+
+    @Override
+    public void expireAfter(Duration ttl) {
+        mongoTemplate.indexOps(ChatMessage.class).ensureIndex(
+                new Index().on("timestamp", Sort.Direction.ASC).expire(ttl).named("timestamp_ttl"));
+    }
+}
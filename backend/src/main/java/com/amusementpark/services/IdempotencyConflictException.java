@@ -0,0 +1,14 @@
+package com.amusementpark.services;
+
+/**
+ * Thrown when a request arrives while an earlier request with the same
+ * Idempotency-Key is still being processed
+ */
+public class IdempotencyConflictException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public IdempotencyConflictException(String message) {
+        super(message);
+    }
+}
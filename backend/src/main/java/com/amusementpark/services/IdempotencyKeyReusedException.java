@@ -0,0 +1,13 @@
+package com.amusementpark.services;
+
+/**
+ * Thrown when an Idempotency-Key is sent again with a different request body
+ */
+public class IdempotencyKeyReusedException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public IdempotencyKeyReusedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,199 @@
+package com.amusementpark.services;
+
+import com.amusementpark.models.IdempotencyRecord;
+import com.amusementpark.models.Ticket;
+import com.mongodb.client.result.UpdateResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Makes booking requests that carry an Idempotency-Key safe to retry. Keys are scoped to
+ * the user who sends them. The first request claims the key by inserting a record whose
+ * _id is the user ID and key, so only one request per key can run the booking at a time,
+ * across all backend instances. Retries get the ticket stored with the record instead of
+ * booking again. The record also keeps a hash of the request body, and a key sent again
+ * with a different body is rejected instead of being answered with another booking's ticket.
+ *
+ * A claim is a lease: if the instance running the booking dies, the record stays PENDING
+ * only until pendingUntil, after which a retry takes the key over. Recently completed
+ * keys are also kept in memory, so a retry against the same instance needs no lookup.
+ */
+@Service
+public class IdempotencyService {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyService.class);
+
+    public static final int MAX_KEY_LENGTH = 255;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Value("${booking.idempotency.ttl-ms:86400000}")
+    private long ttlMs;
+
+    @Value("${booking.idempotency.lease-ms:30000}")
+    private long leaseMs;
+
+    @Value("${booking.idempotency.local-max-entries:10000}")
+    private int localMaxEntries;
+
+    private final Map<String, CompletedBooking> completed = new ConcurrentHashMap<>();
+
+    private static final class CompletedBooking {
+        private final String requestHash;
+        private final Ticket ticket;
+        private final long expiresAt;
+
+        private CompletedBooking(String requestHash, Ticket ticket, long expiresAt) {
+            this.requestHash = requestHash;
+            this.ticket = ticket;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * Create the TTL index that removes expired keys
+     */
+    @PostConstruct
+    public void ensureIndexes() {
+        mongoTemplate.indexOps(IdempotencyRecord.class).ensureIndex(
+                new Index().on("createdAt", Sort.Direction.ASC).expire(Duration.ofMillis(ttlMs)).named("createdAt_ttl"));
+    }
+
+    /**
+     * Run a booking at most once per user and key
+     * @param userId The user sending the request
+     * @param key The Idempotency-Key of the request
+     * @param request The request body, must be the same on every retry
+     * @param booking Books the ticket, only called for the first request with this key
+     * @return The ticket booked by the first request with this key
+     * @throws IdempotencyConflictException if the first request with this key has not finished yet
+     * @throws IdempotencyKeyReusedException if the key was first sent with a different request body
+     */
+    public Ticket execute(String userId, String key, byte[] request, Supplier<Ticket> booking) {
+        String id = userId + ":" + key;
+        String requestHash = sha256(request);
+        CompletedBooking cached = completed.get(id);
+        if (cached != null && cached.expiresAt > System.currentTimeMillis()) {
+            checkSameRequest(cached.requestHash, requestHash);
+            return cached.ticket;
+        }
+
+        LocalDateTime lease = leaseEnd();
+        try {
+            mongoTemplate.insert(new IdempotencyRecord(id, userId, requestHash, lease));
+        } catch (DuplicateKeyException e) {
+            IdempotencyRecord existing = mongoTemplate.findById(id, IdempotencyRecord.class);
+            if (existing == null) {
+                // Expired between the insert and the lookup, the client's retry claims it anew
+                throw new IdempotencyConflictException("A request with this Idempotency-Key is still being processed");
+            }
+            checkSameRequest(existing.getRequestHash(), requestHash);
+            if (IdempotencyRecord.COMPLETED.equals(existing.getStatus())) {
+                remember(id, requestHash, existing.getTicket());
+                return existing.getTicket();
+            }
+            if (!takeOver(existing, lease)) {
+                throw new IdempotencyConflictException("A request with this Idempotency-Key is still being processed");
+            }
+            logger.warn("Took over Idempotency-Key {} of user {}, the request that claimed it did not finish", key, userId);
+        }
+
+        Query ownClaim = new Query(Criteria.where("_id").is(id).and("pendingUntil").is(lease));
+        Ticket ticket;
+        try {
+            ticket = booking.get();
+        } catch (RuntimeException e) {
+            // Nothing was booked, let the client retry with the same key
+            mongoTemplate.remove(ownClaim, IdempotencyRecord.class);
+            throw e;
+        }
+
+        try {
+            UpdateResult result = mongoTemplate.updateFirst(ownClaim,
+                    new Update().set("status", IdempotencyRecord.COMPLETED).set("ticket", ticket).unset("pendingUntil"),
+                    IdempotencyRecord.class);
+            if (result.getModifiedCount() == 0) {
+                logger.warn("Idempotency-Key {} of user {} was taken over while its booking ran, booking.idempotency.lease-ms is too short",
+                        key, userId);
+            }
+        } catch (RuntimeException e) {
+            // The ticket is booked, retries to this instance are still answered from memory
+            logger.error("Failed to record the result of Idempotency-Key {}", key, e);
+        }
+        remember(id, requestHash, ticket);
+        return ticket;
+    }
+
+    /**
+     * Drop expired keys from memory, the database expires its copy through the TTL index
+     */
+    @Scheduled(fixedDelayString = "${booking.idempotency.purge-interval-ms:60000}")
+    public void purgeExpired() {
+        long now = System.currentTimeMillis();
+        completed.values().removeIf(booking -> booking.expiresAt <= now);
+    }
+
+    /**
+     * Claim a PENDING record whose lease ran out. Only one of several retries racing for
+     * it matches the lease it read.
+     */
+    private boolean takeOver(IdempotencyRecord existing, LocalDateTime lease) {
+        LocalDateTime pendingUntil = existing.getPendingUntil();
+        if (pendingUntil == null || pendingUntil.isAfter(LocalDateTime.now())) {
+            return false;
+        }
+        Query abandoned = new Query(Criteria.where("_id").is(existing.getKey())
+                .and("status").is(IdempotencyRecord.PENDING)
+                .and("pendingUntil").is(pendingUntil));
+        return mongoTemplate.updateFirst(abandoned, new Update().set("pendingUntil", lease), IdempotencyRecord.class)
+                .getModifiedCount() > 0;
+    }
+
+    private LocalDateTime leaseEnd() {
+        // Millisecond precision, like the stored value the claim is matched against
+        return LocalDateTime.now().plus(Duration.ofMillis(leaseMs)).truncatedTo(ChronoUnit.MILLIS);
+    }
+
+    private void remember(String id, String requestHash, Ticket ticket) {
+        if (completed.size() < localMaxEntries) {
+            completed.put(id, new CompletedBooking(requestHash, ticket, System.currentTimeMillis() + ttlMs));
+        }
+    }
+
+    private static void checkSameRequest(String storedHash, String requestHash) {
+        if (!requestHash.equals(storedHash)) {
+            throw new IdempotencyKeyReusedException("This Idempotency-Key was already used for a different request");
+        }
+    }
+
+    private static String sha256(byte[] content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
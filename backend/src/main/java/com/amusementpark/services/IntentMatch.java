@@ -0,0 +1,40 @@
+package com.amusementpark.services;
+
+/**
+ * Result of classifying a single chat message with the {@link IntentMatcher}.
+ */
+public final class IntentMatch {
+
+    private final int intents;
+    private final boolean digits;
+    private final String passTier;
+
+    IntentMatch(int intents, boolean digits, String passTier) {
+        this.intents = intents;
+        this.digits = digits;
+        this.passTier = passTier;
+    }
+
+    /**
+     * Check if the message contained a keyword of the given vocabulary
+     * @param intent The intent to check
+     * @return True if at least one keyword matched
+     */
+    public boolean has(ChatIntent intent) {
+        return (intents & (1 << intent.ordinal())) != 0;
+    }
+
+    /**
+     * @return True if the message contained at least one digit
+     */
+    public boolean hasDigits() {
+        return digits;
+    }
+
+    /**
+     * @return The last pass tier (silver, gold or diamond) mentioned, or null
+     */
+    public String getPassTier() {
+        return passTier;
+    }
+}
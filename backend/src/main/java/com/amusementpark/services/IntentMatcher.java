@@ -0,0 +1,158 @@
+package com.amusementpark.services;
+
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+
+/**
+ * Classifies chat messages against all {@link ChatIntent} vocabularies in a single pass.
+ * The keywords are compiled once into an Aho-Corasick automaton with a dense transition
+ * table, so matching costs one table lookup per character and never touches java.util.regex.
+ */
+@Component
+public class IntentMatcher {
+
+    private static final int ROOT = 0;
+    private static final int[] NO_OUTPUTS = new int[0];
+
+    // Maps an ASCII character to its column in the transition table, -1 if no keyword uses it
+    private final int[] charClass = new int[128];
+    private final int[][] transitions;
+    // Keyword indexes ending in each state, including those reached through failure links
+    private final int[][] outputs;
+
+    private final String[] keywords;
+    private final ChatIntent[] keywordIntents;
+
+    public IntentMatcher() {
+        List<String> keywordList = new ArrayList<>();
+        List<ChatIntent> intentList = new ArrayList<>();
+        for (ChatIntent intent : ChatIntent.values()) {
+            for (String keyword : intent.getKeywords()) {
+                keywordList.add(keyword);
+                intentList.add(intent);
+            }
+        }
+        this.keywords = keywordList.toArray(new String[0]);
+        this.keywordIntents = intentList.toArray(new ChatIntent[0]);
+
+        Arrays.fill(charClass, -1);
+        int alphabetSize = 0;
+        for (String keyword : keywords) {
+            for (char c : keyword.toCharArray()) {
+                if (charClass[c] < 0) {
+                    charClass[c] = alphabetSize++;
+                }
+            }
+        }
+
+        // 1. Build the keyword trie
+        List<int[]> trie = new ArrayList<>();
+        List<List<Integer>> nodeOutputs = new ArrayList<>();
+        trie.add(newNode(alphabetSize));
+        nodeOutputs.add(new ArrayList<>());
+        for (int k = 0; k < keywords.length; k++) {
+            int node = ROOT;
+            for (char c : keywords[k].toCharArray()) {
+                int cls = charClass[c];
+                if (trie.get(node)[cls] < 0) {
+                    trie.get(node)[cls] = trie.size();
+                    trie.add(newNode(alphabetSize));
+                    nodeOutputs.add(new ArrayList<>());
+                }
+                node = trie.get(node)[cls];
+            }
+            nodeOutputs.get(node).add(k);
+        }
+
+        // 2. Compute failure links breadth-first and turn the trie into a complete DFA
+        int[] fail = new int[trie.size()];
+        Queue<Integer> queue = new ArrayDeque<>();
+        int[] root = trie.get(ROOT);
+        for (int cls = 0; cls < alphabetSize; cls++) {
+            if (root[cls] < 0) {
+                root[cls] = ROOT;
+            } else {
+                fail[root[cls]] = ROOT;
+                queue.add(root[cls]);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int node = queue.poll();
+            nodeOutputs.get(node).addAll(nodeOutputs.get(fail[node]));
+            int[] row = trie.get(node);
+            for (int cls = 0; cls < alphabetSize; cls++) {
+                int next = row[cls];
+                if (next < 0) {
+                    row[cls] = trie.get(fail[node])[cls];
+                } else {
+                    fail[next] = trie.get(fail[node])[cls];
+                    queue.add(next);
+                }
+            }
+        }
+
+        this.transitions = trie.toArray(new int[0][]);
+        this.outputs = new int[trie.size()][];
+        for (int node = 0; node < outputs.length; node++) {
+            List<Integer> out = nodeOutputs.get(node);
+            outputs[node] = out.isEmpty() ? NO_OUTPUTS : out.stream().mapToInt(Integer::intValue).toArray();
+        }
+    }
+
+    private static int[] newNode(int alphabetSize) {
+        int[] row = new int[alphabetSize];
+        Arrays.fill(row, -1);
+        return row;
+    }
+
+    /**
+     * Classify a message. Matching is case-insensitive.
+     * @param text The raw user message
+     * @return The intents found in the message
+     */
+    public IntentMatch match(String text) {
+        int state = ROOT;
+        int intents = 0;
+        boolean digits = false;
+        String passTier = null;
+        int length = text.length();
+
+        for (int i = 0; i < length; i++) {
+            char c = Character.toLowerCase(text.charAt(i));
+            if (c >= '0' && c <= '9') {
+                digits = true;
+            }
+            int cls = c < 128 ? charClass[c] : -1;
+            state = cls < 0 ? ROOT : transitions[state][cls];
+
+            for (int k : outputs[state]) {
+                ChatIntent intent = keywordIntents[k];
+                if (intent.isWholeWord()
+                        && !(isBoundary(text, i - keywords[k].length()) && isBoundary(text, i + 1))) {
+                    continue;
+                }
+                intents |= 1 << intent.ordinal();
+                if (intent == ChatIntent.PASS_TIER) {
+                    passTier = keywords[k];
+                }
+            }
+        }
+        return new IntentMatch(intents, digits, passTier);
+    }
+
+    /**
+     * Check if the character at the given index is outside a word, same as regex \b
+     */
+    private static boolean isBoundary(String text, int index) {
+        if (index < 0 || index >= text.length()) {
+            return true;
+        }
+        char c = text.charAt(index);
+        return !(Character.isLetterOrDigit(c) || c == '_');
+    }
+}
@@ -0,0 +1,167 @@
+package com.amusementpark.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hashes and checks passwords with bcrypt. Every bcrypt operation runs on a small
+ * dedicated pool with a bounded queue, so a burst of logins uses at most that many cores
+ * and cannot starve chat and booking requests; when the queue is full the caller gets a
+ * RejectedExecutionException right away. Unless password.hash.cost is set, the cost is
+ * calibrated at startup to the highest value whose hash time stays within the target on
+ * this host. Passwords stored before hashing was introduced are still accepted, see
+ * {@link #needsRehash}.
+ */
+@Service
+public class PasswordHasher {
+
+    private static final Logger logger = LoggerFactory.getLogger(PasswordHasher.class);
+
+    private static final int MIN_COST = 10;
+    private static final int MAX_COST = 16;
+
+    @Value("${password.hash.cost:0}")
+    private int configuredCost;
+
+    @Value("${password.hash.target-ms:250}")
+    private long targetMs;
+
+    @Value("${password.hash.threads:0}")
+    private int threads;
+
+    @Value("${password.hash.queue-capacity:100}")
+    private int queueCapacity;
+
+    private int cost;
+    private BCryptPasswordEncoder encoder;
+    private ThreadPoolExecutor executor;
+
+    // Checked when the user does not exist, so unknown usernames take as long as wrong passwords
+    private String dummyHash;
+
+    @PostConstruct
+    public void start() {
+        int poolSize = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "password-hasher-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+
+        cost = configuredCost > 0 ? configuredCost : calibrate();
+        encoder = new BCryptPasswordEncoder(cost);
+        dummyHash = encoder.encode("not-a-real-password");
+        logger.info("Hashing passwords with bcrypt cost {} on {} threads", cost, poolSize);
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdown();
+    }
+
+    /**
+     * Hash a password for storage
+     * @param rawPassword The password as entered by the user
+     * @return The bcrypt hash
+     * @throws java.util.concurrent.RejectedExecutionException if too many hashes are queued
+     */
+    public String hash(String rawPassword) {
+        return run(() -> encoder.encode(rawPassword));
+    }
+
+    /**
+     * Check a password against the stored value, which may be a bcrypt hash or a legacy
+     * plaintext password. Legacy values are compared in constant time.
+     * @param rawPassword The password as entered by the user
+     * @param storedPassword The stored value, or null if the user does not exist
+     * @return true if the password is correct
+     * @throws java.util.concurrent.RejectedExecutionException if too many hashes are queued
+     */
+    public boolean matches(String rawPassword, String storedPassword) {
+        if (storedPassword == null) {
+            run(() -> encoder.matches(rawPassword, dummyHash));
+            return false;
+        }
+        if (!isBcrypt(storedPassword)) {
+            return MessageDigest.isEqual(rawPassword.getBytes(StandardCharsets.UTF_8),
+                    storedPassword.getBytes(StandardCharsets.UTF_8));
+        }
+        return run(() -> encoder.matches(rawPassword, storedPassword));
+    }
+
+    /**
+     * Check whether a stored password should be replaced after a successful login,
+     * because it is still plaintext or was hashed with a lower cost than the current one
+     * @param storedPassword The stored value
+     * @return true if the password should be hashed again
+     */
+    public boolean needsRehash(String storedPassword) {
+        return !isBcrypt(storedPassword) || encoder.upgradeEncoding(storedPassword);
+    }
+
+    /**
+     * @return The bcrypt cost used for new hashes
+     */
+    public int getCost() {
+        return cost;
+    }
+
+    /**
+     * @return Number of hash operations waiting for a thread
+     */
+    public int getQueuedHashes() {
+        return executor.getQueue().size();
+    }
+
+    private static boolean isBcrypt(String storedPassword) {
+        return storedPassword.length() == 60 && storedPassword.startsWith("$2");
+    }
+
+    private <T> T run(Callable<T> task) {
+        Future<T> future = executor.submit(task);
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while hashing a password", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Failed to hash a password", e.getCause());
+        }
+    }
+
+    /**
+     * Every cost step doubles the work, so the time of one warmed-up hash at the minimum
+     * cost is enough to pick the cost for the target
+     */
+    private int calibrate() {
+        BCryptPasswordEncoder probe = new BCryptPasswordEncoder(MIN_COST);
+        probe.encode("calibration");
+        long start = System.nanoTime();
+        probe.encode("calibration");
+        double elapsedMs = Math.max(1, (System.nanoTime() - start) / 1_000_000.0);
+
+        int extraSteps = (int) Math.floor(Math.log(targetMs / elapsedMs) / Math.log(2));
+        int calibrated = Math.max(MIN_COST, Math.min(MAX_COST, MIN_COST + extraSteps));
+        logger.info("bcrypt cost {} takes {} ms here, calibrated cost {} for a target of {} ms",
+                MIN_COST, Math.round(elapsedMs), calibrated, targetMs);
+        return calibrated;
+    }
+}
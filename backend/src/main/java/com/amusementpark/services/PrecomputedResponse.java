@@ -0,0 +1,95 @@
+package com.amusementpark.services;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.WebRequest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A JSON response body serialized once, with an optional gzipped copy and strong ETags
+ * derived from the content, so equal content gets equal ETags on every node and restart.
+ */
+public final class PrecomputedResponse {
+
+    private final byte[] body;
+    private final byte[] gzippedBody;
+    private final String etag;
+    private final String gzippedEtag;
+
+    PrecomputedResponse(byte[] body, boolean gzip) {
+        String hash = contentHash(body);
+        this.body = body;
+        this.etag = "\"" + hash + "\"";
+        this.gzippedBody = gzip ? gzip(body) : null;
+        // Each encoding is a different representation and needs its own strong ETag
+        this.gzippedEtag = gzip ? "\"" + hash + "-gz\"" : null;
+    }
+
+    /**
+     * Build the response for a request, answering 304 when the client's copy is current
+     * @param request The current request
+     * @return ResponseEntity with the serialized body, or an empty 304 response
+     */
+    public ResponseEntity<byte[]> toResponseEntity(WebRequest request) {
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        boolean useGzip = gzippedBody != null && acceptEncoding != null && acceptEncoding.contains("gzip");
+        String currentEtag = useGzip ? gzippedEtag : etag;
+
+        if (isNotModified(request.getHeader(HttpHeaders.IF_NONE_MATCH), currentEtag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(currentEtag)
+                    .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                    .build();
+        }
+
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .eTag(currentEtag)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (useGzip) {
+            return builder.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(gzippedBody);
+        }
+        return builder.body(body);
+    }
+
+    private static boolean isNotModified(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String value = candidate.trim();
+            if (value.equals("*") || value.equals(etag) || value.equals("W/" + etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String contentHash(byte[] content) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(content);
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest).substring(0, 22);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static byte[] gzip(byte[] content) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(content.length / 4 + 64);
+        try (GZIPOutputStream gzipOut = new GZIPOutputStream(out)) {
+            gzipOut.write(content);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+}
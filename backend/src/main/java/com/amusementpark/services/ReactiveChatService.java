@@ -0,0 +1,90 @@
+package com.amusementpark.services;
+
+import com.amusementpark.models.ChatMessage;
+import com.amusementpark.models.ConversationState;
+import com.amusementpark.repositories.ReactiveConversationStateRepository;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Non-blocking variant of the chat pipeline. The dialog logic is shared with
+ * {@link ChatService}; only the I/O differs. No thread waits for MongoDB: the user
+ * message insert and, on a cache miss, the conversation state load run concurrently,
+ * and the reply is generated when both have completed. Generating the reply is a short
+ * CPU-only step that is queued on the user's {@link ChatTurnExecutor} stripe.
+ */
+@Service
+public class ReactiveChatService {
+
+    @Autowired
+    private ChatService chatService;
+
+    @Autowired
+    private ConversationStateCache conversationStateCache;
+
+    @Autowired
+    private ChatTurnExecutor chatTurnExecutor;
+
+    @Autowired
+    private ChatArchiveService chatArchiveService;
+
+    @Autowired
+    private ChatMessageStore chatMessageStore;
+
+    @Autowired
+    private ReactiveConversationStateRepository reactiveConversationStateRepository;
+
+    /**
+     * Save a user message and generate a bot reply
+     * @param userId The user ID
+     * @param userMessageText The user's message
+     * @return The bot's reply message, emitted once it is saved. Fails with a
+     *         RejectedExecutionException if too many turns are waiting.
+     */
+    public Mono<ChatMessage> processUserMessage(String userId, String userMessageText) {
+        ChatMessage userMessage = new ChatMessage(userId, userMessageText, "user");
+        // Assigned before the reply is created, so the question sorts first when the timestamps tie
+        userMessage.setId(new ObjectId().toHexString());
+
+        return Mono.zip(loadState(userId), chatMessageStore.insertReactive(userMessage))
+                .flatMap(loaded -> Mono.fromCompletionStage(() -> chatTurnExecutor.submit(userId, () -> {
+                    // Serialized with the user's other turns, blocking or reactive
+                    ConversationState state = loaded.getT1();
+                    ChatMessage botMessage = chatService.respond(state, userMessageText);
+                    // The state is written back by the cache, like on the blocking path
+                    conversationStateCache.markDirty(state);
+                    return botMessage;
+                })))
+                .flatMap(chatMessageStore::insertReactive);
+    }
+
+    /**
+     * Retrieve chat history for a specific user, archived messages first and then the
+     * hot messages after the last archived one
+     * @param userId The user ID
+     * @return The user's messages, oldest first
+     */
+    public Flux<ChatMessage> getChatHistoryByUserId(String userId) {
+        AtomicReference<ChatMessage> lastArchived = new AtomicReference<>();
+        return chatArchiveService.findArchivedMessages(userId)
+                .doOnNext(lastArchived::set)
+                .concatWith(Flux.defer(() -> chatMessageStore.findAfterReactive(userId, lastArchived.get())));
+    }
+
+    private Mono<ConversationState> loadState(String userId) {
+        return Mono.defer(() -> {
+            ConversationState cached = conversationStateCache.getIfPresent(userId);
+            if (cached != null) {
+                return Mono.just(cached);
+            }
+            return reactiveConversationStateRepository.findByUserId(userId)
+                    .switchIfEmpty(Mono.fromSupplier(() -> new ConversationState(userId)))
+                    .map(conversationStateCache::add);
+        });
+    }
+}
@@ -1,13 +1,20 @@
 package com.amusementpark.services;
 
 import com.amusementpark.models.Ticket;
+import com.amusementpark.models.TicketSummary;
 import com.amusementpark.models.TicketType;
 import com.amusementpark.repositories.TicketRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 @Service
 public class TicketService {
@@ -18,31 +25,115 @@ public class TicketService {
     @Autowired
     private TicketTypeService ticketTypeService;
     
+    @Autowired
+    private CapacityService capacityService;
+    
     /**
      * Book a new ticket
      * @param ticket The ticket to book
      * @return The booked ticket
+     * @throws CapacityExceededException if the visit date is sold out
      */
     public Ticket bookTicket(Ticket ticket) {
-        // Calculate total rides allowed and total price
-        int totalRidesAllowed = 0;
-        double totalPrice = 0.0;
-        
-        for (Map.Entry<String, Integer> entry : ticket.getTicketTypes().entrySet()) {
-            String ticketTypeId = entry.getKey();
-            Integer quantity = entry.getValue();
-            
-            TicketType ticketType = ticketTypeService.getTicketTypeById(ticketTypeId);
-            if (ticketType != null) {
-                totalRidesAllowed += ticketType.getRideLimit() * quantity;
-                totalPrice += ticketType.getPrice() * quantity;
+        Map<String, TicketType> ticketTypes = price(List.of(ticket));
+        Map<LocalDate, Map<String, Integer>> reserved = reserve(List.of(ticket), ticketTypes);
+        try {
+            return ticketRepository.save(ticket);
+        } catch (RuntimeException e) {
+            release(reserved);
+            throw e;
+        }
+    }
+    
+    /**
+     * Book several tickets at once. All ticket types are resolved together and the
+     * tickets are inserted with a single bulk write. Either all tickets are booked
+     * or, if one of their visit dates is sold out, none.
+     * @param tickets The tickets to book
+     * @return The booked tickets
+     * @throws CapacityExceededException if one of the visit dates is sold out
+     */
+    public List<Ticket> bookTickets(List<Ticket> tickets) {
+        Map<String, TicketType> ticketTypes = price(tickets);
+        Map<LocalDate, Map<String, Integer>> reserved = reserve(tickets, ticketTypes);
+        try {
+            return ticketRepository.saveAll(tickets);
+        } catch (RuntimeException e) {
+            release(reserved);
+            throw e;
+        }
+    }
+    
+    /**
+     * Reserve capacity for the tickets, one reservation per visit date. Tickets without a
+     * visit date are not counted. If a date is sold out, the dates reserved before it
+     * are released again.
+     * @return Map of visit date to the reserved quantity per ticket type
+     */
+    private Map<LocalDate, Map<String, Integer>> reserve(List<Ticket> tickets, Map<String, TicketType> ticketTypes) {
+        Map<LocalDate, Map<String, Integer>> quantitiesByDate = new HashMap<>();
+        for (Ticket ticket : tickets) {
+            if (ticket.getVisitDate() == null || ticket.getTicketTypes() == null) {
+                continue;
             }
+            Map<String, Integer> quantities = quantitiesByDate.computeIfAbsent(ticket.getVisitDate().toLocalDate(), date -> new HashMap<>());
+            ticket.getTicketTypes().forEach((ticketTypeId, quantity) -> {
+                if (ticketTypes.containsKey(ticketTypeId) && quantity != null && quantity > 0) {
+                    quantities.merge(ticketTypeId, quantity, Integer::sum);
+                }
+            });
         }
         
-        ticket.setTotalRidesAllowed(totalRidesAllowed);
-        ticket.setTotalPrice(totalPrice);
+        Map<LocalDate, Map<String, Integer>> reserved = new HashMap<>();
+        try {
+            for (Map.Entry<LocalDate, Map<String, Integer>> entry : quantitiesByDate.entrySet()) {
+                capacityService.reserve(entry.getKey(), entry.getValue(), ticketTypes);
+                reserved.put(entry.getKey(), entry.getValue());
+            }
+        } catch (RuntimeException e) {
+            release(reserved);
+            throw e;
+        }
+        return reserved;
+    }
+    
+    private void release(Map<LocalDate, Map<String, Integer>> reserved) {
+        reserved.forEach(capacityService::release);
+    }
+    
+    /**
+     * Calculate total rides allowed and total price of each ticket. Prices are summed
+     * as decimals and rounded to two places only once, at the end.
+     * @return The resolved ticket types by ID
+     */
+    private Map<String, TicketType> price(List<Ticket> tickets) {
+        Set<String> ticketTypeIds = new HashSet<>();
+        for (Ticket ticket : tickets) {
+            if (ticket.getTicketTypes() != null) {
+                ticketTypeIds.addAll(ticket.getTicketTypes().keySet());
+            }
+        }
+        Map<String, TicketType> ticketTypes = ticketTypeService.getTicketTypesByIds(ticketTypeIds);
         
-        return ticketRepository.save(ticket);
+        for (Ticket ticket : tickets) {
+            int totalRidesAllowed = 0;
+            BigDecimal totalPrice = BigDecimal.ZERO;
+            
+            if (ticket.getTicketTypes() != null) {
+                for (Map.Entry<String, Integer> entry : ticket.getTicketTypes().entrySet()) {
+                    TicketType ticketType = ticketTypes.get(entry.getKey());
+                    Integer quantity = entry.getValue();
+                    if (ticketType != null && quantity != null) {
+                        totalRidesAllowed += ticketType.getRideLimit() * quantity;
+                        totalPrice = totalPrice.add(BigDecimal.valueOf(ticketType.getPrice()).multiply(BigDecimal.valueOf(quantity)));
+                    }
+                }
+            }
+            
+            ticket.setTotalRidesAllowed(totalRidesAllowed);
+            ticket.setTotalPrice(totalPrice.setScale(2, RoundingMode.HALF_UP).doubleValue());
+        }
+        return ticketTypes;
     }
     
     /**
@@ -54,6 +145,15 @@ public class TicketService {
         return ticketRepository.findByUserId(userId);
     }
     
+    /**
+     * Get the summaries of a user's tickets, for ticket lists
+     * @param userId The user ID
+     * @return List of ticket summaries for the user
+     */
+    public List<TicketSummary> getTicketSummariesByUserId(String userId) {
+        return ticketRepository.findSummariesByUserId(userId);
+    }
+    
     /**
      * Get a ticket by ID
      * @param id The ticket ID
@@ -62,4 +162,4 @@ public class TicketService {
     public Ticket getTicketById(String id) {
         return ticketRepository.findById(id).orElse(null);
     }
-}
\ No newline at end of file
+}
@@ -5,8 +5,11 @@ import com.amusementpark.repositories.TicketTypeRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import jakarta.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @Service
 public class TicketTypeService {
@@ -14,12 +17,15 @@ public class TicketTypeService {
     @Autowired
     private TicketTypeRepository ticketTypeRepository;
     
+    @Autowired
+    private CatalogService catalogService;
+    
     /**
      * Get all ticket types
      * @return List of all ticket types
      */
     public List<TicketType> getAllTicketTypes() {
-        return ticketTypeRepository.findAll();
+        return catalogService.getCatalog().getTicketTypes();
     }
     
     /**
@@ -28,44 +34,32 @@ public class TicketTypeService {
      * @return The ticket type
      */
     public TicketType getTicketTypeById(String id) {
-        return ticketTypeRepository.findById(id).orElse(null);
+        return catalogService.getCatalog().getTicketTypeById(id);
     }
     
     /**
-     * Initialize ticket types if none exist
+     * Resolve several ticket types at once. Types missing from the catalog snapshot,
+     * e.g. added directly in the database since the last poll, are read with one query.
+     * @param ids The ticket type IDs
+     * @return Map of ID to ticket type, unknown IDs are left out
      */
-    @PostConstruct
-    public void initTicketTypes() {
-        if (ticketTypeRepository.count() == 0) {
-            // Create default ticket types
-            TicketType silverTicket = new TicketType(
-                "Silver", 
-                "Amusement park entry fee with 3 rides", 
-                3, 
-                299.0, 
-                true
-            );
-            
-            TicketType goldTicket = new TicketType(
-                "Gold", 
-                "Amusement park entry fee with 6 rides", 
-                6, 
-                499.0, 
-                true
-            );
-            
-            TicketType diamondTicket = new TicketType(
-                "Diamond", 
-                "Amusement park entry fee with 12 rides", 
-                12, 
-                899.0, 
-                true
-            );
-            
-            // Save ticket types
-            ticketTypeRepository.save(silverTicket);
-            ticketTypeRepository.save(goldTicket);
-            ticketTypeRepository.save(diamondTicket);
+    public Map<String, TicketType> getTicketTypesByIds(Collection<String> ids) {
+        CatalogSnapshot catalog = catalogService.getCatalog();
+        Map<String, TicketType> ticketTypes = new HashMap<>();
+        List<String> missing = new ArrayList<>();
+        for (String id : ids) {
+            TicketType ticketType = catalog.getTicketTypeById(id);
+            if (ticketType != null) {
+                ticketTypes.put(id, ticketType);
+            } else if (id != null) {
+                missing.add(id);
+            }
+        }
+        if (!missing.isEmpty()) {
+            for (TicketType ticketType : ticketTypeRepository.findAllById(missing)) {
+                ticketTypes.put(ticketType.getId(), ticketType);
+            }
         }
+        return ticketTypes;
     }
-}
\ No newline at end of file
+}
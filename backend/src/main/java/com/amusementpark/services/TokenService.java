@@ -0,0 +1,148 @@
+package com.amusementpark.services;
+
+import com.amusementpark.models.User;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Issues and verifies signed access tokens (JWTs signed with HMAC-SHA256). A token carries
+ * everything the backend needs to know about the user, so verifying a request needs no
+ * session and no database lookup, only one HMAC with the key loaded at startup. All
+ * backend instances must share auth.token.secret to accept each other's tokens.
+ */
+@Service
+public class TokenService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenService.class);
+
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    // Only this exact header is accepted, which rules out "alg": "none" and algorithm switching
+    private static final String HEADER = ENCODER.encodeToString(
+            "{\"alg\":\"HS256\",\"typ\":\"JWT\"}".getBytes(StandardCharsets.UTF_8));
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${auth.token.secret:}")
+    private String secret;
+
+    @Value("${auth.token.ttl-ms:28800000}")
+    private long ttlMs;
+
+    // Initialized once with the key; Mac is not thread-safe, so each signature uses a clone
+    private Mac prototype;
+
+    @PostConstruct
+    public void init() {
+        byte[] keyBytes;
+        if (secret == null || secret.isBlank()) {
+            keyBytes = new byte[32];
+            new SecureRandom().nextBytes(keyBytes);
+            logger.warn("auth.token.secret is not set, using a random key: tokens stop working on restart and are only accepted by this instance");
+        } else {
+            keyBytes = Base64.getDecoder().decode(secret);
+            if (keyBytes.length < 32) {
+                throw new IllegalStateException("auth.token.secret must be at least 256 bits, base64-encoded");
+            }
+        }
+        try {
+            prototype = Mac.getInstance(ALGORITHM);
+            prototype.init(new SecretKeySpec(keyBytes, ALGORITHM));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC-SHA256 is not available", e);
+        }
+    }
+
+    /**
+     * Issue an access token for a user
+     * @param user The authenticated user
+     * @return The signed token
+     */
+    public String issue(User user) {
+        long now = System.currentTimeMillis() / 1000;
+        Map<String, Object> claims = new LinkedHashMap<>();
+        claims.put("sub", user.getId());
+        claims.put("name", user.getUsername());
+        claims.put("email", user.getEmail());
+        claims.put("role", user.getRole());
+        claims.put("iat", now);
+        claims.put("exp", now + ttlMs / 1000);
+
+        try {
+            String signingInput = HEADER + "." + ENCODER.encodeToString(objectMapper.writeValueAsBytes(claims));
+            return signingInput + "." + ENCODER.encodeToString(sign(signingInput));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize token claims", e);
+        }
+    }
+
+    /**
+     * Verify an access token
+     * @param token The token from the request
+     * @return The user described by the token (without password), or null if the token
+     *         is malformed, not signed with our key, or expired
+     */
+    public User verify(String token) {
+        int firstDot = HEADER.length();
+        int lastDot = token.lastIndexOf('.');
+        if (!token.startsWith(HEADER + ".") || lastDot == firstDot) {
+            return null;
+        }
+        try {
+            byte[] signature = DECODER.decode(token.substring(lastDot + 1));
+            if (!MessageDigest.isEqual(signature, sign(token.substring(0, lastDot)))) {
+                return null;
+            }
+            JsonNode claims = objectMapper.readTree(DECODER.decode(token.substring(firstDot + 1, lastDot)));
+            if (claims.path("exp").asLong(0) <= System.currentTimeMillis() / 1000) {
+                return null;
+            }
+            User user = new User();
+            user.setId(claims.path("sub").asText(null));
+            user.setUsername(claims.path("name").asText(null));
+            user.setEmail(claims.path("email").asText(null));
+            user.setRole(claims.path("role").asText(null));
+            return user;
+        } catch (IllegalArgumentException | IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return How long issued tokens are valid, in milliseconds
+     */
+    public long getTtlMs() {
+        return ttlMs;
+    }
+
+    private byte[] sign(String signingInput) {
+        try {
+            Mac mac = (Mac) prototype.clone();
+            return mac.doFinal(signingInput.getBytes(StandardCharsets.US_ASCII));
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException("HMAC-SHA256 provider does not support cloning", e);
+        }
+    }
+}
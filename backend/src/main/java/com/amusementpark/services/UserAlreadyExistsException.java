@@ -0,0 +1,13 @@
+package com.amusementpark.services;
+
+/**
+ * Thrown when a registration uses a username or email that is already taken
+ */
+public class UserAlreadyExistsException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public UserAlreadyExistsException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,153 @@
+package com.amusementpark.services;
+
+import com.amusementpark.models.User;
+import com.amusementpark.repositories.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Registration, login and username lookups shared by all user endpoints.
+ * Uniqueness of usernames and emails is left to the unique indexes on User: a
+ * registration is a single insert and a duplicate shows up as a duplicate key error,
+ * which is also correct when two registrations race. The application does not start
+ * without these indexes, see MongoIndexProvisioner. The "is this username available"
+ * check is answered from a Bloom filter of taken usernames; only names the filter
+ * reports as possibly taken are confirmed with a query.
+ */
+@Service
+public class UserService {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserService.class);
+
+    private static final int MIN_FILTER_CAPACITY = 10_000;
+    private static final double FILTER_FALSE_POSITIVE_RATE = 0.01;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PasswordHasher passwordHasher;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    // Null until the first build, lookups go to the database until then
+    private volatile UsernameBloomFilter takenUsernames;
+
+    // Usernames registered while a rebuild runs, they may be missing from the filter it builds
+    private volatile Set<String> registeredDuringRebuild;
+
+    /**
+     * Rebuild the username filter from the database. Runs at startup and periodically to
+     * pick up users registered through other instances and to resize the filter as the
+     * number of users grows.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${user.username-filter.rebuild-interval-ms:600000}", initialDelayString = "${user.username-filter.rebuild-interval-ms:600000}")
+    public synchronized void rebuildUsernameFilter() {
+        Set<String> registered = ConcurrentHashMap.newKeySet();
+        registeredDuringRebuild = registered;
+        try {
+            int capacity = (int) Math.max(MIN_FILTER_CAPACITY, userRepository.count() * 2);
+            UsernameBloomFilter filter = new UsernameBloomFilter(capacity, FILTER_FALSE_POSITIVE_RATE);
+            Query usernamesOnly = new Query();
+            usernamesOnly.fields().include("username");
+            long added = 0;
+            try (Stream<User> users = mongoTemplate.stream(usernamesOnly, User.class)) {
+                for (User user : (Iterable<User>) users::iterator) {
+                    if (user.getUsername() != null) {
+                        filter.add(user.getUsername());
+                        added++;
+                    }
+                }
+            }
+            takenUsernames = filter;
+            // A registration that still saw the previous filter recorded its username before that
+            for (String username : registered) {
+                filter.add(username);
+            }
+            logger.info("Built username filter with {} usernames, sized for {}", added, capacity);
+        } catch (RuntimeException e) {
+            logger.error("Failed to build the username filter, keeping the previous one", e);
+        } finally {
+            registeredDuringRebuild = null;
+        }
+    }
+
+    /**
+     * Register a new user with the default role
+     * @param username The username
+     * @param email The email address
+     * @param rawPassword The password, only its hash is stored
+     * @return The saved user
+     * @throws UserAlreadyExistsException if the username or email is taken
+     * @throws java.util.concurrent.RejectedExecutionException if too many passwords are being hashed
+     */
+    public User register(String username, String email, String rawPassword) {
+        User user = new User(username, email, passwordHasher.hash(rawPassword));
+        try {
+            user = userRepository.insert(user);
+        } catch (DuplicateKeyException e) {
+            String message = e.getMessage() != null && e.getMessage().contains("index: email")
+                    ? "Email already exists" : "Username already exists";
+            throw new UserAlreadyExistsException(message);
+        }
+        // Recorded before the filter is read, see rebuildUsernameFilter
+        Set<String> registered = registeredDuringRebuild;
+        if (registered != null) {
+            registered.add(username);
+        }
+        UsernameBloomFilter filter = takenUsernames;
+        if (filter != null) {
+            filter.add(username);
+        }
+        logger.info("New user registered: {}", username);
+        return user;
+    }
+
+    /**
+     * Check a username and password. Plaintext passwords and hashes of a lower cost are
+     * replaced by a new hash on success.
+     * @param username The username
+     * @param rawPassword The password as entered
+     * @return The user, or null if the username or password is wrong
+     * @throws java.util.concurrent.RejectedExecutionException if too many passwords are being hashed
+     */
+    public User authenticate(String username, String rawPassword) {
+        User user = userRepository.findByUsername(username);
+        if (!passwordHasher.matches(rawPassword, user != null ? user.getPassword() : null)) {
+            return null;
+        }
+        if (passwordHasher.needsRehash(user.getPassword())) {
+            user.setPassword(passwordHasher.hash(rawPassword));
+            userRepository.save(user);
+        }
+        return user;
+    }
+
+    /**
+     * Check whether a username can still be registered. Meant for live feedback while
+     * the user types; registration itself is decided by the unique index.
+     * @param username The username
+     * @return true if no user has this username
+     */
+    public boolean isUsernameAvailable(String username) {
+        UsernameBloomFilter filter = takenUsernames;
+        if (filter != null && !filter.mightContain(username)) {
+            return true;
+        }
+        return !userRepository.existsByUsername(username);
+    }
+}
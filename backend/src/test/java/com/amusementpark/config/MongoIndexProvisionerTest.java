@@ -0,0 +1,96 @@
+package com.amusementpark.config;
+
+import com.amusementpark.models.ChatArchiveBucket;
+import com.amusementpark.models.ChatMessageBucket;
+import com.amusementpark.models.IdempotencyRecord;
+import com.amusementpark.models.Ride;
+import com.amusementpark.models.User;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.UncategorizedMongoDbException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class MongoIndexProvisionerTest {
+
+    private final Map<Class<?>, IndexOperations> indexOps = new HashMap<>();
+    private MongoIndexProvisioner provisioner;
+
+    @BeforeEach
+    void setUp() {
+        MappingMongoConverter converter = MongoModels.converter();
+        MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+        when(mongoTemplate.getConverter()).thenReturn(converter);
+        when(mongoTemplate.indexOps(any(Class.class))).thenAnswer(invocation ->
+                indexOps.computeIfAbsent(invocation.getArgument(0), type -> mock(IndexOperations.class)));
+
+        provisioner = new MongoIndexProvisioner();
+        ReflectionTestUtils.setField(provisioner, "mongoTemplate", mongoTemplate);
+    }
+
+    @Test
+    void indexesOfEmbeddedTypesAreSkipped() {
+        provisioner.ensureIndexes();
+
+        assertThat(ensuredKeys(ChatMessageBucket.class))
+                .containsExactlyInAnyOrder("{\"userId\": 1, \"day\": 1}", "{\"userId\": 1, \"lastTimestamp\": 1}");
+        assertThat(ensuredKeys(ChatArchiveBucket.class)).allMatch(keys -> !keys.contains("messages."));
+        verify(indexOps.get(IdempotencyRecord.class), never()).ensureIndex(any());
+    }
+
+    @Test
+    void declaredIndexesAreEnsured() {
+        provisioner.ensureIndexes();
+
+        assertThat(ensuredKeys(User.class)).containsExactlyInAnyOrder("{\"username\": 1}", "{\"email\": 1}");
+    }
+
+    @Test
+    void failedUniqueIndexStopsStartup() {
+        IndexOperations userIndexes = mock(IndexOperations.class);
+        when(userIndexes.ensureIndex(any())).thenThrow(new DuplicateKeyException("E11000 duplicate key"));
+        indexOps.put(User.class, userIndexes);
+
+        assertThatThrownBy(provisioner::ensureIndexes)
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("users");
+    }
+
+    @Test
+    void failedNonUniqueIndexIsOnlyLogged() {
+        IndexOperations rideIndexes = mock(IndexOperations.class);
+        when(rideIndexes.ensureIndex(any())).thenThrow(new UncategorizedMongoDbException("timeout", null));
+        indexOps.put(Ride.class, rideIndexes);
+
+        provisioner.ensureIndexes();
+
+        verify(indexOps.get(User.class), atLeast(1)).ensureIndex(any());
+    }
+
+    private List<String> ensuredKeys(Class<?> type) {
+        IndexOperations ops = indexOps.get(type);
+        assertThat(ops).as("index operations of %s", type.getSimpleName()).isNotNull();
+        ArgumentCaptor<IndexDefinition> ensured = ArgumentCaptor.forClass(IndexDefinition.class);
+        verify(ops, atLeast(1)).ensureIndex(ensured.capture());
+        return ensured.getAllValues().stream().map(IndexDefinition::getIndexKeys).map(Document::toJson).toList();
+    }
+}
@@ -0,0 +1,56 @@
+package com.amusementpark.config;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checks a mix of request paths with the trie and with the stream-based check
+ * AuthenticationFilter ran before. Each operation checks the whole mix, so the score
+ * is mixes per millisecond.
+ * Run with mvn -P benchmarks -DskipTests test -Dbenchmarks=PublicPathMatcherBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PublicPathMatcherBenchmark {
+
+    // Roughly what a page load and a chat session send: mostly static assets and API calls
+    static final String[] PATHS = {
+            "/", "/index.html", "/favicon.ico", "/manifest.json",
+            "/css/main.3f2a91c4.css", "/js/main.8b1d7e02.js", "/js/787.c4e1a7f3.chunk.js",
+            "/images/logo.png", "/images/rides/thunder-coaster.jpg",
+            "/api/auth/login", "/api/auth/me", "/api/auth/username-available",
+            "/api/chat/send", "/api/chat/send", "/api/chat/send", "/api/chat/history/64f1c2a9e4b0a1b2c3d4e5f6",
+            "/api/tickets/types", "/api/tickets/book", "/api/tickets/user/64f1c2a9e4b0a1b2c3d4e5f6",
+            "/api/rides", "/api/diagnostics/threads"
+    };
+
+    private final PublicPathMatcher matcher = new PublicPathMatcher(PublicPathMatcherTest.DEFAULT_RULES);
+
+    @Benchmark
+    public void trie(Blackhole blackhole) {
+        for (String path : PATHS) {
+            blackhole.consume(matcher.matches(path));
+        }
+    }
+
+    @Benchmark
+    public void streamOfPrefixes(Blackhole blackhole) {
+        for (String path : PATHS) {
+            blackhole.consume(PublicPathMatcherTest.legacyIsPublicPath(path));
+        }
+    }
+}
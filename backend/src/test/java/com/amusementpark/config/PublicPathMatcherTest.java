@@ -0,0 +1,74 @@
+package com.amusementpark.config;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+class PublicPathMatcherTest {
+
+    static final String[] DEFAULT_RULES = {"/api/auth/login*", "/api/auth/register*", "/api/auth/logout*",
+            "/api/auth/username-available*", "/css/*", "/js/*", "/images/*", "/"};
+
+    private static final List<String> PATHS = List.of(
+            "", "/", "//", "/index.html", "/api", "/api/auth", "/api/auth/", "/api/auth/login", "/api/auth/login/",
+            "/api/auth/loginx", "/api/auth/logi", "/api/auth/register", "/api/auth/registered", "/api/auth/logout",
+            "/api/auth/username-available", "/api/auth/username-available/alice", "/api/auth/me", "/api/chat/send",
+            "/api/tickets/book", "/css", "/css/", "/css/site.css", "/cssx/site.css", "/js/app.js", "/js",
+            "/images/logo.png", "/image/logo.png", "/API/auth/login", "/api/diagnostics");
+
+    /**
+     * The hard-coded check AuthenticationFilter used before the rules became configurable,
+     * with the username-available endpoint added since
+     */
+    static boolean legacyIsPublicPath(String path) {
+        List<String> publicPaths = Arrays.asList("/api/auth/login", "/api/auth/register", "/api/auth/logout",
+                "/api/auth/username-available");
+        return publicPaths.stream().anyMatch(path::startsWith)
+                || path.startsWith("/css/")
+                || path.startsWith("/js/")
+                || path.startsWith("/images/")
+                || path.equals("/");
+    }
+
+    @Test
+    void defaultRulesMatchTheOldHardCodedCheck() {
+        PublicPathMatcher matcher = new PublicPathMatcher(DEFAULT_RULES);
+        for (String path : PATHS) {
+            assertThat(matcher.matches(path)).as(path).isEqualTo(legacyIsPublicPath(path));
+        }
+
+        // Paths glued together from pieces of the rules, so most of them share a prefix with one
+        String[] pieces = {"/", "api", "auth", "login", "logi", "register", "logout", "username-available",
+                "css", "js", "images", "chat", "x", ".png", "-"};
+        Random random = new Random(42L);
+        for (int n = 0; n < 20_000; n++) {
+            StringBuilder path = new StringBuilder();
+            int parts = random.nextInt(8);
+            for (int p = 0; p < parts; p++) {
+                path.append(pieces[random.nextInt(pieces.length)]);
+            }
+            assertThat(matcher.matches(path.toString())).as(path.toString()).isEqualTo(legacyIsPublicPath(path.toString()));
+        }
+    }
+
+    @Test
+    void hitsAreCountedAgainstTheMostSpecificRule() {
+        PublicPathMatcher matcher = new PublicPathMatcher(new String[] {"/api/*", "/api/auth/*", " /health ", "/api/*"});
+
+        matcher.matches("/api/chat/send");
+        matcher.matches("/api/auth/login");
+        matcher.matches("/api/auth/register");
+        matcher.matches("/health");
+        assertThat(matcher.matches("/health/db")).isFalse();
+        assertThat(matcher.matches("/other")).isFalse();
+
+        // The duplicate rule never matches and must not hide the hits of the first one
+        assertThat(matcher.getHits()).containsExactly(
+                entry("/api/*", 1L), entry("/api/auth/*", 2L), entry("/health", 1L));
+    }
+}
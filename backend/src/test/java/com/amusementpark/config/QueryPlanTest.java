@@ -0,0 +1,178 @@
+package com.amusementpark.config;
+
+import com.amusementpark.models.ChatArchiveBucket;
+import com.amusementpark.models.ChatMessage;
+import com.amusementpark.models.ChatMessageBucket;
+import com.amusementpark.models.ConversationState;
+import com.amusementpark.models.Ride;
+import com.amusementpark.models.Ticket;
+import com.amusementpark.models.User;
+import com.mongodb.ConnectionString;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.SimpleMongoClientDatabaseFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Explains a representative query for every repository finder against the indexes
+ * {@link MongoIndexProvisioner} creates, and fails for each one whose winning plan scans
+ * the whole collection. Runs against the MongoDB at TEST_MONGODB_URI (localhost by
+ * default) in a throwaway database, and is skipped when none is reachable.
+ */
+class QueryPlanTest {
+
+    private record CheckedQuery(String finder, Class<?> entity, Document filter, Document sort) {
+    }
+
+    private static MongoClient client;
+    private static MongoTemplate mongoTemplate;
+    private static String database;
+
+    @BeforeAll
+    static void provisionIndexes() {
+        String uri = System.getenv().getOrDefault("TEST_MONGODB_URI", "mongodb://localhost:27017");
+        client = MongoClients.create(MongoClientSettings.builder()
+                .applyConnectionString(new ConnectionString(uri))
+                .applyToClusterSettings(cluster -> cluster.serverSelectionTimeout(2, TimeUnit.SECONDS))
+                .build());
+        assumeTrue(isReachable(), "No MongoDB at " + uri);
+
+        database = "query_plan_test_" + new ObjectId().toHexString();
+        mongoTemplate = new MongoTemplate(new SimpleMongoClientDatabaseFactory(client, database), MongoModels.converter());
+        MongoIndexProvisioner provisioner = new MongoIndexProvisioner();
+        ReflectionTestUtils.setField(provisioner, "mongoTemplate", mongoTemplate);
+        provisioner.ensureIndexes();
+    }
+
+    @AfterAll
+    static void dropDatabase() {
+        if (mongoTemplate != null) {
+            mongoTemplate.getDb().drop();
+        }
+        if (client != null) {
+            client.close();
+        }
+    }
+
+    @Test
+    void repositoryFindersUseAnIndex() {
+        List<String> scans = new ArrayList<>();
+        for (CheckedQuery query : queries()) {
+            if (usesCollectionScan(explain(query))) {
+                scans.add(query.finder());
+            }
+        }
+        assertThat(scans).as("finders whose winning plan is a COLLSCAN").isEmpty();
+    }
+
+    /**
+     * One query per finder, shaped like what the derived or annotated query sends
+     */
+    private static List<CheckedQuery> queries() {
+        String userId = "query-plan-check";
+        LocalDateTime now = LocalDateTime.now();
+        Document afterCursor = new Document("userId", userId).append("$or", List.of(
+                new Document("timestamp", new Document("$gt", now)),
+                new Document("timestamp", now).append("_id", new Document("$gt", new ObjectId()))));
+
+        return List.of(
+                new CheckedQuery("ChatMessageRepository.findByUserIdOrderByTimestampAsc", ChatMessage.class,
+                        new Document("userId", userId), new Document("timestamp", 1)),
+                new CheckedQuery("ChatMessageRepository.findByUserIdOrderByTimestampAscIdAsc", ChatMessage.class,
+                        new Document("userId", userId), new Document("timestamp", 1).append("_id", 1)),
+                new CheckedQuery("ChatMessageRepository.findPageAfter", ChatMessage.class,
+                        afterCursor, new Document("timestamp", 1).append("_id", 1)),
+                new CheckedQuery("ChatMessageRepository.findByUserIdOrderByTimestampDesc", ChatMessage.class,
+                        new Document("userId", userId), new Document("timestamp", -1)),
+                new CheckedQuery("BucketChatMessageStore.insert", ChatMessageBucket.class,
+                        new Document("userId", userId).append("day", now.toLocalDate().toString())
+                                .append("count", new Document("$lte", 199)), null),
+                new CheckedQuery("BucketChatMessageStore.findAfter", ChatMessageBucket.class,
+                        new Document("userId", userId).append("lastTimestamp", new Document("$gte", now)),
+                        new Document("lastTimestamp", 1)),
+                new CheckedQuery("BucketChatMessageStore.findLatest", ChatMessageBucket.class,
+                        new Document("userId", userId), new Document("lastTimestamp", -1)),
+                new CheckedQuery("ChatArchiveService.findArchivedMessagesAfter", ChatArchiveBucket.class,
+                        new Document("userId", userId).append("lastTimestamp", new Document("$gte", now)),
+                        new Document("lastTimestamp", 1)),
+                new CheckedQuery("ChatArchiveService.findArchivedMessagesBefore", ChatArchiveBucket.class,
+                        new Document("userId", userId).append("firstTimestamp", new Document("$lte", now)),
+                        new Document("firstTimestamp", -1)),
+                new CheckedQuery("ConversationStateRepository.findByUserId", ConversationState.class,
+                        new Document("userId", userId), null),
+                new CheckedQuery("TicketRepository.findByUserId", Ticket.class,
+                        new Document("userId", userId), null),
+                new CheckedQuery("TicketRepository.findSummariesByUserId", Ticket.class,
+                        new Document("userId", userId), null),
+                new CheckedQuery("RideRepository.findByName", Ride.class,
+                        new Document("name", "query-plan-check"), null),
+                new CheckedQuery("RideRepository.findByCategory", Ride.class,
+                        new Document("category", "query-plan-check"), null),
+                new CheckedQuery("UserRepository.findByUsername", User.class,
+                        new Document("username", "query-plan-check"), null),
+                new CheckedQuery("UserRepository.findByEmail", User.class,
+                        new Document("email", "query-plan-check"), null));
+    }
+
+    private static Document explain(CheckedQuery query) {
+        Document find = new Document("find", mongoTemplate.getCollectionName(query.entity()))
+                .append("filter", query.filter());
+        if (query.sort() != null) {
+            find.append("sort", query.sort());
+        }
+        Document command = new Document("explain", find).append("verbosity", "queryPlanner");
+        return mongoTemplate.getDb().runCommand(command);
+    }
+
+    private static boolean usesCollectionScan(Document explainResult) {
+        Document queryPlanner = explainResult.get("queryPlanner", Document.class);
+        return queryPlanner != null && containsStage(queryPlanner.get("winningPlan"), "COLLSCAN");
+    }
+
+    /**
+     * Walk a plan tree, which nests stages under inputStage, inputStages and queryPlan
+     */
+    private static boolean containsStage(Object node, String stage) {
+        if (node instanceof Document plan) {
+            if (stage.equals(plan.getString("stage"))) {
+                return true;
+            }
+            for (Object child : plan.values()) {
+                if (containsStage(child, stage)) {
+                    return true;
+                }
+            }
+        } else if (node instanceof List<?> plans) {
+            for (Object child : plans) {
+                if (containsStage(child, stage)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean isReachable() {
+        try {
+            client.getDatabase("admin").runCommand(new Document("ping", 1));
+            return true;
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+}
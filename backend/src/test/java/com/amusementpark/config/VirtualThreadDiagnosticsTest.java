@@ -0,0 +1,148 @@
+package com.amusementpark.config;
+
+import com.amusementpark.models.DailyCapacity;
+import com.amusementpark.models.TicketType;
+import com.amusementpark.services.CapacityService;
+import com.mongodb.client.result.UpdateResult;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.api.condition.JRE;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+class VirtualThreadDiagnosticsTest {
+
+    // Tomcat's default server.tomcat.threads.max
+    private static final int PLATFORM_THREADS = 200;
+    private static final int REQUESTS = 2000;
+    private static final long DATABASE_LATENCY_MS = 50;
+
+    @Test
+    void platformThreadsUnlessRequested() {
+        VirtualThreadDiagnostics diagnostics = diagnostics(false);
+        diagnostics.start();
+
+        assertThat(diagnostics.isVirtual()).isFalse();
+    }
+
+    @Test
+    @EnabledForJreRange(max = JRE.JAVA_20)
+    void requestedModeFallsBackToPlatformThreadsBeforeJava21() {
+        VirtualThreadDiagnostics diagnostics = diagnostics(true);
+        diagnostics.start();
+
+        assertThat(diagnostics.isVirtual()).isFalse();
+    }
+
+    @Test
+    @EnabledForJreRange(min = JRE.JAVA_21)
+    void requestedModeUsesVirtualThreadsOnJava21() {
+        VirtualThreadDiagnostics diagnostics = diagnostics(true);
+        diagnostics.start();
+        try {
+            assertThat(diagnostics.isVirtual()).isTrue();
+        } finally {
+            diagnostics.stop();
+        }
+    }
+
+    /**
+     * Books tickets against a database that takes 50 ms per update, once on a pool the size
+     * of Tomcat's and once with a virtual thread per request. The pool never has more than
+     * 200 updates in flight, the virtual threads are only bounded by the requests.
+     */
+    @Test
+    @EnabledForJreRange(min = JRE.JAVA_21)
+    void virtualThreadsKeepMoreSlowDatabaseCallsInFlightThanTheRequestPool() throws Exception {
+        // Warm up the service and the JIT on both kinds of thread
+        book(Executors.newFixedThreadPool(PLATFORM_THREADS));
+        book(newVirtualThreadPerTaskExecutor());
+
+        LoadResult platform = book(Executors.newFixedThreadPool(PLATFORM_THREADS));
+        LoadResult virtual = book(newVirtualThreadPerTaskExecutor());
+
+        String comparison = "virtual " + virtual + ", platform " + platform;
+        assertThat(platform.peakInFlight()).as(comparison).isLessThanOrEqualTo(PLATFORM_THREADS);
+        assertThat(virtual.peakInFlight()).as(comparison).isGreaterThan(PLATFORM_THREADS);
+        assertThat(virtual.elapsedMs()).as(comparison).isLessThan(platform.elapsedMs());
+    }
+
+    private record LoadResult(long elapsedMs, int peakInFlight) {
+        @Override
+        public String toString() {
+            return elapsedMs + " ms with up to " + peakInFlight + " database calls in flight";
+        }
+    }
+
+    private static VirtualThreadDiagnostics diagnostics(boolean virtualThreadsRequested) {
+        VirtualThreadDiagnostics diagnostics = new VirtualThreadDiagnostics();
+        ReflectionTestUtils.setField(diagnostics, "virtualThreadsRequested", virtualThreadsRequested);
+        ReflectionTestUtils.setField(diagnostics, "pinningDiagnosticsEnabled", true);
+        ReflectionTestUtils.setField(diagnostics, "pinningThresholdMs", 20L);
+        return diagnostics;
+    }
+
+    /**
+     * Run one reservation per simulated request against a slow database and wait for all of them
+     */
+    private static LoadResult book(ExecutorService executor) throws Exception {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger peakInFlight = new AtomicInteger();
+        MongoTemplate mongoTemplate = mock(MongoTemplate.class, withSettings().stubOnly());
+        when(mongoTemplate.findById(anyString(), eq(DailyCapacity.class))).thenReturn(new DailyCapacity());
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(DailyCapacity.class))).thenAnswer(invocation -> {
+            peakInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            Thread.sleep(DATABASE_LATENCY_MS);
+            inFlight.decrementAndGet();
+            return UpdateResult.acknowledged(1, 1L, null);
+        });
+
+        CapacityService capacityService = new CapacityService();
+        ReflectionTestUtils.setField(capacityService, "mongoTemplate", mongoTemplate);
+        ReflectionTestUtils.setField(capacityService, "parkDailyCapacity", 0);
+        TicketType dayPass = new TicketType("Day Pass", "Day Pass", 0, 10.0, false);
+        dayPass.setId("day");
+        Map<String, TicketType> ticketTypes = Map.of("day", dayPass);
+        LocalDate date = LocalDate.of(2025, 6, 14);
+
+        long start = System.nanoTime();
+        try {
+            List<Future<?>> requests = new ArrayList<>();
+            for (int i = 0; i < REQUESTS; i++) {
+                requests.add(executor.submit(() -> capacityService.reserve(date, Map.of("day", 1), ticketTypes)));
+            }
+            for (Future<?> request : requests) {
+                request.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        return new LoadResult((System.nanoTime() - start) / 1_000_000, peakInFlight.get());
+    }
+
+    /**
+     * Executors.newVirtualThreadPerTaskExecutor, looked up at runtime since the build targets Java 17
+     */
+    private static ExecutorService newVirtualThreadPerTaskExecutor() throws Exception {
+        return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+    }
+}
@@ -0,0 +1,75 @@
+package com.amusementpark.controllers;
+
+import com.amusementpark.models.ChatHistoryPage;
+import com.amusementpark.models.ChatMessage;
+import com.amusementpark.services.ChatService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.List;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class ChatControllerTest {
+
+    private ChatService chatService;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        chatService = mock(ChatService.class);
+        ChatController controller = new ChatController();
+        ReflectionTestUtils.setField(controller, "chatService", chatService);
+        ReflectionTestUtils.setField(controller, "objectMapper", new ObjectMapper());
+        mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+    }
+
+    @Test
+    void historyWithoutCursorOrLimitIsTheWholeList() throws Exception {
+        when(chatService.getChatHistoryByUserId("alice")).thenReturn(List.of(
+                message("m1", "hello"), message("m2", "hi there")));
+
+        mockMvc.perform(get("/api/chat/history").param("userId", "alice"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$").isArray())
+                .andExpect(jsonPath("$[0].id").value("m1"))
+                .andExpect(jsonPath("$[1].message").value("hi there"));
+    }
+
+    @Test
+    void historyWithLimitIsAPage() throws Exception {
+        when(chatService.getChatHistoryPage("alice", null, 1))
+                .thenReturn(new ChatHistoryPage(List.of(message("m1", "hello")), "next"));
+
+        mockMvc.perform(get("/api/chat/history").param("userId", "alice").param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.messages[0].id").value("m1"))
+                .andExpect(jsonPath("$.nextCursor").value("next"));
+    }
+
+    @Test
+    void historyWithCursorUsesTheDefaultPageSize() throws Exception {
+        when(chatService.getChatHistoryPage("alice", "next", 50))
+                .thenReturn(new ChatHistoryPage(List.of(message("m2", "hi there")), null));
+
+        mockMvc.perform(get("/api/chat/history").param("userId", "alice").param("cursor", "next")
+                        .param("view", "summary"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.messages[0].id").value("m2"))
+                .andExpect(jsonPath("$.messages[0].userId").doesNotExist());
+    }
+
+    private static ChatMessage message(String id, String text) {
+        ChatMessage message = new ChatMessage("alice", text, "user");
+        message.setId(id);
+        return message;
+    }
+}
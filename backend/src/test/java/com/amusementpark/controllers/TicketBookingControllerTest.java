@@ -0,0 +1,70 @@
+package com.amusementpark.controllers;
+
+import com.amusementpark.models.Ticket;
+import com.amusementpark.models.TicketSummary;
+import com.amusementpark.services.TicketService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class TicketBookingControllerTest {
+
+    private TicketService ticketService;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        ticketService = mock(TicketService.class);
+        TicketBookingController controller = new TicketBookingController();
+        ReflectionTestUtils.setField(controller, "ticketService", ticketService);
+        mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+    }
+
+    @Test
+    void fullViewIsTheDefault() throws Exception {
+        Ticket ticket = new Ticket();
+        ticket.setId("t1");
+        ticket.setEmail("alice@example.com");
+        when(ticketService.getTicketsByUserId("alice")).thenReturn(List.of(ticket));
+
+        mockMvc.perform(get("/api/tickets/user/alice"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value("t1"))
+                .andExpect(jsonPath("$[0].email").value("alice@example.com"));
+        verify(ticketService, never()).getTicketSummariesByUserId(anyString());
+    }
+
+    @Test
+    void summaryViewReadsTheProjection() throws Exception {
+        when(ticketService.getTicketSummariesByUserId("alice")).thenReturn(List.of(new TicketSummary(
+                "t1", LocalDateTime.of(2025, 6, 14, 10, 0), LocalDateTime.of(2025, 6, 1, 9, 0), 12, 1.41, "BOOKED")));
+
+        mockMvc.perform(get("/api/tickets/user/alice").param("view", "summary"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value("t1"))
+                .andExpect(jsonPath("$[0].totalRidesAllowed").value(12))
+                .andExpect(jsonPath("$[0].totalPrice").value(1.41))
+                .andExpect(jsonPath("$[0].email").doesNotExist());
+        verify(ticketService, never()).getTicketsByUserId(anyString());
+    }
+
+    @Test
+    void unknownViewIsABadRequest() throws Exception {
+        mockMvc.perform(get("/api/tickets/user/alice").param("view", "compact"))
+                .andExpect(status().isBadRequest());
+    }
+}
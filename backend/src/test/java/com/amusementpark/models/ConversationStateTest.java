@@ -0,0 +1,60 @@
+package com.amusementpark.models;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConversationStateTest {
+
+    @Test
+    void historyKeepsOnlyTheMostRecentEntries() {
+        ConversationState state = new ConversationState("alice");
+        for (int turn = 1; turn <= 5; turn++) {
+            state.addToHistory(ConversationState.USER_ENTRY, "question " + turn, 4, 280);
+            state.addToHistory(ConversationState.BOT_ENTRY, "answer " + turn, 4, 280);
+        }
+
+        assertThat(state.getHistory()).containsExactly("Uquestion 4", "Banswer 4", "Uquestion 5", "Banswer 5");
+    }
+
+    @Test
+    void longMessagesAreCutWithoutSplittingAnEmoji() {
+        ConversationState state = new ConversationState("alice");
+
+        state.addToHistory(ConversationState.USER_ENTRY, "abcdef", 10, 4);
+        state.addToHistory(ConversationState.BOT_ENTRY, "abc🎢def", 10, 4);
+        state.addToHistory(ConversationState.BOT_ENTRY, "abcd", 10, 4);
+
+        assertThat(state.getHistory()).containsExactly("Uabcd", "Babc", "Babcd");
+    }
+
+    @Test
+    void oversizedStoredHistoryIsTrimmedOnTheNextTurn() {
+        // A document written before the window existed
+        List<String> stored = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            stored.add("User: message " + i);
+        }
+        ConversationState state = new ConversationState("alice");
+        state.setHistory(stored);
+
+        state.addToHistory(ConversationState.USER_ENTRY, "hello", 3, 280);
+
+        assertThat(state.getHistory()).containsExactly("User: message 48", "User: message 49", "Uhello");
+    }
+
+    @Test
+    void historySurvivesAReset() {
+        ConversationState state = new ConversationState("alice");
+        state.addToHistory(ConversationState.USER_ENTRY, "bye", 4, 280);
+        state.setContextValue("groupType", "solo");
+
+        state.reset();
+
+        assertThat(state.getContextData()).isEmpty();
+        assertThat(state.getHistory()).containsExactly("Ubye");
+    }
+}
@@ -0,0 +1,95 @@
+package com.amusementpark.repositories;
+
+import com.amusementpark.config.MongoModels;
+import com.amusementpark.models.Ticket;
+import com.amusementpark.models.TicketSummary;
+import com.mongodb.ConnectionString;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.SimpleMongoClientDatabaseFactory;
+import org.springframework.data.mongodb.repository.support.MongoRepositoryFactory;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Runs the ticket summary projection against the MongoDB at TEST_MONGODB_URI (localhost
+ * by default) in a throwaway database, and is skipped when none is reachable.
+ */
+class TicketRepositoryTest {
+
+    private static MongoClient client;
+    private static MongoTemplate mongoTemplate;
+    private static TicketRepository ticketRepository;
+
+    @BeforeAll
+    static void createRepository() {
+        String uri = System.getenv().getOrDefault("TEST_MONGODB_URI", "mongodb://localhost:27017");
+        client = MongoClients.create(MongoClientSettings.builder()
+                .applyConnectionString(new ConnectionString(uri))
+                .applyToClusterSettings(cluster -> cluster.serverSelectionTimeout(2, TimeUnit.SECONDS))
+                .build());
+        assumeTrue(isReachable(), "No MongoDB at " + uri);
+
+        String database = "ticket_repository_test_" + new ObjectId().toHexString();
+        mongoTemplate = new MongoTemplate(new SimpleMongoClientDatabaseFactory(client, database), MongoModels.converter());
+        ticketRepository = new MongoRepositoryFactory(mongoTemplate).getRepository(TicketRepository.class);
+    }
+
+    @AfterAll
+    static void dropDatabase() {
+        if (mongoTemplate != null) {
+            mongoTemplate.getDb().drop();
+        }
+        if (client != null) {
+            client.close();
+        }
+    }
+
+    @Test
+    void summariesCarryTheListFieldsOfTheUsersTickets() {
+        Ticket ticket = ticket("alice");
+        ticketRepository.save(ticket);
+        ticketRepository.save(ticket("bob"));
+
+        List<TicketSummary> summaries = ticketRepository.findSummariesByUserId("alice");
+
+        assertThat(summaries).containsExactly(new TicketSummary(ticket.getId(), ticket.getVisitDate(),
+                ticket.getBookingDate(), 12, 1.41, "BOOKED"));
+    }
+
+    private static Ticket ticket(String userId) {
+        Ticket ticket = new Ticket();
+        ticket.setUserId(userId);
+        ticket.setEmail(userId + "@example.com");
+        ticket.setTicketTypes(Map.of("silver", 1, "gold", 2));
+        ticket.setTotalRidesAllowed(12);
+        ticket.setTotalPrice(1.41);
+        ticket.setStatus("BOOKED");
+        // MongoDB stores milliseconds, so equality holds after the round trip
+        ticket.setVisitDate(LocalDateTime.of(2025, 6, 14, 10, 0));
+        ticket.setBookingDate(LocalDateTime.of(2025, 6, 1, 9, 30));
+        return ticket;
+    }
+
+    private static boolean isReachable() {
+        try {
+            client.getDatabase("admin").runCommand(new Document("ping", 1));
+            return true;
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+}
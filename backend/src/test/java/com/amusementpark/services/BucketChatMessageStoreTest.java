@@ -0,0 +1,80 @@
+package com.amusementpark.services;
+
+import com.amusementpark.models.ChatMessage;
+import com.amusementpark.models.ChatMessageBucket;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BucketChatMessageStoreTest {
+
+    private MongoTemplate mongoTemplate;
+    private BulkOperations bulk;
+    private BucketChatMessageStore store;
+
+    @BeforeEach
+    void setUp() {
+        mongoTemplate = mock(MongoTemplate.class);
+        bulk = mock(BulkOperations.class);
+        when(mongoTemplate.bulkOps(any(BulkOperations.BulkMode.class), eq(ChatMessageBucket.class))).thenReturn(bulk);
+
+        store = new BucketChatMessageStore();
+        ReflectionTestUtils.setField(store, "mongoTemplate", mongoTemplate);
+        ReflectionTestUtils.setField(store, "bucketSize", 200);
+    }
+
+    @Test
+    void removeTakesThePulledMessagesOffTheCount() {
+        ChatMessage first = message();
+        ChatMessage second = message();
+        ChatMessage kept = message();
+        ChatMessageBucket bucket = new ChatMessageBucket();
+        bucket.setId("bucket-1");
+        bucket.setMessages(List.of(first, second, kept));
+        when(mongoTemplate.find(any(Query.class), eq(ChatMessageBucket.class))).thenReturn(List.of(bucket));
+
+        store.remove(List.of(first, second));
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(bulk).updateOne(query.capture(), update.capture());
+        verify(bulk).execute();
+        assertThat(update.getValue().getUpdateObject().get("$inc", Document.class).get("count")).isEqualTo(-2);
+        // Guarded by the messages still being in the bucket
+        assertThat(query.getValue().getQueryObject().get("messages._id", Document.class).get("$all", List.class))
+                .containsExactly(new ObjectId(first.getId()), new ObjectId(second.getId()));
+    }
+
+    @Test
+    void removeOfMessagesNoLongerStoredWritesNothing() {
+        when(mongoTemplate.find(any(Query.class), eq(ChatMessageBucket.class))).thenReturn(List.of());
+
+        store.remove(List.of(message()));
+
+        verify(bulk, never()).execute();
+        verify(mongoTemplate, never()).remove(any(Query.class), eq(ChatMessageBucket.class));
+    }
+
+    private static ChatMessage message() {
+        ChatMessage message = new ChatMessage("alice", "hello", "user");
+        message.setId(new ObjectId().toHexString());
+        return message;
+    }
+}
@@ -0,0 +1,219 @@
+package com.amusementpark.services;
+
+import com.amusementpark.models.DailyCapacity;
+import com.amusementpark.models.TicketType;
+import com.mongodb.client.result.UpdateResult;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CapacityServiceTest {
+
+    private static final LocalDate DATE = LocalDate.of(2025, 6, 14);
+
+    private MongoTemplate mongoTemplate;
+    // The daily_capacity document of DATE, shared by every node of a test
+    private final DailyCapacity stored = new DailyCapacity();
+    private CapacityService capacityService;
+    private TicketType dayPass;
+    private TicketType vipPass;
+
+    @BeforeEach
+    void setUp() {
+        mongoTemplate = mock(MongoTemplate.class);
+        when(mongoTemplate.findById(anyString(), eq(DailyCapacity.class))).thenAnswer(invocation -> storedCopy());
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(DailyCapacity.class)))
+                .thenAnswer(invocation -> updateStored(invocation.getArgument(0), invocation.getArgument(1)));
+
+        capacityService = node();
+
+        dayPass = ticketType("day", "Day Pass", 0);
+        vipPass = ticketType("vip", "VIP Pass", 30);
+    }
+
+    @Test
+    void concurrentReservationsNeverOversell() throws Exception {
+        Map<String, TicketType> ticketTypes = Map.of("day", dayPass, "vip", vipPass);
+        CapacityService[] nodes = {capacityService, node()};
+        int threads = 16;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<int[]>> results = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            String ticketTypeId = t % 2 == 0 ? "day" : "vip";
+            CapacityService node = nodes[(t / 2) % 2];
+            results.add(pool.submit(() -> {
+                start.await();
+                int booked = 0;
+                for (int i = 0; i < 50; i++) {
+                    try {
+                        node.reserve(DATE, Map.of(ticketTypeId, 1), ticketTypes);
+                        booked++;
+                    } catch (CapacityExceededException e) {
+                        // Sold out
+                    }
+                }
+                return new int[] {"vip".equals(ticketTypeId) ? booked : 0, booked};
+            }));
+        }
+        start.countDown();
+
+        int vipBooked = 0;
+        int totalBooked = 0;
+        for (Future<int[]> result : results) {
+            int[] booked = result.get(10, TimeUnit.SECONDS);
+            vipBooked += booked[0];
+            totalBooked += booked[1];
+        }
+        pool.shutdown();
+
+        // 800 attempts on two nodes for 100 tickets, so every ticket is sold but none twice
+        assertThat(totalBooked).isEqualTo(100);
+        assertThat(vipBooked).isLessThanOrEqualTo(30);
+        assertThat(stored.getReserved()).isEqualTo(100);
+        assertThat(stored.getReservedByType().get("vip")).isEqualTo(vipBooked);
+        assertThat(nodes[0].getRemaining(DATE)).isZero();
+        assertThat(nodes[1].getRemaining(DATE)).isZero();
+    }
+
+    @Test
+    void databaseRejectsWhatAnotherNodeAlreadySold() {
+        CapacityService otherNode = node();
+        assertThat(capacityService.getRemaining(DATE)).isEqualTo(100);
+        otherNode.reserve(DATE, Map.of("vip", 28), Map.of("vip", vipPass));
+        otherNode.reserve(DATE, Map.of("day", 67), Map.of("day", dayPass));
+
+        // This node still counts 0 reservations, only the conditional update stops it
+        assertThatThrownBy(() -> capacityService.reserve(DATE, Map.of("day", 10), Map.of("day", dayPass)))
+                .isInstanceOf(CapacityExceededException.class);
+        assertThatThrownBy(() -> capacityService.reserve(DATE, Map.of("vip", 3), Map.of("vip", vipPass)))
+                .isInstanceOf(CapacityExceededException.class);
+
+        assertThat(stored.getReserved()).isEqualTo(95);
+        assertThat(capacityService.getRemaining(DATE)).isEqualTo(5);
+        capacityService.reserve(DATE, Map.of("vip", 2), Map.of("vip", vipPass));
+        assertThat(stored.getReservedByType()).containsEntry("vip", 30);
+    }
+
+    @Test
+    void ticketsGivenBackOnAnotherNodeCanBeBookedAgain() {
+        CapacityService otherNode = node();
+        capacityService.reserve(DATE, Map.of("day", 100), Map.of("day", dayPass));
+        otherNode.release(DATE, Map.of("day", 10));
+
+        // This node still counts 100 reservations and re-reads the date before saying no
+        capacityService.reserve(DATE, Map.of("day", 10), Map.of("day", dayPass));
+
+        assertThat(stored.getReserved()).isEqualTo(100);
+        assertThatThrownBy(() -> capacityService.reserve(DATE, Map.of("day", 1), Map.of("day", dayPass)))
+                .isInstanceOf(CapacityExceededException.class)
+                .hasMessage("The park is sold out on " + DATE);
+    }
+
+    @Test
+    void failedDatabaseUpdateGivesTheTicketsBack() {
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(DailyCapacity.class)))
+                .thenThrow(new RuntimeException("down"));
+
+        assertThatThrownBy(() -> capacityService.reserve(DATE, Map.of("day", 5), Map.of("day", dayPass)))
+                .hasMessage("down");
+        assertThat(capacityService.getRemaining(DATE)).isEqualTo(100);
+    }
+
+    @Test
+    void zeroParkCapacityMeansNoLimit() {
+        ReflectionTestUtils.setField(capacityService, "parkDailyCapacity", 0);
+
+        capacityService.reserve(DATE, Map.of("day", 500), Map.of("day", dayPass));
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).updateFirst(query.capture(), any(Update.class), eq(DailyCapacity.class));
+        assertThat(query.getValue().getQueryObject()).doesNotContainKey("reserved");
+        assertThat(capacityService.getRemaining(DATE)).isEqualTo(Integer.MAX_VALUE);
+    }
+
+    private CapacityService node() {
+        CapacityService node = new CapacityService();
+        ReflectionTestUtils.setField(node, "mongoTemplate", mongoTemplate);
+        ReflectionTestUtils.setField(node, "parkDailyCapacity", 100);
+        return node;
+    }
+
+    private DailyCapacity storedCopy() {
+        synchronized (stored) {
+            DailyCapacity copy = new DailyCapacity();
+            copy.setReserved(stored.getReserved());
+            copy.setReservedByType(new HashMap<>(stored.getReservedByType()));
+            return copy;
+        }
+    }
+
+    /**
+     * Apply an update the way MongoDB does, only if the $lte and $not/$gt conditions of
+     * the query hold for the stored document
+     */
+    private UpdateResult updateStored(Query query, Update update) {
+        synchronized (stored) {
+            for (Map.Entry<String, Object> condition : query.getQueryObject().entrySet()) {
+                if (condition.getKey().equals("_id")) {
+                    continue;
+                }
+                Integer current = storedValue(condition.getKey());
+                Document operator = (Document) condition.getValue();
+                boolean matches = operator.containsKey("$lte")
+                        ? current != null && current <= operator.getInteger("$lte")
+                        : current == null || current <= ((Document) operator.get("$not")).getInteger("$gt");
+                if (!matches) {
+                    return UpdateResult.acknowledged(0, 0L, null);
+                }
+            }
+            Document inc = (Document) update.getUpdateObject().get("$inc");
+            inc.forEach((field, delta) -> {
+                int value = (storedValue(field) != null ? storedValue(field) : 0) + (Integer) delta;
+                if (field.equals("reserved")) {
+                    stored.setReserved(value);
+                } else {
+                    stored.getReservedByType().put(field.substring("reservedByType.".length()), value);
+                }
+            });
+            return UpdateResult.acknowledged(1, 1L, null);
+        }
+    }
+
+    private Integer storedValue(String field) {
+        return field.equals("reserved") ? Integer.valueOf(stored.getReserved())
+                : stored.getReservedByType().get(field.substring("reservedByType.".length()));
+    }
+
+    private static TicketType ticketType(String id, String name, int dailyCapacity) {
+        TicketType ticketType = new TicketType(name, name, 0, 10.0, false);
+        ticketType.setId(id);
+        ticketType.setDailyCapacity(dailyCapacity);
+        return ticketType;
+    }
+}
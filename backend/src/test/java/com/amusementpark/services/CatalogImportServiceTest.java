@@ -0,0 +1,159 @@
+package com.amusementpark.services;
+
+import com.amusementpark.config.MongoModels;
+import com.amusementpark.models.CatalogMeta;
+import com.amusementpark.models.Ride;
+import com.amusementpark.models.TicketType;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentProperty;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class CatalogImportServiceTest {
+
+    private static final String CATALOG = """
+            {
+              "version": 3,
+              "rides": [
+                {"name": "Sky Drop", "description": "Drops", "category": "THRILL"},
+                {"name": "Tea Cups", "category": "KIDS", "isActive": false}
+              ],
+              "ticketTypes": [
+                {"name": "Gold", "price": 799.0, "rideLimit": 10}
+              ]
+            }
+            """;
+
+    private MongoTemplate mongoTemplate;
+    private CatalogService catalogService;
+    private BulkOperations rideBulk;
+    private BulkOperations ticketTypeBulk;
+    private CatalogImportService importService;
+
+    @BeforeEach
+    void setUp() {
+        mongoTemplate = mock(MongoTemplate.class);
+        catalogService = mock(CatalogService.class);
+        rideBulk = mock(BulkOperations.class);
+        ticketTypeBulk = mock(BulkOperations.class);
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Ride.class)).thenReturn(rideBulk);
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, TicketType.class)).thenReturn(ticketTypeBulk);
+
+        importService = importService(CATALOG, true);
+    }
+
+    @Test
+    void changedCatalogIsUpsertedByNameInOneBulkWritePerCollection() {
+        importService.importCatalog();
+
+        ArgumentCaptor<Query> queries = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> updates = ArgumentCaptor.forClass(Update.class);
+        verify(rideBulk, times(2)).upsert(queries.capture(), updates.capture());
+        verify(rideBulk).execute();
+        verify(ticketTypeBulk).upsert(any(Query.class), any(Update.class));
+        verify(ticketTypeBulk).execute();
+
+        assertThat(queries.getAllValues().get(0).getQueryObject()).isEqualTo(new Document("name", "Sky Drop"));
+        // New rides are active unless the resource says otherwise, existing ones keep their state
+        assertThat(updates.getAllValues().get(0).getUpdateObject()).isEqualTo(new Document()
+                .append("$set", new Document("name", "Sky Drop").append("description", "Drops").append("category", "THRILL"))
+                .append("$setOnInsert", new Document("isActive", true)));
+        assertThat(updates.getAllValues().get(1).getUpdateObject()).isEqualTo(new Document("$set",
+                new Document("name", "Tea Cups").append("category", "KIDS").append("isActive", false)));
+
+        ArgumentCaptor<CatalogMeta> meta = ArgumentCaptor.forClass(CatalogMeta.class);
+        verify(mongoTemplate).save(meta.capture());
+        assertThat(meta.getValue().getVersion()).isEqualTo(3);
+        assertThat(meta.getValue().getContentHash()).hasSize(64);
+        verify(catalogService).refresh();
+    }
+
+    @Test
+    void unchangedCatalogIsNotWritten() {
+        importService.importCatalog();
+        ArgumentCaptor<CatalogMeta> meta = ArgumentCaptor.forClass(CatalogMeta.class);
+        verify(mongoTemplate).save(meta.capture());
+        when(mongoTemplate.findById(CatalogMeta.ID, CatalogMeta.class)).thenReturn(meta.getValue());
+
+        importService(CATALOG, true).importCatalog();
+
+        verify(mongoTemplate, times(1)).bulkOps(eq(BulkOperations.BulkMode.UNORDERED), eq(Ride.class));
+        verify(mongoTemplate, times(1)).save(any(CatalogMeta.class));
+        verify(catalogService, times(1)).refresh();
+    }
+
+    @Test
+    void entryWithoutANameFailsTheImport() {
+        importService = importService("{\"rides\": [{\"description\": \"Nameless\"}]}", true);
+
+        assertThatThrownBy(importService::importCatalog).isInstanceOf(IllegalStateException.class);
+
+        verify(rideBulk, never()).execute();
+        verify(mongoTemplate, never()).save(any(CatalogMeta.class));
+        verifyNoInteractions(catalogService);
+    }
+
+    @Test
+    void disabledImportTouchesNothing() {
+        importService(CATALOG, false).importCatalog();
+
+        verifyNoInteractions(mongoTemplate, catalogService);
+    }
+
+    @Test
+    void shippedCatalogOnlyUsesMappedFields() throws IOException {
+        Document catalog = Document.parse(new ClassPathResource("catalog/catalog.json")
+                .getContentAsString(StandardCharsets.UTF_8));
+
+        assertEntriesAreMapped(catalog.getList("rides", Document.class), Ride.class);
+        assertEntriesAreMapped(catalog.getList("ticketTypes", Document.class), TicketType.class);
+    }
+
+    private static void assertEntriesAreMapped(List<Document> entries, Class<?> type) {
+        MongoPersistentEntity<?> entity = MongoModels.converter().getMappingContext().getRequiredPersistentEntity(type);
+        Set<String> fields = new HashSet<>();
+        entity.doWithProperties((MongoPersistentProperty property) -> fields.add(property.getFieldName()));
+        Set<String> names = new HashSet<>();
+
+        assertThat(entries).isNotEmpty();
+        for (Document entry : entries) {
+            assertThat(fields).as(entry.toJson()).containsAll(entry.keySet());
+            assertThat(names.add(entry.getString("name"))).as("duplicate " + entry.getString("name")).isTrue();
+        }
+    }
+
+    private CatalogImportService importService(String catalog, boolean enabled) {
+        CatalogImportService service = new CatalogImportService();
+        ReflectionTestUtils.setField(service, "mongoTemplate", mongoTemplate);
+        ReflectionTestUtils.setField(service, "catalogService", catalogService);
+        ReflectionTestUtils.setField(service, "enabled", enabled);
+        ReflectionTestUtils.setField(service, "resource", new ByteArrayResource(catalog.getBytes(StandardCharsets.UTF_8)));
+        return service;
+    }
+}
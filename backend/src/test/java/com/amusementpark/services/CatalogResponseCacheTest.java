@@ -0,0 +1,69 @@
+package com.amusementpark.services;
+
+import com.amusementpark.models.Ride;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class CatalogResponseCacheTest {
+
+    private CatalogService catalogService;
+    private CatalogResponseCache cache;
+
+    @BeforeEach
+    void setUp() {
+        catalogService = mock(CatalogService.class);
+        cache = new CatalogResponseCache();
+        ReflectionTestUtils.setField(cache, "catalogService", catalogService);
+        ReflectionTestUtils.setField(cache, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(cache, "gzip", true);
+    }
+
+    @Test
+    void responsesAreBuiltOncePerCatalogVersion() {
+        CatalogSnapshot version1 = new CatalogSnapshot(1, List.of(new Ride("Thunder Loop", "Loops", "THRILL")), List.of());
+        when(catalogService.getCatalog()).thenReturn(version1);
+
+        PrecomputedResponse rides = cache.getRides();
+        assertThat(cache.getRides()).isSameAs(rides);
+        assertThat(cache.getRideSummaries()).isNotSameAs(rides);
+
+        CatalogSnapshot version2 = new CatalogSnapshot(2, List.of(new Ride("Tea Cups", "Spins", "KIDS")), List.of());
+        when(catalogService.getCatalog()).thenReturn(version2);
+
+        assertThat(cache.getRides()).isNotSameAs(rides);
+    }
+
+    @Test
+    void rideSummariesLeaveOutTheDescription() throws IOException {
+        Ride ride = new Ride("Thunder Loop", "Loops", "THRILL");
+        ride.setId("r1");
+        ride.setImageUrl("/img/thunder.png");
+        when(catalogService.getCatalog()).thenReturn(new CatalogSnapshot(1, List.of(ride), List.of()));
+
+        JsonNode summary = body(cache.getRideSummaries()).get(0);
+
+        assertThat(summary.get("id").asText()).isEqualTo("r1");
+        assertThat(summary.get("name").asText()).isEqualTo("Thunder Loop");
+        assertThat(summary.get("category").asText()).isEqualTo("THRILL");
+        assertThat(summary.get("imageUrl").asText()).isEqualTo("/img/thunder.png");
+        assertThat(summary.has("description")).isFalse();
+        assertThat(body(cache.getRides()).get(0).get("description").asText()).isEqualTo("Loops");
+    }
+
+    private static JsonNode body(PrecomputedResponse response) throws IOException {
+        byte[] body = response.toResponseEntity(new ServletWebRequest(new MockHttpServletRequest())).getBody();
+        return new ObjectMapper().readTree(body);
+    }
+}
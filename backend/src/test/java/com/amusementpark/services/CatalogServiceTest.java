@@ -0,0 +1,96 @@
+package com.amusementpark.services;
+
+import com.amusementpark.models.Ride;
+import com.amusementpark.models.TicketType;
+import com.amusementpark.repositories.RideRepository;
+import com.amusementpark.repositories.TicketTypeRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CatalogServiceTest {
+
+    private RideRepository rideRepository;
+    private TicketTypeRepository ticketTypeRepository;
+    private CatalogService catalogService;
+
+    @BeforeEach
+    void setUp() {
+        rideRepository = mock(RideRepository.class);
+        ticketTypeRepository = mock(TicketTypeRepository.class);
+        when(rideRepository.findAll()).thenReturn(List.of(ride("r1", "Thunder Loop", "THRILL")));
+        when(ticketTypeRepository.findAll()).thenReturn(List.of(ticketType("t1", "Gold Pass")));
+
+        catalogService = new CatalogService();
+        ReflectionTestUtils.setField(catalogService, "rideRepository", rideRepository);
+        ReflectionTestUtils.setField(catalogService, "ticketTypeRepository", ticketTypeRepository);
+    }
+
+    @Test
+    void readsAreServedFromTheLoadedSnapshot() {
+        CatalogSnapshot first = catalogService.getCatalog();
+        CatalogSnapshot second = catalogService.getCatalog();
+
+        assertThat(second).isSameAs(first);
+        assertThat(first.getRideByName("Thunder Loop").getId()).isEqualTo("r1");
+        assertThat(first.getRidesByCategory("THRILL")).extracting(Ride::getId).containsExactly("r1");
+        assertThat(first.getRidesByCategory("KIDS")).isEmpty();
+        assertThat(first.getTicketTypeById("t1").getName()).isEqualTo("Gold Pass");
+        verify(rideRepository, times(1)).findAll();
+    }
+
+    @Test
+    void versionOnlyChangesWithTheContent() {
+        CatalogSnapshot loaded = catalogService.getCatalog();
+
+        assertThat(catalogService.refresh()).isSameAs(loaded);
+
+        when(rideRepository.findAll()).thenReturn(List.of(ride("r1", "Thunder Loop", "THRILL"), ride("r2", "Tea Cups", "KIDS")));
+        CatalogSnapshot changed = catalogService.refresh();
+        assertThat(changed.getVersion()).isEqualTo(loaded.getVersion() + 1);
+        assertThat(changed.getRides()).hasSize(2);
+    }
+
+    @Test
+    void savingARidePublishesANewSnapshot() {
+        CatalogSnapshot loaded = catalogService.getCatalog();
+        Ride added = ride("r2", "Tea Cups", "KIDS");
+        when(rideRepository.save(added)).thenReturn(added);
+        when(rideRepository.findAll()).thenReturn(List.of(ride("r1", "Thunder Loop", "THRILL"), added));
+
+        catalogService.saveRide(added);
+
+        assertThat(catalogService.getCatalog().getVersion()).isGreaterThan(loaded.getVersion());
+        assertThat(catalogService.getCatalog().getRideById("r2")).isEqualTo(added);
+    }
+
+    @Test
+    void failedPollKeepsTheCurrentSnapshot() {
+        CatalogSnapshot loaded = catalogService.getCatalog();
+        when(rideRepository.findAll()).thenThrow(new RuntimeException("down"));
+
+        catalogService.poll();
+
+        assertThat(catalogService.getCatalog()).isSameAs(loaded);
+    }
+
+    private static Ride ride(String id, String name, String category) {
+        Ride ride = new Ride(name, name, category);
+        ride.setId(id);
+        return ride;
+    }
+
+    private static TicketType ticketType(String id, String name) {
+        TicketType ticketType = new TicketType(name, name, 0, 10.0, false);
+        ticketType.setId(id);
+        return ticketType;
+    }
+}
@@ -0,0 +1,164 @@
+package com.amusementpark.services;
+
+import com.amusementpark.config.MongoModels;
+import com.amusementpark.models.ChatArchiveBucket;
+import com.amusementpark.models.ChatMessage;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ChatArchiveServiceTest {
+
+    private MongoTemplate mongoTemplate;
+    private BulkOperations bulk;
+    private ChatMessageStore chatMessageStore;
+    private ChatArchiveService chatArchiveService;
+    private List<ChatMessage> messages;
+
+    @BeforeEach
+    void setUp() {
+        MappingMongoConverter converter = MongoModels.converter();
+        mongoTemplate = mock(MongoTemplate.class);
+        bulk = mock(BulkOperations.class);
+        when(mongoTemplate.getConverter()).thenReturn(converter);
+        when(mongoTemplate.bulkOps(any(BulkOperations.BulkMode.class), eq(ChatArchiveBucket.class))).thenReturn(bulk);
+        when(mongoTemplate.getCollectionName(ChatArchiveBucket.class)).thenReturn("chat_archive");
+
+        messages = new ArrayList<>();
+        LocalDateTime start = LocalDateTime.of(2025, 6, 1, 10, 0);
+        for (int i = 0; i < 5; i++) {
+            ChatMessage message = new ChatMessage("alice", "message " + i, "user");
+            message.setId(new ObjectId().toHexString());
+            message.setTimestamp(start.plusMinutes(i));
+            messages.add(message);
+        }
+        chatMessageStore = mock(ChatMessageStore.class);
+        when(chatMessageStore.findOlderThan(any(LocalDateTime.class), anyInt())).thenReturn(messages);
+
+        chatArchiveService = new ChatArchiveService();
+        ReflectionTestUtils.setField(chatArchiveService, "mongoTemplate", mongoTemplate);
+        ReflectionTestUtils.setField(chatArchiveService, "chatMessageStore", chatMessageStore);
+        ReflectionTestUtils.setField(chatArchiveService, "enabled", true);
+        ReflectionTestUtils.setField(chatArchiveService, "archiveAfterDays", 30);
+        ReflectionTestUtils.setField(chatArchiveService, "batchSize", 1000);
+        ReflectionTestUtils.setField(chatArchiveService, "maxBatchesPerRun", 1);
+        ReflectionTestUtils.setField(chatArchiveService, "bucketSize", 2);
+        ReflectionTestUtils.setField(chatArchiveService, "lockMs", 600_000L);
+    }
+
+    @Test
+    void bucketsAreCappedAtTheBucketSize() {
+        assertThat(chatArchiveService.archiveOldMessages()).isEqualTo(5);
+
+        List<Query> queries = new ArrayList<>();
+        List<Update> updates = new ArrayList<>();
+        captureUpserts(3, queries, updates);
+        assertThat(updates).extracting(ChatArchiveServiceTest::pushedCount).containsExactly(2, 2, 1);
+        assertThat(queries).extracting(query -> query.getQueryObject().get("count")).containsOnly(0);
+        assertThat(queries).extracting(query -> query.getQueryObject().get("_id")).doesNotHaveDuplicates();
+        verify(chatMessageStore).remove(messages);
+    }
+
+    @Test
+    void newestBucketIsFilledUpAndArchivedMessagesAreSkipped() {
+        ChatArchiveBucket newest = newestBucket(messages.get(1));
+        archived(messages.get(0), messages.get(1));
+
+        assertThat(chatArchiveService.archiveOldMessages()).isEqualTo(5);
+
+        List<Query> queries = new ArrayList<>();
+        List<Update> updates = new ArrayList<>();
+        captureUpserts(2, queries, updates);
+        // Messages 0 and 1 were archived by a run that failed before removing them
+        assertThat(queries.get(0).getQueryObject().get("count")).isEqualTo(1);
+        assertThat(queries.get(0).getQueryObject().get("_id").toString()).isEqualTo(newest.getId());
+        assertThat(updates).extracting(ChatArchiveServiceTest::pushedCount).containsExactly(1, 2);
+        verify(chatMessageStore).remove(messages);
+    }
+
+    @Test
+    void skippedMessagesMissingFromTheArchiveStayInTheHotStore() {
+        // Message 1 got an older timestamp than the last archived message but was never archived
+        messages.get(1).setTimestamp(messages.get(0).getTimestamp());
+        newestBucket(messages.get(2));
+        archived(messages.get(0), messages.get(2));
+
+        assertThat(chatArchiveService.archiveOldMessages()).isEqualTo(4);
+
+        ArgumentCaptor<Query> lookup = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).find(lookup.capture(), eq(Document.class), eq("chat_archive"));
+        assertThat(lookup.getValue().getQueryObject().get("messages._id", Document.class).getList("$in", Object.class))
+                .hasSize(3);
+        verify(chatMessageStore).remove(List.of(messages.get(0), messages.get(2), messages.get(3), messages.get(4)));
+    }
+
+    @Test
+    void nothingIsMovedWhileAnotherInstanceHoldsTheLock() {
+        when(mongoTemplate.upsert(any(Query.class), any(UpdateDefinition.class), eq("job_locks")))
+                .thenThrow(new DuplicateKeyException("locked"));
+
+        assertThat(chatArchiveService.archiveOldMessages()).isZero();
+
+        verify(chatMessageStore, never()).findOlderThan(any(LocalDateTime.class), anyInt());
+    }
+
+    private ChatArchiveBucket newestBucket(ChatMessage last) {
+        ChatArchiveBucket newest = new ChatArchiveBucket();
+        newest.setId(new ObjectId().toHexString());
+        newest.setUserId("alice");
+        newest.setMonth("2025-06");
+        newest.setCount(1);
+        newest.setLastTimestamp(last.getTimestamp());
+        newest.setLastMessageId(last.getId());
+        when(mongoTemplate.findOne(any(Query.class), eq(ChatArchiveBucket.class))).thenReturn(newest);
+        return newest;
+    }
+
+    /**
+     * Answer the lookup of skipped messages as if these are in the archive
+     */
+    private void archived(ChatMessage... archived) {
+        List<Document> ids = new ArrayList<>();
+        for (ChatMessage message : archived) {
+            ids.add(new Document("_id", new ObjectId(message.getId())));
+        }
+        when(mongoTemplate.find(any(Query.class), eq(Document.class), eq("chat_archive")))
+                .thenReturn(List.of(new Document("messages", ids)));
+    }
+
+    private void captureUpserts(int expected, List<Query> queries, List<Update> updates) {
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(bulk, times(expected)).upsert(query.capture(), update.capture());
+        queries.addAll(query.getAllValues());
+        updates.addAll(update.getAllValues());
+    }
+
+    private static int pushedCount(Update update) {
+        return update.getUpdateObject().get("$inc", Document.class).getInteger("count");
+    }
+}
@@ -0,0 +1,160 @@
+package com.amusementpark.services;
+
+import com.amusementpark.models.ChatMessage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+
+class ChatMessageWriterTest {
+
+    private final ChatMessageStore chatMessageStore = mock(ChatMessageStore.class);
+    // Copies of the batches handed to the store, in insertion order
+    private final List<List<ChatMessage>> batches = Collections.synchronizedList(new ArrayList<>());
+    private ChatMessageWriter writer;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        writer.stop();
+    }
+
+    @Test
+    void syncModeInsertsTheTurnAtOnce() {
+        writer = writer("sync", 10);
+        recordBatches();
+        List<ChatMessage> turn = List.of(message("hello"), message("Hey there!"));
+
+        writer.write(turn);
+
+        assertThat(batches).containsExactly(turn);
+        assertThat(turn).allSatisfy(message -> assertThat(message.getId()).isNotNull());
+        assertThat(writer.getWrittenMessages()).isEqualTo(2);
+    }
+
+    @Test
+    void syncModeFailureReachesTheCaller() {
+        writer = writer("sync", 10);
+        doThrow(new RuntimeException("down")).when(chatMessageStore).insert(anyList());
+
+        assertThatThrownBy(() -> writer.write(List.of(message("hello")))).hasMessage("down");
+        assertThat(writer.getFailedMessages()).isEqualTo(1);
+    }
+
+    @Test
+    void asyncModeWritesEveryMessageInBoundedBatches() throws InterruptedException {
+        writer = writer("async", 10);
+        recordBatches();
+        List<ChatMessage> written = new ArrayList<>();
+        for (int i = 0; i < 125; i++) {
+            List<ChatMessage> turn = List.of(message("question " + i), message("answer " + i));
+            written.addAll(turn);
+            writer.write(turn);
+        }
+
+        writer.stop();
+
+        assertThat(batches).allSatisfy(batch -> assertThat(batch).hasSizeLessThanOrEqualTo(10));
+        assertThat(batches.stream().flatMap(List::stream).toList()).containsExactlyElementsOf(written);
+        assertThat(writer.getQueueDepth()).isZero();
+    }
+
+    @Test
+    void writesAfterStopAreNotLost() throws InterruptedException {
+        writer = writer("async", 10);
+        recordBatches();
+        writer.stop();
+
+        // A turn still running on its stripe during shutdown
+        List<ChatMessage> late = List.of(message("late question"), message("late answer"));
+        writer.write(late);
+
+        assertThat(batches).containsExactly(late);
+        assertThat(writer.getQueueDepth()).isZero();
+    }
+
+    @Test
+    void failedAsyncBatchIsCountedNotRetried() throws InterruptedException {
+        writer = writer("async", 10);
+        doAnswer(invocation -> {
+            batches.add(List.copyOf(invocation.<List<ChatMessage>>getArgument(0)));
+            throw new RuntimeException("down");
+        }).when(chatMessageStore).insert(anyList());
+
+        writer.write(List.of(message("hello"), message("Hey there!")));
+        writer.stop();
+
+        assertThat(batches.stream().mapToInt(List::size).sum()).isEqualTo(2);
+        assertThat(writer.getFailedMessages()).isEqualTo(2);
+        assertThat(writer.getWrittenMessages()).isZero();
+    }
+
+    @Test
+    void fullQueueWritesOnTheCallersThread() throws InterruptedException {
+        writer = writer("async", 10, 1, 10L);
+        CountDownLatch flushStarted = new CountDownLatch(1);
+        CountDownLatch databaseBack = new CountDownLatch(1);
+        List<String> writes = Collections.synchronizedList(new ArrayList<>());
+        doAnswer(invocation -> {
+            String thread = Thread.currentThread().getName();
+            for (ChatMessage message : invocation.<List<ChatMessage>>getArgument(0)) {
+                writes.add(message.getMessage() + " on " + thread);
+            }
+            if (thread.equals("chat-message-writer")) {
+                flushStarted.countDown();
+                databaseBack.await();
+            }
+            return null;
+        }).when(chatMessageStore).insert(anyList());
+        String caller = Thread.currentThread().getName();
+
+        // The writer thread takes the first message and hangs in the database, the second fills the queue
+        writer.write(List.of(message("first")));
+        assertThat(flushStarted.await(5, TimeUnit.SECONDS)).isTrue();
+        writer.write(List.of(message("second")));
+        writer.write(List.of(message("third")));
+
+        assertThat(writes).containsExactly("first on chat-message-writer", "third on " + caller);
+        databaseBack.countDown();
+        writer.stop();
+        assertThat(writes).hasSize(3).anyMatch(write -> write.startsWith("second on "));
+    }
+
+    private ChatMessageWriter writer(String mode, int batchSize) {
+        return writer(mode, batchSize, 1000, 1000L);
+    }
+
+    private ChatMessageWriter writer(String mode, int batchSize, int queueCapacity, long enqueueTimeoutMs) {
+        ChatMessageWriter writer = new ChatMessageWriter();
+        ReflectionTestUtils.setField(writer, "chatMessageStore", chatMessageStore);
+        ReflectionTestUtils.setField(writer, "mode", mode);
+        ReflectionTestUtils.setField(writer, "batchSize", batchSize);
+        ReflectionTestUtils.setField(writer, "flushIntervalMs", 20L);
+        ReflectionTestUtils.setField(writer, "queueCapacity", queueCapacity);
+        ReflectionTestUtils.setField(writer, "enqueueTimeoutMs", enqueueTimeoutMs);
+        writer.start();
+        return writer;
+    }
+
+    private void recordBatches() {
+        doAnswer(invocation -> {
+            batches.add(List.copyOf(invocation.<List<ChatMessage>>getArgument(0)));
+            return null;
+        }).when(chatMessageStore).insert(anyList());
+    }
+
+    private static ChatMessage message(String text) {
+        return new ChatMessage("alice", text, "user");
+    }
+}
@@ -0,0 +1,74 @@
+package com.amusementpark.services;
+
+import com.amusementpark.models.Ride;
+import com.amusementpark.models.TicketType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ChatReplyTemplatesTest {
+
+    private CatalogService catalogService;
+    private ChatReplyTemplates templates;
+
+    @BeforeEach
+    void setUp() {
+        catalogService = mock(CatalogService.class);
+        templates = new ChatReplyTemplates();
+        ReflectionTestUtils.setField(templates, "catalogService", catalogService);
+    }
+
+    @Test
+    void ridesAreSummarizedByCategory() {
+        catalog(1, List.of(new Ride("Thunder Coaster", "", "THRILL"), new Ride("Mini Carousel", "", "KIDS"),
+                new Ride("Sky Drop", "", "THRILL")), List.of());
+
+        assertThat(templates.getRidesSummary()).isEqualTo(
+                "We have 3 exciting rides at our amusement park across several categories:\n\n"
+                + "Thrill Rides: Thunder Coaster, Sky Drop.\n"
+                + "Kids Rides: Mini Carousel.");
+    }
+
+    @Test
+    void noRidesGetsAnApology() {
+        catalog(1, List.of(), List.of());
+
+        assertThat(templates.getRidesSummary()).isEqualTo("Sorry, we currently don't have ride info.");
+        assertThat(templates.getTicketPrices()).isEmpty();
+    }
+
+    @Test
+    void pricesListOnlyThePassTiers() {
+        catalog(1, List.of(), List.of(ticketType("Silver", 499), ticketType("Gold", 799.5),
+                ticketType("Fast Track", 300), ticketType("diamond", 1199)));
+
+        assertThat(templates.getTicketPrices()).isEqualTo(String.format(
+                "\nTicket Price Examples (per person):- Silver Ticket: Rs %.2f\n- Gold Ticket: Rs %.2f\n- diamond Ticket: Rs %.2f\n",
+                499.0, 799.5, 1199.0));
+    }
+
+    @Test
+    void fragmentsFollowTheCatalogVersion() {
+        catalog(1, List.of(new Ride("Sky Drop", "", "THRILL")), List.of());
+        String first = templates.getRidesSummary();
+        assertThat(templates.getRidesSummary()).isSameAs(first);
+
+        catalog(2, List.of(new Ride("Sky Drop", "", "THRILL"), new Ride("Water Splash", "", "KIDS")), List.of());
+
+        assertThat(templates.getRidesSummary()).startsWith("We have 2 exciting rides");
+    }
+
+    private void catalog(long version, List<Ride> rides, List<TicketType> ticketTypes) {
+        when(catalogService.getCatalog()).thenReturn(new CatalogSnapshot(version, rides, ticketTypes));
+    }
+
+    private static TicketType ticketType(String name, double price) {
+        return new TicketType(name, name, 0, price, false);
+    }
+}
@@ -0,0 +1,143 @@
+package com.amusementpark.services;
+
+import com.amusementpark.models.ChatMessage;
+import com.amusementpark.models.ConversationState;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ChatServiceTest {
+
+    private static final String SUGGESTION = "Great! Based on your information";
+
+    private ChatMessageWriter chatMessageWriter;
+    private ChatService chatService;
+
+    @BeforeEach
+    void setUp() {
+        ConversationStateCache cache = mock(ConversationStateCache.class);
+        when(cache.get(anyString())).thenAnswer(invocation -> new ConversationState(invocation.getArgument(0)));
+        chatMessageWriter = mock(ChatMessageWriter.class);
+        ChatReplyTemplates chatReplyTemplates = mock(ChatReplyTemplates.class);
+        when(chatReplyTemplates.getTicketPrices()).thenReturn(" [prices]");
+        when(chatReplyTemplates.getSuggestionFooter()).thenReturn(" [footer]");
+
+        chatService = new ChatService(mock(ChatMessageStore.class), cache, new IntentMatcher(), chatReplyTemplates);
+        ReflectionTestUtils.setField(chatService, "chatMessageWriter", chatMessageWriter);
+        ReflectionTestUtils.setField(chatService, "historyMaxTurns", 10);
+        ReflectionTestUtils.setField(chatService, "historyMaxEntryLength", 280);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void userMessageSortsBeforeTheReplyWhenTimestampsTie() {
+        AtomicReference<ChatMessage> pushed = new AtomicReference<>();
+        ChatMessage reply = chatService.processUserMessage("alice", "hello", pushed::set);
+
+        ArgumentCaptor<List<ChatMessage>> written = ArgumentCaptor.forClass(List.class);
+        verify(chatMessageWriter).write(written.capture());
+        ChatMessage question = written.getValue().get(0);
+        ChatMessage answer = written.getValue().get(1);
+
+        assertThat(question.getSender()).isEqualTo("user");
+        assertThat(answer).isSameAs(reply);
+        assertThat(pushed.get().getId()).isEqualTo(answer.getId());
+        assertThat(new ObjectId(question.getId())).isLessThan(new ObjectId(answer.getId()));
+
+        // Mongo keeps milliseconds only, so both messages of a turn usually share a timestamp
+        answer.setTimestamp(question.getTimestamp());
+        assertThat(ChatArchiveService.POSITION.compare(question, answer)).isNegative();
+    }
+
+    @Test
+    void familyFlowAsksForTheCompositionAndChildrenHeight() {
+        ConversationState state = new ConversationState("alice");
+
+        assertThat(reply(state, "Hi")).startsWith("Hey there!");
+        assertThat(lastIntent(state)).isEqualTo("greet");
+        assertThat(reply(state, "I want to buy tickets")).isEqualTo("Are you visiting alone, with friends, or with family?");
+        assertThat(lastIntent(state)).isEqualTo("await_group_type_clarification");
+        assertThat(reply(state, "with my family")).isEqualTo("How many adults and how many children will be joining?");
+        assertThat(lastIntent(state)).isEqualTo("await_family_composition");
+
+        // Neither a count nor a greeting leaves the question open
+        assertThat(reply(state, "hello")).isEqualTo("Please tell me how many adults and children will be joining.");
+        assertThat(lastIntent(state)).isEqualTo("await_family_composition");
+
+        assertThat(reply(state, "2 adults and 1 child")).isEqualTo("Are the children shorter than 2.5 ft in height?");
+        assertThat(lastIntent(state)).isEqualTo("await_children_height_confirmation");
+        assertThat(state.getContextValue("adults")).isEqualTo(2);
+        assertThat(state.getContextValue("children")).isEqualTo(1);
+
+        assertThat(reply(state, "maybe")).isEqualTo("Sorry, I didn't catch that. Are the children shorter than 2.5 ft? (yes/no)");
+        assertThat(reply(state, "yes")).isEqualTo(SUGGESTION
+                + "- For 2 adult(s), we recommend Gold Tickets.- 1 child(ren) (below 2.5 ft) can enter for free! [prices] [footer]");
+        assertThat(lastIntent(state)).isEqualTo("ticket_suggestion_provided");
+
+        assertThat(reply(state, "thanks")).startsWith("You're welcome!");
+        assertThat(lastIntent(state)).isNull();
+    }
+
+    @Test
+    void friendsFlowCountsTheUserAsAnAdult() {
+        ConversationState state = new ConversationState("alice");
+
+        // The group type is taken from the first message, which does not answer the next question yet
+        assertThat(reply(state, "a ticket for me and my friends")).isEqualTo("Sorry, I didn't catch that. Are all your friends adults? (yes/no)");
+        assertThat(lastIntent(state)).isEqualTo("await_friends_adult_status_confirmation");
+        assertThat(reply(state, "yes")).isEqualTo("Great! How many friends will be joining you?");
+        assertThat(lastIntent(state)).isEqualTo("await_friends_count");
+        assertThat(reply(state, "3 of them")).isEqualTo(SUGGESTION
+                + "- For 4 adult(s), we recommend Gold Tickets. [prices] [footer]");
+        assertThat(lastIntent(state)).isEqualTo("ticket_suggestion_provided");
+    }
+
+    @Test
+    void friendsWithChildrenAreAskedAboutTheirHeight() {
+        ConversationState state = new ConversationState("alice");
+        reply(state, "a ticket for me and my friends");
+
+        assertThat(reply(state, "nope")).isEqualTo("Okay. Please tell me how many adults and how many children are in your group of friends.");
+        assertThat(lastIntent(state)).isEqualTo("await_friends_mixed_composition");
+        assertThat(reply(state, "3 adults and 2 children")).isEqualTo("Are the children in your group shorter than 2.5 ft in height?");
+        assertThat(lastIntent(state)).isEqualTo("await_children_height_confirmation");
+        // Handled by state, not group type, so friends no longer get the generic re-prompt here
+        assertThat(reply(state, "no")).isEqualTo(SUGGESTION
+                + "- For 4 adult(s), we recommend Gold Tickets.- For 2 child(ren), we recommend Diamond Tickets. [prices] [footer]");
+        assertThat(lastIntent(state)).isEqualTo("ticket_suggestion_provided");
+    }
+
+    @Test
+    void soloVisitorGetsSuggestionsRightAway() {
+        ConversationState state = new ConversationState("alice");
+
+        assertThat(reply(state, "Buy a gold pass just for myself")).isEqualTo(SUGGESTION
+                + "- For 1 adult(s), we recommend Gold Tickets. [prices] [footer]");
+        assertThat(state.getContextValue("groupType")).isEqualTo("solo");
+        assertThat(lastIntent(state)).isEqualTo("ticket_suggestion_provided");
+
+        // Outside the ticket flow the general intents answer
+        assertThat(reply(state, "what time do you open?")).startsWith("⏰");
+        assertThat(reply(state, "bye")).startsWith("Goodbye!");
+        assertThat(state.getContextValue("groupType")).isNull();
+    }
+
+    private String reply(ConversationState state, String text) {
+        return chatService.respond(state, text).getMessage();
+    }
+
+    private static String lastIntent(ConversationState state) {
+        return (String) state.getContextValue("last_intent");
+    }
+}
@@ -0,0 +1,116 @@
+package com.amusementpark.services;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ChatTurnExecutorTest {
+
+    private ChatTurnExecutor executor;
+
+    @BeforeEach
+    void setUp() {
+        executor = executor(4, 10_000);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        executor.stop();
+    }
+
+    @Test
+    void turnsOfOneUserNeverOverlap() throws Exception {
+        // Deliberately unsynchronized, like a ConversationState shared by two tabs
+        int[] counter = new int[1];
+        List<Integer> order = new ArrayList<>();
+        ExecutorService senders = Executors.newFixedThreadPool(8);
+        List<CompletableFuture<Integer>> turns = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            turns.add(CompletableFuture.supplyAsync(() -> executor.submit("alice", () -> {
+                int seen = counter[0];
+                Thread.yield();
+                counter[0] = seen + 1;
+                order.add(seen);
+                return seen;
+            }), senders).thenCompose(turn -> turn));
+        }
+        CompletableFuture.allOf(turns.toArray(new CompletableFuture[0])).get(10, TimeUnit.SECONDS);
+        senders.shutdown();
+
+        assertThat(counter[0]).isEqualTo(2000);
+        assertThat(order).isSorted().doesNotHaveDuplicates();
+    }
+
+    @Test
+    void usersOnOtherStripesAreNotHeldUp() throws Exception {
+        String[] users = usersOnDifferentStripes();
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Boolean> blocked = executor.submit(users[0], () -> awaitQuietly(release));
+
+        assertThat(executor.submit(users[1], () -> "done").get(5, TimeUnit.SECONDS)).isEqualTo("done");
+        assertThat(blocked).isNotDone();
+        release.countDown();
+        assertThat(blocked.get(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void fullMailboxRejectsTheTurn() throws InterruptedException {
+        executor.stop();
+        executor = executor(1, 1);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        executor.submit("alice", () -> {
+            started.countDown();
+            return awaitQuietly(release);
+        });
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        try {
+            executor.submit("alice", () -> true);
+            assertThat(executor.getQueuedTurns()).isEqualTo(1);
+            assertThatThrownBy(() -> executor.submit("alice", () -> true)).isInstanceOf(RejectedExecutionException.class);
+        } finally {
+            release.countDown();
+        }
+    }
+
+    private String[] usersOnDifferentStripes() {
+        Object first = ReflectionTestUtils.invokeMethod(executor, "stripeFor", "user-0");
+        for (int i = 1; ; i++) {
+            String candidate = "user-" + i;
+            if (ReflectionTestUtils.invokeMethod(executor, "stripeFor", candidate) != first) {
+                return new String[] {"user-0", candidate};
+            }
+        }
+    }
+
+    private static boolean awaitQuietly(CountDownLatch latch) {
+        try {
+            return latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static ChatTurnExecutor executor(int stripes, int queueCapacity) {
+        ChatTurnExecutor executor = new ChatTurnExecutor();
+        ReflectionTestUtils.setField(executor, "stripeCount", stripes);
+        ReflectionTestUtils.setField(executor, "queueCapacity", queueCapacity);
+        executor.start();
+        return executor;
+    }
+}
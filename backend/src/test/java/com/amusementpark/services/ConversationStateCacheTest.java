@@ -0,0 +1,159 @@
+package com.amusementpark.services;
+
+import com.amusementpark.models.ConversationState;
+import com.amusementpark.repositories.ConversationStateRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class ConversationStateCacheTest {
+
+    private ConversationStateRepository repository;
+    private ChatTurnExecutor executor;
+    private ConversationStateCache cache;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(ConversationStateRepository.class);
+        executor = new ChatTurnExecutor();
+        ReflectionTestUtils.setField(executor, "stripeCount", 4);
+        ReflectionTestUtils.setField(executor, "queueCapacity", 100);
+        executor.start();
+
+        cache = new ConversationStateCache();
+        ReflectionTestUtils.setField(cache, "conversationStateRepository", repository);
+        ReflectionTestUtils.setField(cache, "chatTurnExecutor", executor);
+        ReflectionTestUtils.setField(cache, "maxEntries", 3);
+        ReflectionTestUtils.setField(cache, "idleTtlMs", 60_000L);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        executor.stop();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void checkpointSavesACopyOfTheState() {
+        ConversationState state = activeState("alice", System.currentTimeMillis());
+        state.setContextValue("groupType", "family");
+        state.addToHistory(ConversationState.USER_ENTRY, "hello", 10, 280);
+        cache.add(state);
+        cache.markDirty(state);
+
+        cache.checkpoint();
+
+        ArgumentCaptor<List<ConversationState>> saved = ArgumentCaptor.forClass(List.class);
+        verify(repository).saveAll(saved.capture());
+        ConversationState copy = saved.getValue().get(0);
+        assertThat(copy).isNotSameAs(state).isEqualTo(state);
+        assertThat(copy.getContextData()).isNotSameAs(state.getContextData());
+        assertThat(copy.getHistory()).isNotSameAs(state.getHistory());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void newStateIsSavedUnderTheSameIdEveryTime() {
+        ConversationState state = activeState("carol", System.currentTimeMillis());
+        cache.add(state);
+        cache.markDirty(state);
+        cache.checkpoint();
+        state.setContextValue("groupType", "solo");
+        cache.markDirty(state);
+
+        cache.checkpoint();
+
+        ArgumentCaptor<List<ConversationState>> saved = ArgumentCaptor.forClass(List.class);
+        verify(repository, times(2)).saveAll(saved.capture());
+        String firstId = saved.getAllValues().get(0).get(0).getId();
+        assertThat(firstId).isNotNull();
+        assertThat(saved.getAllValues().get(1).get(0).getId()).isEqualTo(firstId);
+        assertThat(state.getId()).isEqualTo(firstId);
+    }
+
+    @Test
+    void onlyStatesThatFailOnTheirOwnStayDirty() {
+        ConversationState good = activeState("dave", System.currentTimeMillis());
+        ConversationState bad = activeState("erin", System.currentTimeMillis());
+        for (ConversationState state : List.of(good, bad)) {
+            cache.add(state);
+            cache.markDirty(state);
+        }
+        doThrow(new RuntimeException("duplicate key")).when(repository).saveAll(anyList());
+        doThrow(new RuntimeException("duplicate key")).when(repository).save(argThat(state -> "erin".equals(state.getUserId())));
+
+        cache.checkpoint();
+
+        verify(repository).save(argThat(state -> "dave".equals(state.getUserId())));
+        reset(repository);
+        cache.checkpoint();
+        verify(repository).saveAll(List.of(bad));
+    }
+
+    @Test
+    void idleStateStaysCachedUntilItIsWrittenBack() {
+        ConversationState state = activeState("bob", 0);
+        cache.add(state);
+        cache.markDirty(state);
+        doThrow(new RuntimeException("down")).when(repository).saveAll(anyList());
+        doThrow(new RuntimeException("down")).when(repository).save(any(ConversationState.class));
+
+        cache.checkpoint();
+        drain("bob");
+        assertThat(cache.getIfPresent("bob")).isSameAs(state);
+
+        reset(repository);
+        cache.checkpoint();
+        drain("bob");
+        verify(repository).saveAll(List.of(state));
+        assertThat(cache.getIfPresent("bob")).isNull();
+    }
+
+    @Test
+    void fullCacheEvictsTheLeastRecentlyActiveState() {
+        long now = System.currentTimeMillis();
+        ConversationState oldest = activeState("u1", now - 3000);
+        cache.add(activeState("u0", now - 1000));
+        cache.add(oldest);
+        cache.add(activeState("u2", now - 2000));
+        cache.markDirty(oldest);
+
+        cache.add(activeState("u3", now));
+        drain("u1");
+
+        verify(repository).save(oldest);
+        assertThat(cache.getIfPresent("u1")).isNull();
+        assertThat(cache.getIfPresent("u0")).isNotNull();
+        assertThat(cache.getIfPresent("u2")).isNotNull();
+        assertThat(cache.getIfPresent("u3")).isNotNull();
+    }
+
+    private static ConversationState activeState(String userId, long lastInteractionTime) {
+        ConversationState state = new ConversationState(userId);
+        state.setLastInteractionTime(lastInteractionTime);
+        return state;
+    }
+
+    /**
+     * Wait until the work queued on the user's stripe so far has run
+     */
+    private void drain(String userId) {
+        executor.submit(userId, () -> null).join();
+        // The eviction's completion callback runs right after the task on the same thread
+        executor.submit(userId, () -> null).join();
+    }
+}
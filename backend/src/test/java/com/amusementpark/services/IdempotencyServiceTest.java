@@ -0,0 +1,123 @@
+package com.amusementpark.services;
+
+import com.amusementpark.models.IdempotencyRecord;
+import com.amusementpark.models.Ticket;
+import com.mongodb.client.result.UpdateResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.HexFormat;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class IdempotencyServiceTest {
+
+    private static final byte[] BODY = "{\"userId\":\"u1\",\"ticketTypes\":{\"day\":2}}".getBytes(StandardCharsets.UTF_8);
+
+    private MongoTemplate mongoTemplate;
+    private IdempotencyService idempotencyService;
+
+    @BeforeEach
+    void setUp() {
+        mongoTemplate = mock(MongoTemplate.class);
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(IdempotencyRecord.class)))
+                .thenReturn(UpdateResult.acknowledged(1, 1L, null));
+
+        idempotencyService = new IdempotencyService();
+        ReflectionTestUtils.setField(idempotencyService, "mongoTemplate", mongoTemplate);
+        ReflectionTestUtils.setField(idempotencyService, "ttlMs", 86_400_000L);
+        ReflectionTestUtils.setField(idempotencyService, "leaseMs", 30_000L);
+        ReflectionTestUtils.setField(idempotencyService, "localMaxEntries", 100);
+    }
+
+    @Test
+    void keysAreScopedToTheUser() {
+        idempotencyService.execute("u1", "key", BODY, Ticket::new);
+        idempotencyService.execute("u2", "key", BODY, Ticket::new);
+
+        ArgumentCaptor<IdempotencyRecord> claims = ArgumentCaptor.forClass(IdempotencyRecord.class);
+        verify(mongoTemplate, times(2)).insert(claims.capture());
+        assertThat(claims.getAllValues()).extracting(IdempotencyRecord::getKey).containsExactly("u1:key", "u2:key");
+    }
+
+    @Test
+    void retryWithTheSameBodyReturnsTheFirstTicket() {
+        AtomicInteger bookings = new AtomicInteger();
+        Ticket first = idempotencyService.execute("u1", "key", BODY, () -> {
+            bookings.incrementAndGet();
+            return new Ticket();
+        });
+
+        Ticket retried = idempotencyService.execute("u1", "key", BODY.clone(), () -> {
+            bookings.incrementAndGet();
+            return new Ticket();
+        });
+
+        assertThat(retried).isSameAs(first);
+        assertThat(bookings).hasValue(1);
+    }
+
+    @Test
+    void reusedKeyWithADifferentBodyIsRejected() throws Exception {
+        IdempotencyRecord existing = storedClaim(LocalDateTime.now().plusSeconds(30), "other");
+        existing.setStatus(IdempotencyRecord.COMPLETED);
+        when(mongoTemplate.insert(any(IdempotencyRecord.class))).thenThrow(new DuplicateKeyException("taken"));
+        when(mongoTemplate.findById("u1:key", IdempotencyRecord.class)).thenReturn(existing);
+
+        assertThatThrownBy(() -> idempotencyService.execute("u1", "key", BODY, Ticket::new))
+                .isInstanceOf(IdempotencyKeyReusedException.class);
+    }
+
+    @Test
+    void runningBookingIsAConflict() throws Exception {
+        IdempotencyRecord existing = storedClaim(LocalDateTime.now().plusSeconds(30), null);
+        when(mongoTemplate.insert(any(IdempotencyRecord.class))).thenThrow(new DuplicateKeyException("taken"));
+        when(mongoTemplate.findById("u1:key", IdempotencyRecord.class)).thenReturn(existing);
+
+        assertThatThrownBy(() -> idempotencyService.execute("u1", "key", BODY, Ticket::new))
+                .isInstanceOf(IdempotencyConflictException.class);
+    }
+
+    @Test
+    void abandonedClaimIsTakenOverOnceItsLeaseRanOut() throws Exception {
+        IdempotencyRecord existing = storedClaim(LocalDateTime.now().minusSeconds(1), null);
+        when(mongoTemplate.insert(any(IdempotencyRecord.class))).thenThrow(new DuplicateKeyException("taken"));
+        when(mongoTemplate.findById("u1:key", IdempotencyRecord.class)).thenReturn(existing);
+        Ticket booked = new Ticket();
+
+        assertThat(idempotencyService.execute("u1", "key", BODY, () -> booked)).isSameAs(booked);
+
+        ArgumentCaptor<Query> updates = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate, times(2)).updateFirst(updates.capture(), any(Update.class), eq(IdempotencyRecord.class));
+        // The takeover matches the expired lease, the completion the new one
+        assertThat(updates.getAllValues().get(0).getQueryObject().get("pendingUntil")).isEqualTo(existing.getPendingUntil());
+        assertThat(updates.getAllValues().get(1).getQueryObject().get("pendingUntil")).isNotEqualTo(existing.getPendingUntil());
+    }
+
+    /**
+     * A record as stored by another request with the same key and, unless given, the same body
+     */
+    private static IdempotencyRecord storedClaim(LocalDateTime pendingUntil, String requestHash) throws Exception {
+        String hash = requestHash != null ? requestHash
+                : HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(BODY));
+        return new IdempotencyRecord("u1:key", "u1", hash, pendingUntil.truncatedTo(ChronoUnit.MILLIS));
+    }
+}
@@ -0,0 +1,107 @@
+package com.amusementpark.services;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Classifies a corpus of typical chat messages with the old regex cascade and with the automaton.
+ * Each operation classifies the whole corpus, so the score is corpus passes per millisecond.
+ * Run with mvn -P benchmarks -DskipTests test -Dbenchmarks=IntentMatcherBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IntentMatcherBenchmark {
+
+    // Taken from the shape of real sessions: short openers, ticket flow answers, questions
+    // about the park and long free-form messages that match nothing and scan to the end
+    static final String[] CORPUS = {
+            "Hi!",
+            "hello there",
+            "Good morning :)",
+            "hey, I'd like to buy tickets for saturday",
+            "How much is an entry ticket?",
+            "I want to purchase 3 passes",
+            "Can I change my booking?",
+            "with friends",
+            "we are a family of four",
+            "just me",
+            "I'm coming alone this time",
+            "yes",
+            "yeah all adults",
+            "nope, two of them are kids",
+            "2 adults and 3 children",
+            "5",
+            "we are 4 friends, 2 adults and 2 kids under 12",
+            "what's the difference between silver and gold?",
+            "Diamond please",
+            "I'll take the gold pass",
+            "Which rides are good for a 6 year old?",
+            "is the rollercoaster open when it rains?",
+            "what's the scariest thrill attraction you have",
+            "Where can we eat?",
+            "are there vegetarian food options near the water park",
+            "do you have a restaurant that serves dinner after the parade",
+            "What time do you open tomorrow?",
+            "opening hours on public holidays",
+            "when is closing time on sundays",
+            "thanks!",
+            "thank you so much, that was helpful",
+            "ok bye",
+            "see you next week",
+            "can I bring my dog",
+            "is there parking at the north entrance and how much does it cost per day",
+            "my daughter lost her backpack near the carousel yesterday afternoon, is there a lost and found",
+            "do you offer discounts for students or seniors",
+            "I booked online but didn't receive a confirmation email, could you check my order",
+            "how far is the park from the central station by bus",
+            "can we leave and come back later the same day with the same wristband"
+    };
+
+    private final IntentMatcher intentMatcher = new IntentMatcher();
+
+    @Benchmark
+    public void regexCascade(Blackhole blackhole) {
+        for (String message : CORPUS) {
+            String msg = message.toLowerCase();
+            ChatIntent found = null;
+            for (ChatIntent intent : LegacyIntentChecks.CASCADE) {
+                if (LegacyIntentChecks.test(intent, msg)) {
+                    found = intent;
+                    break;
+                }
+            }
+            blackhole.consume(found);
+            blackhole.consume(msg.matches(".*\\d+.*"));
+        }
+    }
+
+    @Benchmark
+    public void automaton(Blackhole blackhole) {
+        for (String message : CORPUS) {
+            IntentMatch match = intentMatcher.match(message);
+            ChatIntent found = null;
+            for (ChatIntent intent : LegacyIntentChecks.CASCADE) {
+                if (match.has(intent)) {
+                    found = intent;
+                    break;
+                }
+            }
+            blackhole.consume(found);
+            blackhole.consume(match.hasDigits());
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.amusementpark.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks the automaton against the regex and contains checks ChatService used before it
+ * ({@link LegacyIntentChecks}) on hand-picked edge cases and on generated messages.
+ */
+class IntentMatcherTest {
+
+    private static final List<String> EDGE_CASES = List.of(
+            "",
+            "Hello!",
+            "hi",
+            "this is high season",
+            "HEY, can I buy 2 tickets?",
+            "ticket",
+            "tickets please",
+            "I want a pass",
+            "passport control",
+            "bypass the queue",
+            "good morning, good evening",
+            "goodmorning",
+            "with my friends and family",
+            "just me, myself and I",
+            "alone",
+            "yes yeah yep",
+            "nope",
+            "know nothing",
+            "Gold",
+            "silver and then diamond",
+            "diamond, then silver",
+            "golden hour",
+            "gold_pass",
+            "gold-pass",
+            "rides rides rides",
+            "ridesharing",
+            "a thrill ride",
+            "where can I eat lunch?",
+            "great food",
+            "what time do you open",
+            "opening hours",
+            "closing time?",
+            "thank you",
+            "thanks, bye",
+            "goodbye and see you",
+            "2 adults and 1 child",
+            "no digits here",
+            "café ticket",
+            "naïve pass",
+            "🎢 ride 🎟️ ticket",
+            "ticket\tpass");
+
+    private final IntentMatcher intentMatcher = new IntentMatcher();
+
+    @Test
+    void edgeCasesMatchTheLegacyChecks() {
+        for (String message : EDGE_CASES) {
+            assertMatchesLegacy(message);
+        }
+    }
+
+    @Test
+    void generatedMessagesMatchTheLegacyChecks() {
+        List<String> fragments = new ArrayList<>();
+        for (ChatIntent intent : ChatIntent.values()) {
+            for (String keyword : intent.getKeywords()) {
+                fragments.add(keyword);
+                fragments.add(keyword.substring(0, keyword.length() - 1));
+            }
+        }
+        fragments.addAll(List.of("s", "ing", "en", "x", "_", "1", "42", "é", "ß"));
+        String[] separators = {"", "", " ", " ", ",", ".", "!", "?", "-", "'", "_", "\t", "7"};
+
+        Random random = new Random(20240601L);
+        for (int n = 0; n < 20_000; n++) {
+            StringBuilder message = new StringBuilder();
+            int parts = 1 + random.nextInt(6);
+            for (int p = 0; p < parts; p++) {
+                String fragment = fragments.get(random.nextInt(fragments.size()));
+                message.append(random.nextInt(4) == 0 ? fragment.toUpperCase() : fragment);
+                message.append(separators[random.nextInt(separators.length)]);
+            }
+            assertMatchesLegacy(message.toString());
+        }
+    }
+
+    private void assertMatchesLegacy(String userMessageText) {
+        String msg = userMessageText.toLowerCase();
+        IntentMatch match = intentMatcher.match(userMessageText);
+
+        for (ChatIntent intent : ChatIntent.values()) {
+            assertThat(match.has(intent)).as("%s in \"%s\"", intent, userMessageText)
+                    .isEqualTo(LegacyIntentChecks.test(intent, msg));
+        }
+        assertThat(match.hasDigits()).as("digits in \"%s\"", userMessageText)
+                .isEqualTo(msg.matches(".*\\d+.*"));
+        String legacyTier = msg.matches(".*\\b(silver|gold|diamond)\\b.*")
+                ? msg.replaceAll(".*\\b(silver|gold|diamond)\\b.*", "$1") : null;
+        assertThat(match.getPassTier()).as("pass tier in \"%s\"", userMessageText).isEqualTo(legacyTier);
+    }
+}
@@ -0,0 +1,46 @@
+package com.amusementpark.services;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * The regex and contains checks ChatService ran before {@link IntentMatcher}, copied verbatim.
+ * Expects the lower-cased message, like generateBotReply did.
+ */
+final class LegacyIntentChecks {
+
+    private static final Map<ChatIntent, Predicate<String>> CHECKS = new EnumMap<>(ChatIntent.class);
+
+    static {
+        CHECKS.put(ChatIntent.GREETING, msg -> msg.matches(".*\\b(hello|hi|hey|good morning|good evening)\\b.*"));
+        CHECKS.put(ChatIntent.TICKET, msg -> msg.matches(".*\\b(ticket|buy|purchase|entry|pass|booking)\\b.*"));
+        CHECKS.put(ChatIntent.FRIENDS, msg -> msg.contains("friend"));
+        CHECKS.put(ChatIntent.FAMILY, msg -> msg.contains("family"));
+        CHECKS.put(ChatIntent.SOLO, msg -> msg.contains("alone") || msg.contains("myself")
+                || msg.contains("just me") || msg.contains("solo"));
+        CHECKS.put(ChatIntent.AFFIRMATIVE, msg -> msg.contains("yes") || msg.contains("yeah") || msg.contains("yep"));
+        CHECKS.put(ChatIntent.NEGATIVE, msg -> msg.contains("no") || msg.contains("nope"));
+        CHECKS.put(ChatIntent.PASS_TIER, msg -> msg.matches(".*\\b(silver|gold|diamond)\\b.*"));
+        CHECKS.put(ChatIntent.RIDE, msg -> msg.matches(".*\\b(ride|rides|rollercoaster|attraction|thrill)\\b.*"));
+        CHECKS.put(ChatIntent.FOOD, msg -> msg.matches(".*\\b(food|eat|restaurant|snack|lunch|dinner|meal)\\b.*"));
+        CHECKS.put(ChatIntent.TIMING, msg -> msg.matches(".*\\b(time|timing|open|closing|hours)\\b.*"));
+        CHECKS.put(ChatIntent.THANKS, msg -> msg.contains("thanks") || msg.contains("thank you"));
+        CHECKS.put(ChatIntent.FAREWELL, msg -> msg.contains("bye") || msg.contains("goodbye") || msg.contains("see you"));
+    }
+
+    /**
+     * The order in which generateBotReply tried the top-level intents
+     */
+    static final List<ChatIntent> CASCADE = List.of(
+            ChatIntent.GREETING, ChatIntent.TICKET, ChatIntent.RIDE, ChatIntent.FOOD,
+            ChatIntent.TIMING, ChatIntent.THANKS, ChatIntent.FAREWELL);
+
+    private LegacyIntentChecks() {
+    }
+
+    static boolean test(ChatIntent intent, String msg) {
+        return CHECKS.get(intent).test(msg);
+    }
+}
@@ -0,0 +1,112 @@
+package com.amusementpark.services;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PasswordHasherTest {
+
+    private PasswordHasher passwordHasher;
+
+    @BeforeEach
+    void setUp() {
+        // The lowest bcrypt cost keeps the tests fast
+        passwordHasher = passwordHasher(4, 0, 2, 10);
+    }
+
+    @AfterEach
+    void tearDown() {
+        passwordHasher.stop();
+    }
+
+    @Test
+    void hashedPasswordMatchesOnlyTheOriginal() {
+        String hash = passwordHasher.hash("s3cret");
+
+        assertThat(hash).startsWith("$2").hasSize(60).isNotEqualTo(passwordHasher.hash("s3cret"));
+        assertThat(passwordHasher.matches("s3cret", hash)).isTrue();
+        assertThat(passwordHasher.matches("S3cret", hash)).isFalse();
+        assertThat(passwordHasher.needsRehash(hash)).isFalse();
+    }
+
+    @Test
+    void legacyPlaintextPasswordsStillMatchAndAreRehashed() {
+        assertThat(passwordHasher.matches("s3cret", "s3cret")).isTrue();
+        assertThat(passwordHasher.matches("s3cret", "other")).isFalse();
+        assertThat(passwordHasher.needsRehash("s3cret")).isTrue();
+    }
+
+    @Test
+    void unknownUserNeverMatches() {
+        assertThat(passwordHasher.matches("s3cret", null)).isFalse();
+    }
+
+    @Test
+    void hashesWithALowerCostAreRehashed() {
+        String weak = new BCryptPasswordEncoder(4).encode("s3cret");
+        passwordHasher.stop();
+        passwordHasher = passwordHasher(5, 0, 1, 10);
+
+        assertThat(passwordHasher.matches("s3cret", weak)).isTrue();
+        assertThat(passwordHasher.needsRehash(weak)).isTrue();
+        assertThat(passwordHasher.needsRehash(passwordHasher.hash("s3cret"))).isFalse();
+    }
+
+    @Test
+    void costIsCalibratedWithinBounds() {
+        passwordHasher.stop();
+        passwordHasher = passwordHasher(0, 1, 1, 10);
+
+        assertThat(passwordHasher.getCost()).isEqualTo(10);
+    }
+
+    @Test
+    void fullQueueRejectsTheHash() throws InterruptedException {
+        passwordHasher.stop();
+        passwordHasher = passwordHasher(4, 0, 1, 1);
+        ThreadPoolExecutor executor = (ThreadPoolExecutor) ReflectionTestUtils.getField(passwordHasher, "executor");
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        executor.execute(() -> {
+            started.countDown();
+            awaitQuietly(release);
+        });
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        try {
+            executor.execute(() -> { });
+            assertThat(passwordHasher.getQueuedHashes()).isEqualTo(1);
+            assertThatThrownBy(() -> passwordHasher.hash("s3cret")).isInstanceOf(RejectedExecutionException.class);
+        } finally {
+            release.countDown();
+        }
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static PasswordHasher passwordHasher(int cost, long targetMs, int threads, int queueCapacity) {
+        PasswordHasher passwordHasher = new PasswordHasher();
+        ReflectionTestUtils.setField(passwordHasher, "configuredCost", cost);
+        ReflectionTestUtils.setField(passwordHasher, "targetMs", targetMs);
+        ReflectionTestUtils.setField(passwordHasher, "threads", threads);
+        ReflectionTestUtils.setField(passwordHasher, "queueCapacity", queueCapacity);
+        passwordHasher.start();
+        return passwordHasher;
+    }
+}
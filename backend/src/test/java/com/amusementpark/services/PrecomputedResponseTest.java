@@ -0,0 +1,91 @@
+package com.amusementpark.services;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PrecomputedResponseTest {
+
+    private static final byte[] BODY = "[{\"name\":\"Thunder Loop\"}]".getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    void equalContentGetsEqualEtags() {
+        ResponseEntity<byte[]> first = new PrecomputedResponse(BODY, true).toResponseEntity(request(null, null));
+        ResponseEntity<byte[]> second = new PrecomputedResponse(BODY.clone(), true).toResponseEntity(request(null, null));
+        ResponseEntity<byte[]> other = new PrecomputedResponse("[]".getBytes(StandardCharsets.UTF_8), true)
+                .toResponseEntity(request(null, null));
+
+        assertThat(first.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(first.getBody()).isEqualTo(BODY);
+        assertThat(first.getHeaders().getETag()).isEqualTo(second.getHeaders().getETag())
+                .isNotEqualTo(other.getHeaders().getETag());
+    }
+
+    @Test
+    void currentEtagIsAnsweredWithNotModified() {
+        PrecomputedResponse response = new PrecomputedResponse(BODY, false);
+        String etag = response.toResponseEntity(request(null, null)).getHeaders().getETag();
+
+        ResponseEntity<byte[]> notModified = response.toResponseEntity(request("\"stale\", " + etag, null));
+        ResponseEntity<byte[]> weak = response.toResponseEntity(request("W/" + etag, null));
+        ResponseEntity<byte[]> stale = response.toResponseEntity(request("\"stale\"", null));
+
+        assertThat(notModified.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+        assertThat(notModified.getBody()).isNull();
+        assertThat(notModified.getHeaders().getETag()).isEqualTo(etag);
+        assertThat(weak.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+        assertThat(stale.getStatusCode()).isEqualTo(HttpStatus.OK);
+    }
+
+    @Test
+    void gzipIsAnotherRepresentationWithItsOwnEtag() throws IOException {
+        PrecomputedResponse response = new PrecomputedResponse(BODY, true);
+
+        ResponseEntity<byte[]> plain = response.toResponseEntity(request(null, null));
+        ResponseEntity<byte[]> gzipped = response.toResponseEntity(request(null, "gzip, deflate"));
+
+        assertThat(gzipped.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+        assertThat(gzipped.getHeaders().getVary()).contains(HttpHeaders.ACCEPT_ENCODING);
+        assertThat(gunzip(gzipped.getBody())).isEqualTo(BODY);
+        assertThat(gzipped.getHeaders().getETag()).isNotEqualTo(plain.getHeaders().getETag());
+
+        // A client that cached the plain body must not get a 304 for the gzipped one
+        ResponseEntity<byte[]> revalidated = response.toResponseEntity(request(plain.getHeaders().getETag(), "gzip"));
+        assertThat(revalidated.getStatusCode()).isEqualTo(HttpStatus.OK);
+    }
+
+    @Test
+    void gzipCanBeTurnedOff() {
+        ResponseEntity<byte[]> response = new PrecomputedResponse(BODY, false).toResponseEntity(request(null, "gzip"));
+
+        assertThat(response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING)).isNull();
+        assertThat(response.getBody()).isEqualTo(BODY);
+    }
+
+    private static ServletWebRequest request(String ifNoneMatch, String acceptEncoding) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/rides");
+        if (ifNoneMatch != null) {
+            request.addHeader(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+        }
+        if (acceptEncoding != null) {
+            request.addHeader(HttpHeaders.ACCEPT_ENCODING, acceptEncoding);
+        }
+        return new ServletWebRequest(request);
+    }
+
+    private static byte[] gunzip(byte[] content) throws IOException {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(content))) {
+            return in.readAllBytes();
+        }
+    }
+}
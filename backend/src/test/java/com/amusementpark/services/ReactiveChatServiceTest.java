@@ -0,0 +1,138 @@
+package com.amusementpark.services;
+
+import com.amusementpark.models.ChatMessage;
+import com.amusementpark.models.ConversationState;
+import com.amusementpark.repositories.ReactiveConversationStateRepository;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ReactiveChatServiceTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+    private ConversationStateCache conversationStateCache;
+    private ChatMessageStore chatMessageStore;
+    private ChatArchiveService chatArchiveService;
+    private ReactiveConversationStateRepository repository;
+    private ChatTurnExecutor chatTurnExecutor;
+    private ReactiveChatService reactiveChatService;
+    // Messages handed to insertReactive, in subscription order
+    private final List<ChatMessage> inserted = Collections.synchronizedList(new ArrayList<>());
+
+    @BeforeEach
+    void setUp() {
+        conversationStateCache = mock(ConversationStateCache.class);
+        when(conversationStateCache.add(any(ConversationState.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        chatMessageStore = mock(ChatMessageStore.class);
+        // Like both stores, an id is generated on insert when the message has none
+        when(chatMessageStore.insertReactive(any(ChatMessage.class))).thenAnswer(invocation -> Mono.fromSupplier(() -> {
+            ChatMessage message = invocation.getArgument(0);
+            if (message.getId() == null) {
+                message.setId(new ObjectId().toHexString());
+            }
+            inserted.add(message);
+            return message;
+        }));
+        chatArchiveService = mock(ChatArchiveService.class);
+        repository = mock(ReactiveConversationStateRepository.class);
+        when(repository.findByUserId(anyString())).thenReturn(Mono.empty());
+
+        chatTurnExecutor = new ChatTurnExecutor();
+        ReflectionTestUtils.setField(chatTurnExecutor, "stripeCount", 4);
+        ReflectionTestUtils.setField(chatTurnExecutor, "queueCapacity", 100);
+        chatTurnExecutor.start();
+
+        ChatService chatService = new ChatService(chatMessageStore, conversationStateCache, new IntentMatcher(), mock(ChatReplyTemplates.class));
+        ReflectionTestUtils.setField(chatService, "historyMaxTurns", 10);
+        ReflectionTestUtils.setField(chatService, "historyMaxEntryLength", 280);
+
+        reactiveChatService = new ReactiveChatService();
+        ReflectionTestUtils.setField(reactiveChatService, "chatService", chatService);
+        ReflectionTestUtils.setField(reactiveChatService, "conversationStateCache", conversationStateCache);
+        ReflectionTestUtils.setField(reactiveChatService, "chatTurnExecutor", chatTurnExecutor);
+        ReflectionTestUtils.setField(reactiveChatService, "chatArchiveService", chatArchiveService);
+        ReflectionTestUtils.setField(reactiveChatService, "chatMessageStore", chatMessageStore);
+        ReflectionTestUtils.setField(reactiveChatService, "reactiveConversationStateRepository", repository);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        chatTurnExecutor.stop();
+    }
+
+    @Test
+    void replyIsSavedAfterTheQuestionAndTheStateIsCached() {
+        ChatMessage reply = reactiveChatService.processUserMessage("alice", "hello").block(TIMEOUT);
+
+        assertThat(reply.getSender()).isEqualTo("bot");
+        assertThat(reply.getMessage()).startsWith("Hey there!");
+        assertThat(inserted).extracting(ChatMessage::getSender).containsExactly("user", "bot");
+        assertThat(new ObjectId(inserted.get(0).getId())).isLessThan(new ObjectId(reply.getId()));
+
+        // A new user gets a fresh state that the cache writes back later
+        verify(conversationStateCache).add(any(ConversationState.class));
+        verify(conversationStateCache).markDirty(any(ConversationState.class));
+    }
+
+    @Test
+    void cachedStateIsUsedWithoutALoad() {
+        ConversationState cached = new ConversationState("alice");
+        cached.setContextValue("last_intent", "await_family_composition");
+        cached.setContextValue("groupType", "family");
+        when(conversationStateCache.getIfPresent("alice")).thenReturn(cached);
+
+        ChatMessage reply = reactiveChatService.processUserMessage("alice", "2 adults").block(TIMEOUT);
+
+        assertThat(cached.getContextValue("adults")).isEqualTo(2);
+        assertThat(reply.getMessage()).startsWith("Great! Based on your information");
+        verify(repository, never()).findByUserId(anyString());
+    }
+
+    @Test
+    void noReplyWhenTheQuestionCannotBeSaved() {
+        when(chatMessageStore.insertReactive(any(ChatMessage.class))).thenReturn(Mono.error(new RuntimeException("down")));
+
+        assertThatThrownBy(() -> reactiveChatService.processUserMessage("alice", "hello").block(TIMEOUT))
+                .hasMessageContaining("down");
+        verify(conversationStateCache, never()).markDirty(any(ConversationState.class));
+    }
+
+    @Test
+    void historyContinuesAfterTheLastArchivedMessage() {
+        ChatMessage archived = message("a1", "old");
+        ChatMessage hot = message("h1", "new");
+        when(chatArchiveService.findArchivedMessages("alice")).thenReturn(Flux.just(archived));
+        when(chatMessageStore.findAfterReactive("alice", archived)).thenReturn(Flux.just(hot));
+
+        List<ChatMessage> history = reactiveChatService.getChatHistoryByUserId("alice").collectList().block(TIMEOUT);
+
+        assertThat(history).containsExactly(archived, hot);
+    }
+
+    private static ChatMessage message(String id, String text) {
+        ChatMessage message = new ChatMessage("alice", text, "user");
+        message.setId(id);
+        message.setTimestamp(LocalDateTime.of(2025, 6, 14, 12, 0));
+        return message;
+    }
+}
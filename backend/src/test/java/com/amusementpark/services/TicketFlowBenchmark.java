@@ -0,0 +1,79 @@
+package com.amusementpark.services;
+
+import com.amusementpark.models.ConversationState;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Plays scripted ticket conversations through the state table of ChatService and through
+ * the if/else chain it replaced ({@link LegacyTicketFlow}). Each operation plays every script
+ * from a fresh conversation, so the score is script sets per millisecond.
+ * Run with mvn -P benchmarks -DskipTests test -Dbenchmarks=TicketFlowBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TicketFlowBenchmark {
+
+    static final String[][] SCRIPTS = {
+            {"Hi", "I want to buy tickets", "with my family", "2 adults and 1 child", "yes", "thanks"},
+            {"hello", "tickets please", "me and my friends", "yeah", "3", "bye"},
+            {"I need a ticket for me and my friends", "nope", "3 adults and 2 children", "no"},
+            {"can I book a pass just for myself", "which one is best?", "gold then"},
+            {"hey", "buy entry", "hmm", "family", "not sure yet", "two adults", "2 and 2", "maybe", "yes"},
+            {"tickets for my family", "4 adults", "thank you"}
+    };
+
+    private final ChatService chatService;
+    private final LegacyTicketFlow legacyTicketFlow;
+
+    public TicketFlowBenchmark() {
+        IntentMatcher intentMatcher = new IntentMatcher();
+        ChatReplyTemplates emptyCatalog = new ChatReplyTemplates() {
+            @Override
+            public String getRidesSummary() {
+                return "Sorry, we currently don't have ride info.";
+            }
+
+            @Override
+            public String getTicketPrices() {
+                return "";
+            }
+        };
+        chatService = new ChatService(null, null, intentMatcher, emptyCatalog);
+        legacyTicketFlow = new LegacyTicketFlow(intentMatcher);
+    }
+
+    @Benchmark
+    public void stateTable(Blackhole blackhole) {
+        for (String[] script : SCRIPTS) {
+            ConversationState state = new ConversationState("bench");
+            for (String message : script) {
+                blackhole.consume(chatService.generateBotReply(state, message));
+            }
+        }
+    }
+
+    @Benchmark
+    public void ifElseChain(Blackhole blackhole) {
+        for (String[] script : SCRIPTS) {
+            ConversationState state = new ConversationState("bench");
+            for (String message : script) {
+                blackhole.consume(legacyTicketFlow.generateBotReply(state, message));
+            }
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.amusementpark.services;
+
+import com.amusementpark.models.Ticket;
+import com.amusementpark.models.TicketType;
+import com.amusementpark.repositories.TicketRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TicketServiceTest {
+
+    private static final LocalDate SATURDAY = LocalDate.of(2025, 6, 14);
+    private static final LocalDate SUNDAY = LocalDate.of(2025, 6, 15);
+
+    private TicketRepository ticketRepository;
+    private TicketTypeService ticketTypeService;
+    private CapacityService capacityService;
+    private TicketService ticketService;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        ticketRepository = mock(TicketRepository.class);
+        ticketTypeService = mock(TicketTypeService.class);
+        capacityService = mock(CapacityService.class);
+        Map<String, TicketType> catalog = Map.of(
+                "silver", ticketType("silver", 1.005, 2),
+                "gold", ticketType("gold", 0.2, 5));
+        when(ticketTypeService.getTicketTypesByIds(any())).thenAnswer(invocation -> {
+            Map<String, TicketType> found = new HashMap<>();
+            for (String id : (Collection<String>) invocation.getArgument(0)) {
+                if (catalog.containsKey(id)) {
+                    found.put(id, catalog.get(id));
+                }
+            }
+            return found;
+        });
+        when(ticketRepository.save(any(Ticket.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(ticketRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        ticketService = new TicketService();
+        ReflectionTestUtils.setField(ticketService, "ticketRepository", ticketRepository);
+        ReflectionTestUtils.setField(ticketService, "ticketTypeService", ticketTypeService);
+        ReflectionTestUtils.setField(ticketService, "capacityService", capacityService);
+    }
+
+    @Test
+    void priceIsSummedExactlyAndUnknownTypesAreIgnored() {
+        Ticket ticket = ticket(SATURDAY, Map.of("silver", 1, "gold", 2, "unknown", 4));
+
+        ticketService.bookTicket(ticket);
+
+        // 1.005 + 2 x 0.2 is 1.4049999... as a double and would round down to 1.40
+        assertThat(ticket.getTotalPrice()).isEqualTo(1.41);
+        assertThat(ticket.getTotalRidesAllowed()).isEqualTo(12);
+        verify(capacityService).reserve(eq(SATURDAY), eq(Map.of("silver", 1, "gold", 2)), anyMap());
+    }
+
+    @Test
+    void bulkBookingResolvesTypesOnceAndSavesOnce() {
+        List<Ticket> tickets = List.of(
+                ticket(SATURDAY, Map.of("silver", 1)),
+                ticket(SATURDAY, Map.of("silver", 2, "gold", 1)),
+                ticket(SUNDAY, Map.of("gold", 2)));
+
+        ticketService.bookTickets(tickets);
+
+        verify(ticketTypeService, times(1)).getTicketTypesByIds(any());
+        verify(ticketRepository, times(1)).saveAll(tickets);
+        // One reservation per visit date
+        verify(capacityService).reserve(eq(SATURDAY), eq(Map.of("silver", 3, "gold", 1)), anyMap());
+        verify(capacityService).reserve(eq(SUNDAY), eq(Map.of("gold", 2)), anyMap());
+    }
+
+    @Test
+    void soldOutDateReleasesTheOtherDatesAndBooksNothing() {
+        Set<LocalDate> held = new HashSet<>();
+        doAnswer(invocation -> {
+            if (invocation.getArgument(0).equals(SUNDAY)) {
+                throw new CapacityExceededException("sold out");
+            }
+            held.add(invocation.getArgument(0));
+            return null;
+        }).when(capacityService).reserve(any(), anyMap(), anyMap());
+        doAnswer(invocation -> held.remove(invocation.<LocalDate>getArgument(0)))
+                .when(capacityService).release(any(), anyMap());
+        List<Ticket> tickets = List.of(ticket(SATURDAY, Map.of("silver", 1)), ticket(SUNDAY, Map.of("gold", 2)));
+
+        assertThatThrownBy(() -> ticketService.bookTickets(tickets)).isInstanceOf(CapacityExceededException.class);
+
+        verify(ticketRepository, never()).saveAll(anyList());
+        verify(capacityService, never()).release(eq(SUNDAY), anyMap());
+        assertThat(held).isEmpty();
+    }
+
+    @Test
+    void failedSaveGivesTheReservationBack() {
+        when(ticketRepository.save(any(Ticket.class))).thenThrow(new RuntimeException("down"));
+
+        assertThatThrownBy(() -> ticketService.bookTicket(ticket(SATURDAY, Map.of("gold", 2)))).hasMessage("down");
+
+        verify(capacityService).release(SATURDAY, Map.of("gold", 2));
+    }
+
+    private static Ticket ticket(LocalDate visitDate, Map<String, Integer> ticketTypes) {
+        Ticket ticket = new Ticket();
+        ticket.setUserId("alice");
+        ticket.setVisitDate(LocalDateTime.of(visitDate, LocalTime.NOON));
+        ticket.setTicketTypes(ticketTypes);
+        return ticket;
+    }
+
+    private static TicketType ticketType(String id, double price, int rideLimit) {
+        TicketType ticketType = new TicketType(id, id, rideLimit, price, false);
+        ticketType.setId(id);
+        return ticketType;
+    }
+}
@@ -0,0 +1,99 @@
+package com.amusementpark.services;
+
+import com.amusementpark.models.User;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TokenServiceTest {
+
+    private static final String SECRET = Base64.getEncoder().encodeToString(new byte[32]);
+    private static final String OTHER_SECRET = Base64.getEncoder().encodeToString("another-secret-of-32-bytes-long!".getBytes(StandardCharsets.US_ASCII));
+
+    @Test
+    void issuedTokenDescribesTheUser() {
+        TokenService tokenService = tokenService(SECRET, 60_000);
+
+        User verified = tokenService.verify(tokenService.issue(user()));
+
+        assertThat(verified.getId()).isEqualTo("u1");
+        assertThat(verified.getUsername()).isEqualTo("alice");
+        assertThat(verified.getEmail()).isEqualTo("alice@example.com");
+        assertThat(verified.getRole()).isEqualTo("admin");
+        assertThat(verified.getPassword()).isNull();
+    }
+
+    @Test
+    void instancesSharingTheSecretAcceptEachOthersTokens() {
+        String token = tokenService(SECRET, 60_000).issue(user());
+
+        assertThat(tokenService(SECRET, 60_000).verify(token)).isNotNull();
+        assertThat(tokenService(OTHER_SECRET, 60_000).verify(token)).isNull();
+    }
+
+    @Test
+    void tamperedTokensAreRejected() {
+        TokenService tokenService = tokenService(SECRET, 60_000);
+        String[] parts = tokenService.issue(user()).split("\\.");
+        String payload = new String(Base64.getUrlDecoder().decode(parts[1]), StandardCharsets.UTF_8);
+        String promoted = encode(payload.replace("\"admin\"", "\"superuser\""));
+        String unsigned = encode("{\"alg\":\"none\",\"typ\":\"JWT\"}");
+
+        assertThat(tokenService.verify(parts[0] + "." + promoted + "." + parts[2])).isNull();
+        assertThat(tokenService.verify(unsigned + "." + parts[1] + ".")).isNull();
+        assertThat(tokenService.verify(parts[0] + "." + parts[1] + ".")).isNull();
+    }
+
+    @Test
+    void malformedTokensAreRejectedWithoutAnError() {
+        TokenService tokenService = tokenService(SECRET, 60_000);
+        String header = tokenService.issue(user()).split("\\.")[0];
+
+        for (String token : new String[] {"", ".", "..", "abc", header, header + ".", header + ".%%%.%%%", header + ".e30.!"}) {
+            assertThat(tokenService.verify(token)).as(token).isNull();
+        }
+    }
+
+    @Test
+    void expiredTokensAreRejected() {
+        TokenService tokenService = tokenService(SECRET, 0);
+
+        assertThat(tokenService.verify(tokenService.issue(user()))).isNull();
+    }
+
+    @Test
+    void shortSecretsAreRefusedAtStartup() {
+        String shortSecret = Base64.getEncoder().encodeToString(new byte[16]);
+
+        assertThatThrownBy(() -> tokenService(shortSecret, 60_000)).isInstanceOf(IllegalStateException.class);
+    }
+
+    private static TokenService tokenService(String secret, long ttlMs) {
+        TokenService tokenService = new TokenService();
+        ReflectionTestUtils.setField(tokenService, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(tokenService, "secret", secret);
+        ReflectionTestUtils.setField(tokenService, "ttlMs", ttlMs);
+        tokenService.init();
+        return tokenService;
+    }
+
+    private static User user() {
+        User user = new User();
+        user.setId("u1");
+        user.setUsername("alice");
+        user.setEmail("alice@example.com");
+        user.setRole("admin");
+        user.setPassword("secret-hash");
+        return user;
+    }
+
+    private static String encode(String json) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
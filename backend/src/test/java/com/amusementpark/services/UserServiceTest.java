@@ -0,0 +1,70 @@
+package com.amusementpark.services;
+
+import com.amusementpark.models.User;
+import com.amusementpark.repositories.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UserServiceTest {
+
+    private UserRepository userRepository;
+    private MongoTemplate mongoTemplate;
+    private UserService userService;
+
+    @BeforeEach
+    void setUp() {
+        userRepository = mock(UserRepository.class);
+        when(userRepository.insert(any(User.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        PasswordHasher passwordHasher = mock(PasswordHasher.class);
+        when(passwordHasher.hash(anyString())).thenReturn("hash");
+        mongoTemplate = mock(MongoTemplate.class);
+
+        userService = new UserService();
+        ReflectionTestUtils.setField(userService, "userRepository", userRepository);
+        ReflectionTestUtils.setField(userService, "passwordHasher", passwordHasher);
+        ReflectionTestUtils.setField(userService, "mongoTemplate", mongoTemplate);
+    }
+
+    @Test
+    void freeUsernameIsAnsweredFromTheFilter() {
+        when(mongoTemplate.stream(any(Query.class), eq(User.class))).thenAnswer(invocation -> Stream.of(user("alice")));
+        userService.rebuildUsernameFilter();
+
+        assertThat(userService.isUsernameAvailable("bob")).isTrue();
+        verify(userRepository, never()).existsByUsername("bob");
+    }
+
+    @Test
+    void registrationDuringARebuildIsInTheNewFilter() {
+        when(mongoTemplate.stream(any(Query.class), eq(User.class))).thenAnswer(invocation -> Stream.of(user("alice")));
+        userService.rebuildUsernameFilter();
+        // The next rebuild has read the collection when "carol" registers, so only the old filter gets her
+        when(mongoTemplate.stream(any(Query.class), eq(User.class))).thenAnswer(invocation -> {
+            Stream<User> snapshot = Stream.of(user("alice"));
+            userService.register("carol", "carol@example.com", "s3cret");
+            return snapshot;
+        });
+        userService.rebuildUsernameFilter();
+        when(userRepository.existsByUsername("carol")).thenReturn(true);
+
+        assertThat(userService.isUsernameAvailable("carol")).isFalse();
+    }
+
+    private static User user(String username) {
+        return new User(username, username + "@example.com", "hash");
+    }
+}
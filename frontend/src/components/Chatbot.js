@@ -1,4 +1,4 @@
-import React, { useState, useContext } from 'react';
+import React, { useState, useContext, useEffect, useRef } from 'react';
 import axios from 'axios';
 import { AuthContext } from '../context/AuthContext';
 
@@ -9,6 +9,30 @@ const Chatbot = () => {
   // Get the authenticated user from context
   const { user } = useContext(AuthContext);
 
+  // One WebSocket per chat session, replies are pushed as soon as they are generated
+  const socketRef = useRef(null);
+
+  useEffect(() => {
+    if (!user) return undefined;
+
+    const protocol = window.location.protocol === 'https:' ? 'wss:' : 'ws:';
+    // Browsers cannot set headers on the handshake, so the token goes in the query string
+    const socket = new WebSocket(`${protocol}//${window.location.host}/ws/chat?access_token=${encodeURIComponent(user.token)}`);
+    socket.onmessage = (event) => {
+      const data = JSON.parse(event.data);
+      const botMessage = data.error
+        ? { text: 'Sorry, I encountered an error. Please try again.', sender: 'bot' }
+        : { text: data.message, sender: 'bot' };
+      setMessages(prevMessages => [...prevMessages, botMessage]);
+    };
+    socketRef.current = socket;
+
+    return () => {
+      socketRef.current = null;
+      socket.close();
+    };
+  }, [user]);
+
   const handleInputChange = (e) => {
     setInput(e.target.value);
   };
@@ -21,8 +45,14 @@ const Chatbot = () => {
     setMessages([...messages, userMessage]);
     setInput('');
 
+    const socket = socketRef.current;
+    if (socket && socket.readyState === WebSocket.OPEN) {
+      socket.send(JSON.stringify({ message: input }));
+      return;
+    }
+
     try {
-      // Send message to backend with the authenticated user's ID
+      // Fall back to a plain request while the WebSocket is not connected
       const response = await axios.post('/api/chat', { userId: user.id, message: input });
       // Note: Using user.id assuming the backend returns user object with id field
       // If the field is different (e.g., userId, _id), adjust accordingly
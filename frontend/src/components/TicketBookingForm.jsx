@@ -2,6 +2,18 @@ import React, { useState, useEffect, useContext } from 'react';
 import axios from 'axios';
 import { AuthContext } from '../context/AuthContext';
 
+// crypto.randomUUID only exists in secure contexts (HTTPS or localhost), getRandomValues everywhere
+const newIdempotencyKey = () => {
+  if (window.crypto?.randomUUID) {
+    return window.crypto.randomUUID();
+  }
+  const bytes = window.crypto.getRandomValues(new Uint8Array(16));
+  bytes[6] = (bytes[6] & 0x0f) | 0x40; // version 4
+  bytes[8] = (bytes[8] & 0x3f) | 0x80; // RFC 4122 variant
+  const hex = Array.from(bytes, b => b.toString(16).padStart(2, '0')).join('');
+  return `${hex.slice(0, 8)}-${hex.slice(8, 12)}-${hex.slice(12, 16)}-${hex.slice(16, 20)}-${hex.slice(20)}`;
+};
+
 const TicketBookingForm = () => {
   const [formData, setFormData] = useState({
     name: '',
@@ -23,6 +35,9 @@ const TicketBookingForm = () => {
   const [loading, setLoading] = useState(false);
   const [success, setSuccess] = useState(false);
   const [error, setError] = useState('');
+  // One key per booking attempt: resubmits and retries of the same booking reuse it, so the
+  // backend books it only once. A new key is taken after a success or when the form changes.
+  const [idempotencyKey, setIdempotencyKey] = useState(newIdempotencyKey);
 
   // Fetch available ticket types from backend
   useEffect(() => {
@@ -64,6 +79,7 @@ const TicketBookingForm = () => {
       ...formData,
       [name]: value
     });
+    setIdempotencyKey(newIdempotencyKey());
   };
 
   const handleQuantityChange = (ticketType, change) => {
@@ -74,6 +90,7 @@ const TicketBookingForm = () => {
       ...ticketQuantities,
       [type]: newQuantity
     });
+    setIdempotencyKey(newIdempotencyKey());
   };
 
   const getTotalTickets = () => {
@@ -112,9 +129,13 @@ const TicketBookingForm = () => {
       };
       
       // Send booking request to backend
-      const response = await axios.post('/api/tickets/book', ticketData);
+      // The key lets the backend recognise a retried submission of this booking
+      const response = await axios.post('/api/tickets/book', ticketData, {
+        headers: { 'Idempotency-Key': idempotencyKey }
+      });
       
       setSuccess(true);
+      setIdempotencyKey(newIdempotencyKey());
       // Reset form after successful submission
       setFormData({
         name: '',
@@ -129,7 +150,11 @@ const TicketBookingForm = () => {
       });
     } catch (error) {
       console.error('Error booking ticket:', error);
-      setError('Failed to book ticket. Please try again.');
+      if (error.response?.status === 409) {
+        setError(error.response.data);
+      } else {
+        setError('Failed to book ticket. Please try again.');
+      }
     } finally {
       setLoading(false);
     }
@@ -1,5 +1,6 @@
-import React, { useState, useContext } from 'react';
+import React, { useState, useContext, useEffect } from 'react';
 import { useNavigate, Link } from 'react-router-dom';
+import axios from 'axios';
 import { AuthContext } from '../../context/AuthContext';
 
 /**
@@ -13,11 +14,31 @@ const Register = () => {
     confirmPassword: ''
   });
   const [error, setError] = useState('');
+  // null while unknown, otherwise whether the typed username is still free
+  const [usernameAvailable, setUsernameAvailable] = useState(null);
   
   // Get authentication context
   const { register, loading } = useContext(AuthContext);
   const navigate = useNavigate();
 
+  // Check the username shortly after the user stops typing
+  useEffect(() => {
+    const username = userData.username.trim();
+    if (username === '') {
+      setUsernameAvailable(null);
+      return undefined;
+    }
+    const timer = setTimeout(async () => {
+      try {
+        const response = await axios.get('/api/auth/username-available', { params: { username } });
+        setUsernameAvailable(response.data.available);
+      } catch (err) {
+        setUsernameAvailable(null);
+      }
+    }, 300);
+    return () => clearTimeout(timer);
+  }, [userData.username]);
+
   /**
    * Handle input changes
    * @param {Event} e - The input change event
@@ -78,6 +99,9 @@ const Register = () => {
             className="shadow appearance-none border rounded w-full py-2 px-3 text-gray-700 leading-tight focus:outline-none focus:shadow-outline"
             required
           />
+          {usernameAvailable === false && (
+            <p className="text-red-500 text-xs italic mt-1">This username is already taken</p>
+          )}
         </div>
         
         <div className="mb-4">
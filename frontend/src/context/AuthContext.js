@@ -4,6 +4,18 @@ import axios from 'axios';
 // Create the authentication context
 export const AuthContext = createContext();
 
+/**
+ * Send the access token issued at login with every backend request
+ * @param {string|null} token - The access token, or null to stop sending one
+ */
+const setAuthToken = (token) => {
+  if (token) {
+    axios.defaults.headers.common['Authorization'] = `Bearer ${token}`;
+  } else {
+    delete axios.defaults.headers.common['Authorization'];
+  }
+};
+
 /**
  * AuthProvider component that wraps the application and provides authentication state
  * and methods to all child components.
@@ -25,6 +37,7 @@ export const AuthProvider = ({ children }) => {
         
         if (storedUser) {
           const parsedUser = JSON.parse(storedUser);
+          setAuthToken(parsedUser.token);
           setUser(parsedUser);
           setIsAuthenticated(true);
         }
@@ -32,6 +45,7 @@ export const AuthProvider = ({ children }) => {
         console.error('Error checking authentication status:', error);
         // Clear any invalid data
         sessionStorage.removeItem('user');
+        setAuthToken(null);
         setUser(null);
         setIsAuthenticated(false);
       } finally {
@@ -70,8 +84,9 @@ export const AuthProvider = ({ children }) => {
       const response = await axios.post('/api/auth/login', credentials);
       const userData = response.data;
       
-      // Store user data in session storage
+      // Store user data, including the access token, in session storage
       sessionStorage.setItem('user', JSON.stringify(userData));
+      setAuthToken(userData.token);
       
       // Update state
       setUser(userData);
@@ -95,8 +110,9 @@ export const AuthProvider = ({ children }) => {
     } catch (error) {
       console.error('Error during logout:', error);
     } finally {
-      // Clear session storage
+      // Clear session storage, dropping the token logs the user out
       sessionStorage.removeItem('user');
+      setAuthToken(null);
       
       // Update state
       setUser(null);